@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.cloudera.nav.sdk.model.MetadataModel;
+import com.cloudera.nav.sdk.model.Source;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking variant of {@link NavApiCient}. Every call returns
+ * immediately with a ListenableFuture that completes once Navigator has
+ * responded.
+ *
+ * At most {@link ClientConfig#getMaxInFlightRequests()} requests are sent
+ * concurrently, the rest wait in a queue. Cancelling the future of a queued
+ * request removes it without contacting Navigator, so many paging cursors
+ * can be driven by a small number of threads.
+ */
+public class AsyncNavApiClient implements Closeable {
+
+  private static final long IDLE_THREAD_TIMEOUT_SECS = 60L;
+
+  private final NavApiCient client;
+  private final ThreadPoolExecutor threadPool;
+  private final ListeningExecutorService executor;
+
+  public AsyncNavApiClient(NavApiCient client) {
+    this(client, client.getConfig().getMaxInFlightRequests());
+  }
+
+  public AsyncNavApiClient(NavApiCient client, int maxInFlightRequests) {
+    Preconditions.checkArgument(maxInFlightRequests > 0,
+        "Maximum in-flight requests must be positive");
+    this.client = client;
+    this.threadPool = new ThreadPoolExecutor(maxInFlightRequests,
+        maxInFlightRequests, IDLE_THREAD_TIMEOUT_SECS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder()
+            .setNameFormat("nav-api-client-%d")
+            .setDaemon(true)
+            .build());
+    this.threadPool.allowCoreThreadTimeOut(true);
+    this.executor = MoreExecutors.listeningDecorator(threadPool);
+  }
+
+  /**
+   * @see NavApiCient#registerModels(MetadataModel)
+   */
+  public ListenableFuture<MetadataModel> registerModels(
+      final MetadataModel model) {
+    return executor.submit(new Callable<MetadataModel>() {
+      @Override
+      public MetadataModel call() throws Exception {
+        return client.registerModels(model);
+      }
+    });
+  }
+
+  /**
+   * @see NavApiCient#getAllSources()
+   */
+  public ListenableFuture<Collection<Source>> getAllSources() {
+    return executor.submit(new Callable<Collection<Source>>() {
+      @Override
+      public Collection<Source> call() throws Exception {
+        return client.getAllSources();
+      }
+    });
+  }
+
+  /**
+   * @see NavApiCient#getEntityBatch(MetadataQuery)
+   */
+  public ListenableFuture<ResultsBatch<Map<String, Object>>> getEntityBatch(
+      final MetadataQuery metadataQuery) {
+    return executor.submit(new Callable<ResultsBatch<Map<String, Object>>>() {
+      @Override
+      public ResultsBatch<Map<String, Object>> call() throws Exception {
+        return client.getEntityBatch(metadataQuery);
+      }
+    });
+  }
+
+  /**
+   * @see NavApiCient#getRelationBatch(MetadataQuery)
+   */
+  public ListenableFuture<ResultsBatch<Map<String, Object>>> getRelationBatch(
+      final MetadataQuery metadataQuery) {
+    return executor.submit(new Callable<ResultsBatch<Map<String, Object>>>() {
+      @Override
+      public ResultsBatch<Map<String, Object>> call() throws Exception {
+        return client.getRelationBatch(metadataQuery);
+      }
+    });
+  }
+
+  /**
+   * @return number of requests currently being sent to Navigator
+   */
+  public int getInFlightRequests() {
+    return threadPool.getActiveCount();
+  }
+
+  /**
+   * @return number of requests waiting for an in-flight slot
+   */
+  public int getQueuedRequests() {
+    return threadPool.getQueue().size();
+  }
+
+  public NavApiCient getClient() {
+    return client;
+  }
+
+  /**
+   * Cancel all queued and in-flight requests. The underlying NavApiCient is
+   * not closed.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
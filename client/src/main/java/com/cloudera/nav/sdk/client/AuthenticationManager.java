@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Charsets;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.http.client.CookieStore;
+import org.apache.http.cookie.Cookie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Decides which requests carry the Basic credentials. With session
+ * authentication, the credentials are only sent until Navigator has
+ * established a session, whose cookie is then shared by all requests
+ * through the cookie store. Only the cookie named by
+ * {@link ClientConfig#getSessionCookieName()} counts as a session, other
+ * cookies, e.g. of a load balancer, are left alone. If Navigator does not
+ * set a session cookie in response to several authenticated requests in a
+ * row that were sent without one, sessions are considered unavailable and
+ * every request carries the credentials again.
+ */
+public class AuthenticationManager {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      AuthenticationManager.class);
+  private static final String AUTHORIZATION = "Authorization";
+  private static final String COOKIE = "Cookie";
+  private static final String SET_COOKIE = "Set-Cookie";
+  private static final int MAX_SESSION_MISSES = 3;
+
+  private final String basicAuthorization;
+  private final CookieStore cookieStore;
+  private final boolean sessionAuth;
+  private final String sessionCookieName;
+  private final AtomicLong authentications = new AtomicLong();
+  private final AtomicLong expiredSessions = new AtomicLong();
+  private final AtomicInteger sessionMisses = new AtomicInteger();
+  private volatile boolean sessionsUnavailable;
+
+  public AuthenticationManager(ClientConfig config, CookieStore cookieStore) {
+    String plainCreds = String.format("%s:%s", config.getUsername(),
+        config.getPassword());
+    this.basicAuthorization = "Basic " + new String(Base64.encodeBase64(
+        plainCreds.getBytes(Charsets.UTF_8)), Charsets.US_ASCII);
+    this.cookieStore = cookieStore;
+    this.sessionAuth = config.isSessionAuth();
+    this.sessionCookieName = config.getSessionCookieName();
+  }
+
+  /**
+   * @return true if requests may rely on a session, false if every request
+   *         must carry the credentials
+   */
+  public boolean isUsingSessions() {
+    return sessionAuth && !sessionsUnavailable;
+  }
+
+  /**
+   * @return true if the next request has to carry the credentials
+   */
+  public boolean needsCredentials() {
+    return !isUsingSessions() || !hasSession();
+  }
+
+  /**
+   * @return true if the cookie store holds an unexpired session cookie
+   */
+  public boolean hasSession() {
+    cookieStore.clearExpired(new Date());
+    for (Cookie cookie : cookieStore.getCookies()) {
+      if (sessionCookieName.equals(cookie.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Add the Basic credentials to the given request headers
+   */
+  public void addCredentials(HttpHeaders headers) {
+    headers.set(AUTHORIZATION, basicAuthorization);
+    authentications.incrementAndGet();
+  }
+
+  /**
+   * Remove any credentials from the given request headers
+   */
+  public void removeCredentials(HttpHeaders headers) {
+    headers.remove(AUTHORIZATION);
+  }
+
+  /**
+   * Record that a request carrying the credentials succeeded. A request that
+   * also carried a session cookie was accepted for that session, so it says
+   * nothing about whether Navigator establishes sessions. Otherwise, if the
+   * responses to this and the previous authenticated requests without a
+   * session all did not set the session cookie, Basic authentication is
+   * used from now on.
+   *
+   * @param requestHeaders headers of the request as it was sent, with its
+   *                       cookies
+   * @param responseHeaders headers of the successful response
+   */
+  public void authenticated(HttpHeaders requestHeaders,
+                            HttpHeaders responseHeaders) {
+    if (!isUsingSessions() || carriesSessionCookie(requestHeaders)) {
+      return;
+    }
+    if (setsSessionCookie(responseHeaders)) {
+      sessionMisses.set(0);
+    } else if (sessionMisses.incrementAndGet() == MAX_SESSION_MISSES) {
+      LOG.info("Navigator did not establish a session, using Basic " +
+          "authentication for every request");
+      sessionsUnavailable = true;
+    }
+  }
+
+  /**
+   * Drop the session cookie after Navigator rejected it, other cookies are
+   * kept
+   */
+  public void invalidateSession() {
+    expiredSessions.incrementAndGet();
+    synchronized (cookieStore) {
+      List<Cookie> cookies = cookieStore.getCookies();
+      cookieStore.clear();
+      for (Cookie cookie : cookies) {
+        if (!sessionCookieName.equals(cookie.getName())) {
+          cookieStore.addCookie(cookie);
+        }
+      }
+    }
+  }
+
+  private boolean carriesSessionCookie(HttpHeaders requestHeaders) {
+    List<String> headers = requestHeaders.get(COOKIE);
+    if (headers != null) {
+      for (String header : headers) {
+        for (String cookie : header.split(";")) {
+          String name = cookie.split("=", 2)[0].trim();
+          if (sessionCookieName.equals(name)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean setsSessionCookie(HttpHeaders responseHeaders) {
+    List<String> cookies = responseHeaders.get(SET_COOKIE);
+    if (cookies != null) {
+      for (String cookie : cookies) {
+        String name = cookie.split("=", 2)[0].trim();
+        if (sessionCookieName.equals(name)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  public CookieStore getCookieStore() {
+    return cookieStore;
+  }
+
+  /**
+   * @return number of requests sent with the credentials
+   */
+  public long getAuthenticationCount() {
+    return authentications.get();
+  }
+
+  /**
+   * @return number of sessions that Navigator rejected and that were
+   *         re-established
+   */
+  public long getExpiredSessionCount() {
+    return expiredSessions.get();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to Navigator after a number of consecutive failed
+ * attempts. While OPEN, requests are rejected immediately. Once the open
+ * period has passed the breaker is HALF_OPEN and lets a single trial request
+ * through; its outcome either closes the breaker or opens it again.
+ *
+ * A failure threshold of 0 disables the breaker, it then always stays CLOSED.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openNanos;
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAtNanos;
+  private boolean trialInFlight;
+
+  public CircuitBreaker(ClientConfig config) {
+    this(config.getCircuitBreakerFailureThreshold(),
+        config.getCircuitBreakerOpenMillis());
+  }
+
+  public CircuitBreaker(int failureThreshold, long openMillis) {
+    Preconditions.checkArgument(failureThreshold >= 0);
+    this.failureThreshold = failureThreshold;
+    this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+  }
+
+  /**
+   * @return true if a request may be sent now. A caller that is allowed must
+   *         report the outcome with {@link #recordSuccess()} or
+   *         {@link #recordFailure()}.
+   */
+  public synchronized boolean allowRequest() {
+    switch (getState()) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public synchronized void recordSuccess() {
+    consecutiveFailures = 0;
+    trialInFlight = false;
+    state = State.CLOSED;
+  }
+
+  public synchronized void recordFailure() {
+    if (failureThreshold == 0) {
+      return;
+    }
+    consecutiveFailures++;
+    if (trialInFlight || consecutiveFailures >= failureThreshold) {
+      trialInFlight = false;
+      state = State.OPEN;
+      openedAtNanos = nanoTime();
+    }
+  }
+
+  public synchronized State getState() {
+    if (state == State.OPEN && nanoTime() - openedAtNanos >= openNanos) {
+      state = State.HALF_OPEN;
+    }
+    return state;
+  }
+
+  /**
+   * @return number of failed attempts since the last success
+   */
+  public synchronized int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  @VisibleForTesting
+  long nanoTime() {
+    return System.nanoTime();
+  }
+}
@@ -23,6 +23,33 @@ import javax.net.ssl.TrustManager;
  */
 public class ClientConfig {
 
+  public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 20;
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+  public static final long DEFAULT_CONNECTION_IDLE_TIMEOUT_SECS = 60L;
+  public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 10;
+  public static final int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+  public static final long DEFAULT_RETRY_INITIAL_BACKOFF_MILLIS = 500L;
+  public static final long DEFAULT_RETRY_MAX_BACKOFF_MILLIS = 30000L;
+  public static final long DEFAULT_RETRY_MAX_ELAPSED_MILLIS = 120000L;
+  public static final String DEFAULT_RETRY_STATUS_CODES = "429,502,503,504";
+  public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = 30000L;
+  public static final int DEFAULT_CONCURRENCY_LIMIT_INITIAL = 4;
+  public static final int DEFAULT_CONCURRENCY_LIMIT_MIN = 1;
+  public static final int DEFAULT_CONCURRENCY_LIMIT_MAX =
+      DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+  public static final long DEFAULT_SOURCE_CACHE_TTL_MILLIS = 600000L;
+  public static final long DEFAULT_SOURCE_CACHE_REFRESH_AHEAD_MILLIS = 60000L;
+  public static final long DEFAULT_SOURCE_CACHE_MIN_REFRESH_MILLIS = 10000L;
+  public static final int DEFAULT_PARALLEL_EXTRACTION_THREADS = 4;
+  public static final int DEFAULT_PARALLEL_EXTRACTION_BUFFER_SIZE = 1000;
+  public static final int DEFAULT_CHECKPOINT_INTERVAL = 10000;
+  public static final int DEFAULT_MIN_PAGE_SIZE = 10;
+  public static final int DEFAULT_MAX_PAGE_SIZE = 10000;
+  public static final long DEFAULT_TARGET_PAGE_MILLIS = 2000L;
+  public static final long DEFAULT_TARGET_PAGE_BYTES = 4L * 1024 * 1024;
+  public static final int DEFAULT_DEDUP_EXPECTED_IDENTITIES = 1000000;
+  public static final String DEFAULT_SESSION_COOKIE_NAME = "JSESSIONID";
+
   private String navigatorUrl;
   private int apiVersion;
   private String applicationUrl;
@@ -37,6 +64,46 @@ public class ClientConfig {
   private String sslTrustStoreType;
   private String sslTrustStoreLocation;
   private String sslTrustStorePassword;
+  private int maxConnectionsTotal = DEFAULT_MAX_CONNECTIONS_TOTAL;
+  private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+  private long connectionIdleTimeoutSecs =
+      DEFAULT_CONNECTION_IDLE_TIMEOUT_SECS;
+  private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+  private Compression compression = Compression.NONE;
+  private boolean streamingResults;
+  private int retryMaxAttempts = DEFAULT_RETRY_MAX_ATTEMPTS;
+  private long retryInitialBackoffMillis = DEFAULT_RETRY_INITIAL_BACKOFF_MILLIS;
+  private long retryMaxBackoffMillis = DEFAULT_RETRY_MAX_BACKOFF_MILLIS;
+  private long retryMaxElapsedMillis = DEFAULT_RETRY_MAX_ELAPSED_MILLIS;
+  private String retryStatusCodes = DEFAULT_RETRY_STATUS_CODES;
+  private int circuitBreakerFailureThreshold = 0;
+  private long circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS;
+  private boolean adaptiveConcurrency;
+  private int concurrencyLimitInitial = DEFAULT_CONCURRENCY_LIMIT_INITIAL;
+  private int concurrencyLimitMin = DEFAULT_CONCURRENCY_LIMIT_MIN;
+  private int concurrencyLimitMax = DEFAULT_CONCURRENCY_LIMIT_MAX;
+  private boolean sessionAuth = true;
+  private long sourceCacheTtlMillis = DEFAULT_SOURCE_CACHE_TTL_MILLIS;
+  private long sourceCacheRefreshAheadMillis =
+      DEFAULT_SOURCE_CACHE_REFRESH_AHEAD_MILLIS;
+  private long sourceCacheMinRefreshMillis =
+      DEFAULT_SOURCE_CACHE_MIN_REFRESH_MILLIS;
+  private String transportProvider;
+  private int parallelExtractionThreads = DEFAULT_PARALLEL_EXTRACTION_THREADS;
+  private int parallelExtractionBufferSize =
+      DEFAULT_PARALLEL_EXTRACTION_BUFFER_SIZE;
+  private boolean parallelExtractionOrdered = true;
+  private int prefetchBatches = 0;
+  private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+  private boolean extractorRunIdPatterns;
+  private boolean serverFieldProjection;
+  private boolean adaptivePageSize;
+  private int minPageSize = DEFAULT_MIN_PAGE_SIZE;
+  private int maxPageSize = DEFAULT_MAX_PAGE_SIZE;
+  private long targetPageMillis = DEFAULT_TARGET_PAGE_MILLIS;
+  private long targetPageBytes = DEFAULT_TARGET_PAGE_BYTES;
+  private int dedupExpectedIdentities = DEFAULT_DEDUP_EXPECTED_IDENTITIES;
+  private String sessionCookieName = DEFAULT_SESSION_COOKIE_NAME;
 
   /**
    * @return Location of Navigator
@@ -190,4 +257,451 @@ public class ClientConfig {
   public void setSslTrustStoreType(String sslTrustStoreType) {
     this.sslTrustStoreType = sslTrustStoreType;
   }
+
+  /**
+   * @return maximum number of pooled connections to Navigator across all
+   *         routes
+   */
+  public int getMaxConnectionsTotal() {
+    return maxConnectionsTotal;
+  }
+
+  public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+    this.maxConnectionsTotal = maxConnectionsTotal;
+  }
+
+  /**
+   * @return maximum number of pooled connections to a single Navigator host
+   */
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  /**
+   * @return number of seconds a pooled connection may stay idle before it
+   *         is evicted and closed
+   */
+  public long getConnectionIdleTimeoutSecs() {
+    return connectionIdleTimeoutSecs;
+  }
+
+  public void setConnectionIdleTimeoutSecs(long connectionIdleTimeoutSecs) {
+    this.connectionIdleTimeoutSecs = connectionIdleTimeoutSecs;
+  }
+
+  /**
+   * @return maximum number of requests an AsyncNavApiClient sends to
+   *         Navigator concurrently. Further requests are queued.
+   */
+  public int getMaxInFlightRequests() {
+    return maxInFlightRequests;
+  }
+
+  public void setMaxInFlightRequests(int maxInFlightRequests) {
+    this.maxInFlightRequests = maxInFlightRequests;
+  }
+
+  /**
+   * @return content coding used to compress metadata written to Navigator.
+   *         Compressed responses are accepted for reads unless this is NONE.
+   */
+  public Compression getCompression() {
+    return compression;
+  }
+
+  public void setCompression(Compression compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * Whether paging results are parsed incrementally as they are consumed
+   * instead of materializing each batch in memory
+   */
+  public boolean isStreamingResults() {
+    return streamingResults;
+  }
+
+  public void setStreamingResults(boolean streamingResults) {
+    this.streamingResults = streamingResults;
+  }
+
+  /**
+   * @return maximum number of attempts of a request that failed with an
+   *         I/O error or a retryable status, 1 disables retries
+   */
+  public int getRetryMaxAttempts() {
+    return retryMaxAttempts;
+  }
+
+  public void setRetryMaxAttempts(int retryMaxAttempts) {
+    this.retryMaxAttempts = retryMaxAttempts;
+  }
+
+  /**
+   * @return upper bound of the randomized delay before the first retry. It
+   *         doubles with every further attempt.
+   */
+  public long getRetryInitialBackoffMillis() {
+    return retryInitialBackoffMillis;
+  }
+
+  public void setRetryInitialBackoffMillis(long retryInitialBackoffMillis) {
+    this.retryInitialBackoffMillis = retryInitialBackoffMillis;
+  }
+
+  /**
+   * @return cap of the delay between two attempts
+   */
+  public long getRetryMaxBackoffMillis() {
+    return retryMaxBackoffMillis;
+  }
+
+  public void setRetryMaxBackoffMillis(long retryMaxBackoffMillis) {
+    this.retryMaxBackoffMillis = retryMaxBackoffMillis;
+  }
+
+  /**
+   * @return time after the first attempt of a request after which it is
+   *         no longer retried
+   */
+  public long getRetryMaxElapsedMillis() {
+    return retryMaxElapsedMillis;
+  }
+
+  public void setRetryMaxElapsedMillis(long retryMaxElapsedMillis) {
+    this.retryMaxElapsedMillis = retryMaxElapsedMillis;
+  }
+
+  /**
+   * @return comma separated HTTP status codes that are retried. A whole
+   *         class of codes can be given as e.g. 5xx.
+   */
+  public String getRetryStatusCodes() {
+    return retryStatusCodes;
+  }
+
+  public void setRetryStatusCodes(String retryStatusCodes) {
+    this.retryStatusCodes = retryStatusCodes;
+  }
+
+  /**
+   * @return number of consecutive failed attempts after which requests fail
+   *         fast without contacting Navigator, 0 disables the circuit breaker
+   */
+  public int getCircuitBreakerFailureThreshold() {
+    return circuitBreakerFailureThreshold;
+  }
+
+  public void setCircuitBreakerFailureThreshold(
+      int circuitBreakerFailureThreshold) {
+    this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+  }
+
+  /**
+   * @return time requests fail fast once the circuit breaker opened, after
+   *         which a single trial request is let through
+   */
+  public long getCircuitBreakerOpenMillis() {
+    return circuitBreakerOpenMillis;
+  }
+
+  public void setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+    this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+  }
+
+  /**
+   * Whether the number of concurrent requests to Navigator is limited
+   * adaptively from observed response times and errors. See
+   * {@link ConcurrencyLimiter}.
+   */
+  public boolean isAdaptiveConcurrency() {
+    return adaptiveConcurrency;
+  }
+
+  public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+    this.adaptiveConcurrency = adaptiveConcurrency;
+  }
+
+  /**
+   * @return concurrency limit used before any response has been observed
+   */
+  public int getConcurrencyLimitInitial() {
+    return concurrencyLimitInitial;
+  }
+
+  public void setConcurrencyLimitInitial(int concurrencyLimitInitial) {
+    this.concurrencyLimitInitial = concurrencyLimitInitial;
+  }
+
+  /**
+   * @return lower bound of the adaptive concurrency limit
+   */
+  public int getConcurrencyLimitMin() {
+    return concurrencyLimitMin;
+  }
+
+  public void setConcurrencyLimitMin(int concurrencyLimitMin) {
+    this.concurrencyLimitMin = concurrencyLimitMin;
+  }
+
+  /**
+   * @return upper bound of the adaptive concurrency limit. Requests beyond
+   *         {@link #getMaxConnectionsPerRoute()} would wait for a pooled
+   *         connection, so it should not be set higher.
+   */
+  public int getConcurrencyLimitMax() {
+    return concurrencyLimitMax;
+  }
+
+  public void setConcurrencyLimitMax(int concurrencyLimitMax) {
+    this.concurrencyLimitMax = concurrencyLimitMax;
+  }
+
+  /**
+   * Whether the session established by the first authenticated request is
+   * reused by later requests instead of sending the credentials every time.
+   * Requests fall back to Basic authentication if Navigator does not
+   * establish sessions.
+   */
+  public boolean isSessionAuth() {
+    return sessionAuth;
+  }
+
+  public void setSessionAuth(boolean sessionAuth) {
+    this.sessionAuth = sessionAuth;
+  }
+
+  /**
+   * @return how long loaded Sources are used before they are reloaded from
+   *         Navigator, 0 to keep them until {@link NavApiCient#resetSources()}
+   */
+  public long getSourceCacheTtlMillis() {
+    return sourceCacheTtlMillis;
+  }
+
+  public void setSourceCacheTtlMillis(long sourceCacheTtlMillis) {
+    this.sourceCacheTtlMillis = sourceCacheTtlMillis;
+  }
+
+  /**
+   * @return how long before the Sources expire a background reload is
+   *         started, so lookups do not wait for Navigator. 0 disables it.
+   */
+  public long getSourceCacheRefreshAheadMillis() {
+    return sourceCacheRefreshAheadMillis;
+  }
+
+  public void setSourceCacheRefreshAheadMillis(
+      long sourceCacheRefreshAheadMillis) {
+    this.sourceCacheRefreshAheadMillis = sourceCacheRefreshAheadMillis;
+  }
+
+  /**
+   * @return how old the Sources must be before a lookup that finds no
+   *         matching Source reloads them. Lookups of unknown Sources within
+   *         that time fail without asking Navigator again.
+   */
+  public long getSourceCacheMinRefreshMillis() {
+    return sourceCacheMinRefreshMillis;
+  }
+
+  public void setSourceCacheMinRefreshMillis(
+      long sourceCacheMinRefreshMillis) {
+    this.sourceCacheMinRefreshMillis = sourceCacheMinRefreshMillis;
+  }
+
+  /**
+   * @return class name of a {@link NavTransportProvider} that creates the
+   *         underlying transport, e.g. one multiplexing requests over HTTP/2.
+   *         null for the default HTTP/1.1 {@link HttpTransport}.
+   */
+  public String getTransportProvider() {
+    return transportProvider;
+  }
+
+  public void setTransportProvider(String transportProvider) {
+    this.transportProvider = transportProvider;
+  }
+
+  /**
+   * @return number of extractorRunId partitions a
+   *         {@link ParallelMetadataResultIterator} pages concurrently
+   */
+  public int getParallelExtractionThreads() {
+    return parallelExtractionThreads;
+  }
+
+  public void setParallelExtractionThreads(int parallelExtractionThreads) {
+    this.parallelExtractionThreads = parallelExtractionThreads;
+  }
+
+  /**
+   * @return maximum number of results a
+   *         {@link ParallelMetadataResultIterator} holds that have been
+   *         fetched but not consumed yet, per partition if results are
+   *         delivered in partition order
+   */
+  public int getParallelExtractionBufferSize() {
+    return parallelExtractionBufferSize;
+  }
+
+  public void setParallelExtractionBufferSize(
+      int parallelExtractionBufferSize) {
+    this.parallelExtractionBufferSize = parallelExtractionBufferSize;
+  }
+
+  /**
+   * Whether a {@link ParallelMetadataResultIterator} returns the results in
+   * the order of the extractorRunId partitions, as a serial iterator does,
+   * or as soon as they are fetched
+   */
+  public boolean isParallelExtractionOrdered() {
+    return parallelExtractionOrdered;
+  }
+
+  public void setParallelExtractionOrdered(boolean parallelExtractionOrdered) {
+    this.parallelExtractionOrdered = parallelExtractionOrdered;
+  }
+
+  /**
+   * @return number of results batches a {@link MetadataResultIterator}
+   *         requests ahead in the background while the current one is
+   *         consumed, 0 to request each batch once the previous one has been
+   *         consumed. Not supported if results are streamed.
+   */
+  public int getPrefetchBatches() {
+    return prefetchBatches;
+  }
+
+  public void setPrefetchBatches(int prefetchBatches) {
+    this.prefetchBatches = prefetchBatches;
+  }
+
+  /**
+   * @return number of results after which a {@link MetadataResultIterator}
+   *         saves its checkpoint to its {@link CheckpointStore}
+   */
+  public int getCheckpointInterval() {
+    return checkpointInterval;
+  }
+
+  public void setCheckpointInterval(int checkpointInterval) {
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  /**
+   * Whether incremental extraction selects the extract iterations of each
+   * source with a single regular expression term instead of one term per
+   * iteration. Only enable it for servers that accept regular expression
+   * queries on extractorRunId, older servers reject them. Disabled by
+   * default.
+   */
+  public boolean isExtractorRunIdPatterns() {
+    return extractorRunIdPatterns;
+  }
+
+  public void setExtractorRunIdPatterns(boolean extractorRunIdPatterns) {
+    this.extractorRunIdPatterns = extractorRunIdPatterns;
+  }
+
+  /**
+   * Whether the fields selected by a {@link MetadataQuery} are sent to
+   * Navigator so that it only returns those fields. Otherwise the full
+   * results are requested and the projection is applied while parsing.
+   * Only enable it for servers that accept the fields parameter.
+   */
+  public boolean isServerFieldProjection() {
+    return serverFieldProjection;
+  }
+
+  public void setServerFieldProjection(boolean serverFieldProjection) {
+    this.serverFieldProjection = serverFieldProjection;
+  }
+
+  /**
+   * Whether paging iterators tune the number of results requested per
+   * page, see {@link PageSizeTuner}. The limit given to the iterator is the
+   * initial page size.
+   */
+  public boolean isAdaptivePageSize() {
+    return adaptivePageSize;
+  }
+
+  public void setAdaptivePageSize(boolean adaptivePageSize) {
+    this.adaptivePageSize = adaptivePageSize;
+  }
+
+  /**
+   * Smallest page size chosen by adaptive paging
+   */
+  public int getMinPageSize() {
+    return minPageSize;
+  }
+
+  public void setMinPageSize(int minPageSize) {
+    this.minPageSize = minPageSize;
+  }
+
+  /**
+   * Largest page size chosen by adaptive paging
+   */
+  public int getMaxPageSize() {
+    return maxPageSize;
+  }
+
+  public void setMaxPageSize(int maxPageSize) {
+    this.maxPageSize = maxPageSize;
+  }
+
+  /**
+   * Response time adaptive paging aims at for every page
+   */
+  public long getTargetPageMillis() {
+    return targetPageMillis;
+  }
+
+  public void setTargetPageMillis(long targetPageMillis) {
+    this.targetPageMillis = targetPageMillis;
+  }
+
+  /**
+   * Response size adaptive paging aims at for every page, 0 to only aim
+   * at the response time
+   */
+  public long getTargetPageBytes() {
+    return targetPageBytes;
+  }
+
+  public void setTargetPageBytes(long targetPageBytes) {
+    this.targetPageBytes = targetPageBytes;
+  }
+
+  /**
+   * Number of identities the set of a deduplicating iterator allocates
+   * space for up front, see {@link IdentitySet}
+   */
+  public int getDedupExpectedIdentities() {
+    return dedupExpectedIdentities;
+  }
+
+  public void setDedupExpectedIdentities(int dedupExpectedIdentities) {
+    this.dedupExpectedIdentities = dedupExpectedIdentities;
+  }
+
+  /**
+   * @return name of the cookie that holds the Navigator session, other
+   *         cookies set by Navigator or a proxy in front of it are not taken
+   *         for a session
+   */
+  public String getSessionCookieName() {
+    return sessionCookieName;
+  }
+
+  public void setSessionCookieName(String sessionCookieName) {
+    this.sessionCookieName = sessionCookieName;
+  }
 }
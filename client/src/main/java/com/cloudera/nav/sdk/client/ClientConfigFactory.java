@@ -40,6 +40,56 @@ public class ClientConfigFactory {
   public static final String DISABLE_SSL_VALIDATION = "disable_ssl_validation";
   public static final String SSL_KEYSTORE_LOCATION = "ssl_truststore_location";
   public static final String SSL_KEYSTORE_PASSWORD = "ssl_truststore_password";
+  public static final String MAX_CONNECTIONS_TOTAL = "max_connections_total";
+  public static final String MAX_CONNECTIONS_PER_ROUTE =
+      "max_connections_per_route";
+  public static final String CONNECTION_IDLE_TIMEOUT_SECS =
+      "connection_idle_timeout_secs";
+  public static final String MAX_IN_FLIGHT_REQUESTS = "max_in_flight_requests";
+  public static final String HTTP_COMPRESSION = "http_compression";
+  public static final String STREAMING_RESULTS = "streaming_results";
+  public static final String RETRY_MAX_ATTEMPTS = "retry_max_attempts";
+  public static final String RETRY_INITIAL_BACKOFF_MILLIS =
+      "retry_initial_backoff_ms";
+  public static final String RETRY_MAX_BACKOFF_MILLIS = "retry_max_backoff_ms";
+  public static final String RETRY_MAX_ELAPSED_MILLIS = "retry_max_elapsed_ms";
+  public static final String RETRY_STATUS_CODES = "retry_status_codes";
+  public static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD =
+      "circuit_breaker_failure_threshold";
+  public static final String CIRCUIT_BREAKER_OPEN_MILLIS =
+      "circuit_breaker_open_ms";
+  public static final String ADAPTIVE_CONCURRENCY = "adaptive_concurrency";
+  public static final String CONCURRENCY_LIMIT_INITIAL =
+      "concurrency_limit_initial";
+  public static final String CONCURRENCY_LIMIT_MIN = "concurrency_limit_min";
+  public static final String CONCURRENCY_LIMIT_MAX = "concurrency_limit_max";
+  public static final String SESSION_AUTH = "session_auth";
+  public static final String SOURCE_CACHE_TTL_MILLIS = "source_cache_ttl_ms";
+  public static final String SOURCE_CACHE_REFRESH_AHEAD_MILLIS =
+      "source_cache_refresh_ahead_ms";
+  public static final String SOURCE_CACHE_MIN_REFRESH_MILLIS =
+      "source_cache_min_refresh_ms";
+  public static final String TRANSPORT_PROVIDER = "transport_provider";
+  public static final String PARALLEL_EXTRACTION_THREADS =
+      "parallel_extraction_threads";
+  public static final String PARALLEL_EXTRACTION_BUFFER_SIZE =
+      "parallel_extraction_buffer_size";
+  public static final String PARALLEL_EXTRACTION_ORDERED =
+      "parallel_extraction_ordered";
+  public static final String PREFETCH_BATCHES = "prefetch_batches";
+  public static final String CHECKPOINT_INTERVAL = "checkpoint_interval";
+  public static final String EXTRACTOR_RUN_ID_PATTERNS =
+      "extractor_run_id_patterns";
+  public static final String SERVER_FIELD_PROJECTION =
+      "server_field_projection";
+  public static final String ADAPTIVE_PAGE_SIZE = "adaptive_page_size";
+  public static final String MIN_PAGE_SIZE = "min_page_size";
+  public static final String MAX_PAGE_SIZE = "max_page_size";
+  public static final String TARGET_PAGE_MILLIS = "target_page_millis";
+  public static final String TARGET_PAGE_BYTES = "target_page_bytes";
+  public static final String DEDUP_EXPECTED_IDENTITIES =
+      "dedup_expected_identities";
+  public static final String SESSION_COOKIE_NAME = "session_cookie_name";
 
   /**
    * Create a PluginConfiguration from the properties contained in the
@@ -67,6 +117,83 @@ public class ClientConfigFactory {
           null));
       config.setSSLTrustStorePassword(props.getString(SSL_KEYSTORE_PASSWORD,
           null));
+      config.setMaxConnectionsTotal(props.getInt(MAX_CONNECTIONS_TOTAL,
+          ClientConfig.DEFAULT_MAX_CONNECTIONS_TOTAL));
+      config.setMaxConnectionsPerRoute(props.getInt(MAX_CONNECTIONS_PER_ROUTE,
+          ClientConfig.DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+      config.setConnectionIdleTimeoutSecs(props.getLong(
+          CONNECTION_IDLE_TIMEOUT_SECS,
+          ClientConfig.DEFAULT_CONNECTION_IDLE_TIMEOUT_SECS));
+      config.setMaxInFlightRequests(props.getInt(MAX_IN_FLIGHT_REQUESTS,
+          ClientConfig.DEFAULT_MAX_IN_FLIGHT_REQUESTS));
+      config.setCompression(Compression.valueOf(
+          props.getString(HTTP_COMPRESSION, Compression.NONE.name())));
+      config.setStreamingResults(props.getBoolean(STREAMING_RESULTS, false));
+      config.setRetryMaxAttempts(props.getInt(RETRY_MAX_ATTEMPTS,
+          ClientConfig.DEFAULT_RETRY_MAX_ATTEMPTS));
+      config.setRetryInitialBackoffMillis(props.getLong(
+          RETRY_INITIAL_BACKOFF_MILLIS,
+          ClientConfig.DEFAULT_RETRY_INITIAL_BACKOFF_MILLIS));
+      config.setRetryMaxBackoffMillis(props.getLong(RETRY_MAX_BACKOFF_MILLIS,
+          ClientConfig.DEFAULT_RETRY_MAX_BACKOFF_MILLIS));
+      config.setRetryMaxElapsedMillis(props.getLong(RETRY_MAX_ELAPSED_MILLIS,
+          ClientConfig.DEFAULT_RETRY_MAX_ELAPSED_MILLIS));
+      config.setRetryStatusCodes(props.getString(RETRY_STATUS_CODES,
+          ClientConfig.DEFAULT_RETRY_STATUS_CODES));
+      config.setCircuitBreakerFailureThreshold(props.getInt(
+          CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+          0));
+      config.setCircuitBreakerOpenMillis(props.getLong(
+          CIRCUIT_BREAKER_OPEN_MILLIS,
+          ClientConfig.DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS));
+      config.setAdaptiveConcurrency(props.getBoolean(ADAPTIVE_CONCURRENCY,
+          false));
+      config.setConcurrencyLimitInitial(props.getInt(CONCURRENCY_LIMIT_INITIAL,
+          ClientConfig.DEFAULT_CONCURRENCY_LIMIT_INITIAL));
+      config.setConcurrencyLimitMin(props.getInt(CONCURRENCY_LIMIT_MIN,
+          ClientConfig.DEFAULT_CONCURRENCY_LIMIT_MIN));
+      config.setConcurrencyLimitMax(props.getInt(CONCURRENCY_LIMIT_MAX,
+          ClientConfig.DEFAULT_CONCURRENCY_LIMIT_MAX));
+      config.setSessionAuth(props.getBoolean(SESSION_AUTH, true));
+      config.setSourceCacheTtlMillis(props.getLong(SOURCE_CACHE_TTL_MILLIS,
+          ClientConfig.DEFAULT_SOURCE_CACHE_TTL_MILLIS));
+      config.setSourceCacheRefreshAheadMillis(props.getLong(
+          SOURCE_CACHE_REFRESH_AHEAD_MILLIS,
+          ClientConfig.DEFAULT_SOURCE_CACHE_REFRESH_AHEAD_MILLIS));
+      config.setSourceCacheMinRefreshMillis(props.getLong(
+          SOURCE_CACHE_MIN_REFRESH_MILLIS,
+          ClientConfig.DEFAULT_SOURCE_CACHE_MIN_REFRESH_MILLIS));
+      config.setTransportProvider(props.getString(TRANSPORT_PROVIDER, null));
+      config.setParallelExtractionThreads(props.getInt(
+          PARALLEL_EXTRACTION_THREADS,
+          ClientConfig.DEFAULT_PARALLEL_EXTRACTION_THREADS));
+      config.setParallelExtractionBufferSize(props.getInt(
+          PARALLEL_EXTRACTION_BUFFER_SIZE,
+          ClientConfig.DEFAULT_PARALLEL_EXTRACTION_BUFFER_SIZE));
+      config.setParallelExtractionOrdered(props.getBoolean(
+          PARALLEL_EXTRACTION_ORDERED,
+          true));
+      config.setPrefetchBatches(props.getInt(PREFETCH_BATCHES, 0));
+      config.setCheckpointInterval(props.getInt(CHECKPOINT_INTERVAL,
+          ClientConfig.DEFAULT_CHECKPOINT_INTERVAL));
+      config.setExtractorRunIdPatterns(props.getBoolean(
+          EXTRACTOR_RUN_ID_PATTERNS,
+          false));
+      config.setServerFieldProjection(props.getBoolean(SERVER_FIELD_PROJECTION,
+          false));
+      config.setAdaptivePageSize(props.getBoolean(ADAPTIVE_PAGE_SIZE, false));
+      config.setMinPageSize(props.getInt(MIN_PAGE_SIZE,
+          ClientConfig.DEFAULT_MIN_PAGE_SIZE));
+      config.setMaxPageSize(props.getInt(MAX_PAGE_SIZE,
+          ClientConfig.DEFAULT_MAX_PAGE_SIZE));
+      config.setTargetPageMillis(props.getLong(TARGET_PAGE_MILLIS,
+          ClientConfig.DEFAULT_TARGET_PAGE_MILLIS));
+      config.setTargetPageBytes(props.getLong(TARGET_PAGE_BYTES,
+          ClientConfig.DEFAULT_TARGET_PAGE_BYTES));
+      config.setDedupExpectedIdentities(props.getInt(DEDUP_EXPECTED_IDENTITIES,
+          ClientConfig.DEFAULT_DEDUP_EXPECTED_IDENTITIES));
+      config.setSessionCookieName(props.getString(SESSION_COOKIE_NAME,
+          ClientConfig.DEFAULT_SESSION_COOKIE_NAME));
       return config;
     } catch (ConfigurationException e) {
       throw Throwables.propagate(e);
@@ -93,6 +220,123 @@ public class ClientConfigFactory {
         props.get(SSL_KEYSTORE_LOCATION).toString() : null);
     config.setSSLTrustStorePassword(props.containsKey(SSL_KEYSTORE_PASSWORD) ?
         props.get(SSL_KEYSTORE_PASSWORD).toString() : null);
+    config.setMaxConnectionsTotal(props.containsKey(MAX_CONNECTIONS_TOTAL) ?
+        Integer.valueOf(props.get(MAX_CONNECTIONS_TOTAL).toString()) :
+        ClientConfig.DEFAULT_MAX_CONNECTIONS_TOTAL);
+    config.setMaxConnectionsPerRoute(
+        props.containsKey(MAX_CONNECTIONS_PER_ROUTE) ?
+        Integer.valueOf(props.get(MAX_CONNECTIONS_PER_ROUTE).toString()) :
+        ClientConfig.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    config.setConnectionIdleTimeoutSecs(
+        props.containsKey(CONNECTION_IDLE_TIMEOUT_SECS) ?
+        Long.valueOf(props.get(CONNECTION_IDLE_TIMEOUT_SECS).toString()) :
+        ClientConfig.DEFAULT_CONNECTION_IDLE_TIMEOUT_SECS);
+    config.setMaxInFlightRequests(props.containsKey(MAX_IN_FLIGHT_REQUESTS) ?
+        Integer.valueOf(props.get(MAX_IN_FLIGHT_REQUESTS).toString()) :
+        ClientConfig.DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+    config.setCompression(props.containsKey(HTTP_COMPRESSION) ?
+        Compression.valueOf(props.get(HTTP_COMPRESSION).toString()) :
+        Compression.NONE);
+    config.setStreamingResults(props.containsKey(STREAMING_RESULTS) ?
+        Boolean.valueOf(props.get(STREAMING_RESULTS).toString()) : false);
+    config.setRetryMaxAttempts(props.containsKey(RETRY_MAX_ATTEMPTS) ?
+        Integer.valueOf(props.get(RETRY_MAX_ATTEMPTS).toString()) :
+        ClientConfig.DEFAULT_RETRY_MAX_ATTEMPTS);
+    config.setRetryInitialBackoffMillis(
+        props.containsKey(RETRY_INITIAL_BACKOFF_MILLIS) ?
+        Long.valueOf(props.get(RETRY_INITIAL_BACKOFF_MILLIS).toString()) :
+        ClientConfig.DEFAULT_RETRY_INITIAL_BACKOFF_MILLIS);
+    config.setRetryMaxBackoffMillis(
+        props.containsKey(RETRY_MAX_BACKOFF_MILLIS) ?
+        Long.valueOf(props.get(RETRY_MAX_BACKOFF_MILLIS).toString()) :
+        ClientConfig.DEFAULT_RETRY_MAX_BACKOFF_MILLIS);
+    config.setRetryMaxElapsedMillis(
+        props.containsKey(RETRY_MAX_ELAPSED_MILLIS) ?
+        Long.valueOf(props.get(RETRY_MAX_ELAPSED_MILLIS).toString()) :
+        ClientConfig.DEFAULT_RETRY_MAX_ELAPSED_MILLIS);
+    config.setRetryStatusCodes(props.containsKey(RETRY_STATUS_CODES) ?
+        props.get(RETRY_STATUS_CODES).toString() :
+        ClientConfig.DEFAULT_RETRY_STATUS_CODES);
+    config.setCircuitBreakerFailureThreshold(
+        props.containsKey(CIRCUIT_BREAKER_FAILURE_THRESHOLD) ?
+        Integer.valueOf(
+            props.get(CIRCUIT_BREAKER_FAILURE_THRESHOLD).toString()) :
+        0);
+    config.setCircuitBreakerOpenMillis(
+        props.containsKey(CIRCUIT_BREAKER_OPEN_MILLIS) ?
+        Long.valueOf(props.get(CIRCUIT_BREAKER_OPEN_MILLIS).toString()) :
+        ClientConfig.DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS);
+    config.setAdaptiveConcurrency(props.containsKey(ADAPTIVE_CONCURRENCY) ?
+        Boolean.valueOf(props.get(ADAPTIVE_CONCURRENCY).toString()) : false);
+    config.setConcurrencyLimitInitial(
+        props.containsKey(CONCURRENCY_LIMIT_INITIAL) ?
+        Integer.valueOf(props.get(CONCURRENCY_LIMIT_INITIAL).toString()) :
+        ClientConfig.DEFAULT_CONCURRENCY_LIMIT_INITIAL);
+    config.setConcurrencyLimitMin(props.containsKey(CONCURRENCY_LIMIT_MIN) ?
+        Integer.valueOf(props.get(CONCURRENCY_LIMIT_MIN).toString()) :
+        ClientConfig.DEFAULT_CONCURRENCY_LIMIT_MIN);
+    config.setConcurrencyLimitMax(props.containsKey(CONCURRENCY_LIMIT_MAX) ?
+        Integer.valueOf(props.get(CONCURRENCY_LIMIT_MAX).toString()) :
+        ClientConfig.DEFAULT_CONCURRENCY_LIMIT_MAX);
+    config.setSessionAuth(props.containsKey(SESSION_AUTH) ?
+        Boolean.valueOf(props.get(SESSION_AUTH).toString()) : true);
+    config.setSourceCacheTtlMillis(props.containsKey(SOURCE_CACHE_TTL_MILLIS) ?
+        Long.valueOf(props.get(SOURCE_CACHE_TTL_MILLIS).toString()) :
+        ClientConfig.DEFAULT_SOURCE_CACHE_TTL_MILLIS);
+    config.setSourceCacheRefreshAheadMillis(
+        props.containsKey(SOURCE_CACHE_REFRESH_AHEAD_MILLIS) ?
+        Long.valueOf(props.get(SOURCE_CACHE_REFRESH_AHEAD_MILLIS).toString()) :
+        ClientConfig.DEFAULT_SOURCE_CACHE_REFRESH_AHEAD_MILLIS);
+    config.setSourceCacheMinRefreshMillis(
+        props.containsKey(SOURCE_CACHE_MIN_REFRESH_MILLIS) ?
+        Long.valueOf(props.get(SOURCE_CACHE_MIN_REFRESH_MILLIS).toString()) :
+        ClientConfig.DEFAULT_SOURCE_CACHE_MIN_REFRESH_MILLIS);
+    config.setTransportProvider(props.containsKey(TRANSPORT_PROVIDER) ?
+        props.get(TRANSPORT_PROVIDER).toString() : null);
+    config.setParallelExtractionThreads(
+        props.containsKey(PARALLEL_EXTRACTION_THREADS) ?
+        Integer.valueOf(props.get(PARALLEL_EXTRACTION_THREADS).toString()) :
+        ClientConfig.DEFAULT_PARALLEL_EXTRACTION_THREADS);
+    config.setParallelExtractionBufferSize(
+        props.containsKey(PARALLEL_EXTRACTION_BUFFER_SIZE) ?
+        Integer.valueOf(props.get(PARALLEL_EXTRACTION_BUFFER_SIZE).toString()) :
+        ClientConfig.DEFAULT_PARALLEL_EXTRACTION_BUFFER_SIZE);
+    config.setParallelExtractionOrdered(
+        props.containsKey(PARALLEL_EXTRACTION_ORDERED) ?
+        Boolean.valueOf(props.get(PARALLEL_EXTRACTION_ORDERED).toString()) :
+        true);
+    config.setPrefetchBatches(props.containsKey(PREFETCH_BATCHES) ?
+        Integer.valueOf(props.get(PREFETCH_BATCHES).toString()) : 0);
+    config.setCheckpointInterval(props.containsKey(CHECKPOINT_INTERVAL) ?
+        Integer.valueOf(props.get(CHECKPOINT_INTERVAL).toString()) :
+        ClientConfig.DEFAULT_CHECKPOINT_INTERVAL);
+    config.setExtractorRunIdPatterns(
+        props.containsKey(EXTRACTOR_RUN_ID_PATTERNS) ?
+        Boolean.valueOf(props.get(EXTRACTOR_RUN_ID_PATTERNS).toString()) :
+        false);
+    config.setServerFieldProjection(props.containsKey(SERVER_FIELD_PROJECTION) ?
+        Boolean.valueOf(props.get(SERVER_FIELD_PROJECTION).toString()) : false);
+    config.setAdaptivePageSize(props.containsKey(ADAPTIVE_PAGE_SIZE) ?
+        Boolean.valueOf(props.get(ADAPTIVE_PAGE_SIZE).toString()) : false);
+    config.setMinPageSize(props.containsKey(MIN_PAGE_SIZE) ?
+        Integer.valueOf(props.get(MIN_PAGE_SIZE).toString()) :
+        ClientConfig.DEFAULT_MIN_PAGE_SIZE);
+    config.setMaxPageSize(props.containsKey(MAX_PAGE_SIZE) ?
+        Integer.valueOf(props.get(MAX_PAGE_SIZE).toString()) :
+        ClientConfig.DEFAULT_MAX_PAGE_SIZE);
+    config.setTargetPageMillis(props.containsKey(TARGET_PAGE_MILLIS) ?
+        Long.valueOf(props.get(TARGET_PAGE_MILLIS).toString()) :
+        ClientConfig.DEFAULT_TARGET_PAGE_MILLIS);
+    config.setTargetPageBytes(props.containsKey(TARGET_PAGE_BYTES) ?
+        Long.valueOf(props.get(TARGET_PAGE_BYTES).toString()) :
+        ClientConfig.DEFAULT_TARGET_PAGE_BYTES);
+    config.setDedupExpectedIdentities(
+        props.containsKey(DEDUP_EXPECTED_IDENTITIES) ?
+        Integer.valueOf(props.get(DEDUP_EXPECTED_IDENTITIES).toString()) :
+        ClientConfig.DEFAULT_DEDUP_EXPECTED_IDENTITIES);
+    config.setSessionCookieName(props.containsKey(SESSION_COOKIE_NAME) ?
+        props.get(SESSION_COOKIE_NAME).toString() :
+        ClientConfig.DEFAULT_SESSION_COOKIE_NAME);
     return config;
   }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+/**
+ * Content coding used for HTTP bodies exchanged with Navigator.
+ * NONE sends and requests uncompressed bodies
+ * GZIP and DEFLATE compress written metadata with the given coding and
+ * accept compressed responses for reads
+ */
+public enum Compression {
+  NONE, GZIP, DEFLATE;
+
+  /**
+   * @return value of the Content-Encoding header for this coding
+   */
+  public String getContentEncoding() {
+    return name().toLowerCase();
+  }
+}
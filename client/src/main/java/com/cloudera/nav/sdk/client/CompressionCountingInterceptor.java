@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Counts the bytes of compressed responses. The {@link Compressed}
+ * interceptor is registered before the HttpClient content decoder and counts
+ * the compressed bytes, the {@link Uncompressed} one is registered after it
+ * and counts the decompressed bytes of the same response. HttpClient keeps a
+ * single interceptor per class, hence the two subclasses.
+ */
+abstract class CompressionCountingInterceptor
+    implements HttpResponseInterceptor {
+
+  private static final String COMPRESSED_RESPONSE =
+      CompressionCountingInterceptor.class.getName() + ".compressed";
+
+  protected final CompressionStats stats;
+
+  CompressionCountingInterceptor(CompressionStats stats) {
+    this.stats = stats;
+  }
+
+  protected abstract InputStream count(InputStream content);
+
+  static class Compressed extends CompressionCountingInterceptor {
+
+    Compressed(CompressionStats stats) {
+      super(stats);
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+      HttpEntity entity = response.getEntity();
+      if (entity != null && entity.getContentEncoding() != null) {
+        context.setAttribute(COMPRESSED_RESPONSE, Boolean.TRUE);
+        response.setEntity(new CountingEntity(entity));
+      }
+    }
+
+    @Override
+    protected InputStream count(InputStream content) {
+      return stats.countCompressedRead(content);
+    }
+  }
+
+  static class Uncompressed extends CompressionCountingInterceptor {
+
+    Uncompressed(CompressionStats stats) {
+      super(stats);
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+      HttpEntity entity = response.getEntity();
+      if (entity != null && Boolean.TRUE.equals(
+          context.removeAttribute(COMPRESSED_RESPONSE))) {
+        response.setEntity(new CountingEntity(entity));
+      }
+    }
+
+    @Override
+    protected InputStream count(InputStream content) {
+      return stats.countUncompressedRead(content);
+    }
+  }
+
+  private class CountingEntity extends HttpEntityWrapper {
+
+    CountingEntity(HttpEntity entity) {
+      super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return count(wrappedEntity.getContent());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      try (InputStream in = getContent()) {
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+          out.write(buffer, 0, n);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for compressed HTTP bodies exchanged with Navigator. Only bodies
+ * that were actually compressed are counted, so the ratio of compressed to
+ * uncompressed bytes reflects the savings on the wire.
+ */
+public class CompressionStats {
+
+  private final AtomicLong compressedBytesRead = new AtomicLong();
+  private final AtomicLong uncompressedBytesRead = new AtomicLong();
+  private final AtomicLong compressedBytesWritten = new AtomicLong();
+  private final AtomicLong uncompressedBytesWritten = new AtomicLong();
+
+  /**
+   * @return compressed response bytes received from Navigator
+   */
+  public long getCompressedBytesRead() {
+    return compressedBytesRead.get();
+  }
+
+  /**
+   * @return size of the compressed responses after decompression
+   */
+  public long getUncompressedBytesRead() {
+    return uncompressedBytesRead.get();
+  }
+
+  /**
+   * @return compressed request bytes sent to Navigator
+   */
+  public long getCompressedBytesWritten() {
+    return compressedBytesWritten.get();
+  }
+
+  /**
+   * @return size of the compressed requests before compression
+   */
+  public long getUncompressedBytesWritten() {
+    return uncompressedBytesWritten.get();
+  }
+
+  public InputStream countCompressedRead(InputStream in) {
+    return new CountingInputStream(in, compressedBytesRead);
+  }
+
+  public InputStream countUncompressedRead(InputStream in) {
+    return new CountingInputStream(in, uncompressedBytesRead);
+  }
+
+  public OutputStream countCompressedWritten(OutputStream out) {
+    return new CountingOutputStream(out, compressedBytesWritten);
+  }
+
+  public OutputStream countUncompressedWritten(OutputStream out) {
+    return new CountingOutputStream(out, uncompressedBytesWritten);
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+
+    private final AtomicLong counter;
+
+    CountingInputStream(InputStream in, AtomicLong counter) {
+      super(in);
+      this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b != -1) {
+        counter.incrementAndGet();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = in.read(b, off, len);
+      if (n > 0) {
+        counter.addAndGet(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(n);
+      counter.addAndGet(skipped);
+      return skipped;
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    private final AtomicLong counter;
+
+    CountingOutputStream(OutputStream out, AtomicLong counter) {
+      super(out);
+      this.counter = counter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      counter.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      counter.addAndGet(len);
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of concurrent requests to Navigator, adjusting the
+ * limit from the observed response times and errors. Callers beyond the
+ * limit wait in {@link #acquire()}.
+ *
+ * A successful response moves the limit along a gradient: the ratio of the
+ * long term average latency to the latency just observed. While Navigator
+ * keeps up, the ratio is around 1 and the limit grows by roughly its square
+ * root. Once latencies rise above the long term average, the ratio shrinks
+ * and so does the limit, down to half of it. A failed request cuts the limit
+ * multiplicatively. The limit always stays within the configured bounds.
+ */
+public class ConcurrencyLimiter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      ConcurrencyLimiter.class);
+
+  // latency increase over the long term average considered normal jitter
+  private static final double TOLERANCE = 1.5;
+  // share of a new limit estimate in the smoothed limit
+  private static final double SMOOTHING = 0.2;
+  // number of samples averaged by the long term latency
+  private static final int LONG_WINDOW = 100;
+  private static final double DROP_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private double limit;
+  private double longLatencyNanos;
+  private int inFlight;
+  private int queued;
+  private long acquired;
+  private long totalQueueNanos;
+  private long lastQueueNanos;
+
+  public ConcurrencyLimiter(ClientConfig config) {
+    this(config.getConcurrencyLimitInitial(), config.getConcurrencyLimitMin(),
+        config.getConcurrencyLimitMax());
+  }
+
+  public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    Preconditions.checkArgument(minLimit > 0 && minLimit <= maxLimit,
+        "Concurrency limits must satisfy 0 < min <= max");
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  /**
+   * Wait until a request may be sent. Every successful call must be followed
+   * by exactly one call to {@link #release(long, boolean)}.
+   */
+  public synchronized void acquire() throws InterruptedException {
+    long start = System.nanoTime();
+    queued++;
+    try {
+      while (inFlight >= getLimit()) {
+        wait();
+      }
+    } finally {
+      queued--;
+    }
+    inFlight++;
+    acquired++;
+    lastQueueNanos = System.nanoTime() - start;
+    totalQueueNanos += lastQueueNanos;
+  }
+
+  /**
+   * Report the outcome of a request sent after {@link #acquire()}
+   *
+   * @param latencyNanos time until Navigator responded
+   * @param failed whether the request failed or Navigator signalled overload
+   */
+  public synchronized void release(long latencyNanos, boolean failed) {
+    int limitBefore = getLimit();
+    // a request that did not use the whole limit tells nothing about
+    // whether a higher one would be sustained
+    boolean saturated = inFlight * 2 >= limitBefore;
+    inFlight--;
+    if (failed) {
+      limit = Math.max(minLimit, limit * DROP_RATIO);
+    } else if (latencyNanos > 0) {
+      longLatencyNanos = longLatencyNanos == 0 ? latencyNanos :
+          longLatencyNanos + (latencyNanos - longLatencyNanos) / LONG_WINDOW;
+      if (saturated) {
+        double gradient = Math.max(0.5, Math.min(1.0,
+            TOLERANCE * longLatencyNanos / latencyNanos));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        limit = limit * (1 - SMOOTHING) + estimate * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+      }
+    }
+    if (getLimit() != limitBefore) {
+      LOG.debug("Concurrency limit changed from {} to {}", limitBefore,
+          getLimit());
+    }
+    notifyAll();
+  }
+
+  /**
+   * @return number of requests currently allowed to be in flight
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * @return number of requests currently in flight
+   */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return number of requests waiting for the limit
+   */
+  public synchronized int getQueued() {
+    return queued;
+  }
+
+  /**
+   * @return time the most recent request waited for the limit
+   */
+  public synchronized long getLastQueueTimeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(lastQueueNanos);
+  }
+
+  /**
+   * @return average time requests waited for the limit
+   */
+  public synchronized double getAverageQueueTimeMillis() {
+    return acquired == 0 ? 0.0 :
+        (double) totalQueueNanos / acquired / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * @return number of requests admitted so far
+   */
+  public synchronized long getAcquiredCount() {
+    return acquired;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Iterator over entities or relations that skips every result whose
+ * identity was already returned. An incremental extraction can return the
+ * same result more than once, e.g. when it matches extractorRunIds in
+ * different partitions of the query.
+ *
+ * The identities returned so far are kept in an {@link IdentitySet}.
+ * Results without an identity are always returned. Closing the iterator
+ * closes the underlying iterator if it is Closeable.
+ */
+public class DeduplicatingIterator
+    extends AbstractIterator<Map<String, Object>> implements Closeable {
+
+  private static final String IDENTITY = "identity";
+
+  private final Iterator<Map<String, Object>> results;
+  private final IdentitySet identities;
+  private long duplicates;
+
+  public DeduplicatingIterator(Iterator<Map<String, Object>> results,
+                               IdentitySet identities) {
+    this.results = results;
+    this.identities = identities;
+  }
+
+  @Override
+  protected Map<String, Object> computeNext() {
+    while (results.hasNext()) {
+      Map<String, Object> result = results.next();
+      Object identity = result.get(IDENTITY);
+      if (identity == null || identities.add(identity.toString())) {
+        return result;
+      }
+      duplicates++;
+    }
+    return endOfData();
+  }
+
+  /**
+   * @return number of results skipped so far
+   */
+  public long getDuplicates() {
+    return duplicates;
+  }
+
+  public IdentitySet getIdentities() {
+    return identities;
+  }
+
+  @Override
+  public void close() {
+    if (results instanceof Closeable) {
+      try {
+        ((Closeable) results).close();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+}
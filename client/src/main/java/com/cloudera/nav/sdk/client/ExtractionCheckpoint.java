@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Position of a {@link MetadataResultIterator}, from which an iterator over
+ * the same query and extractorRunIds continues without requesting the
+ * batches that were already consumed again.
+ *
+ * It consists of the index of the extractorRunId partition, the cursorMark
+ * of the batch being consumed, the number of results of that batch that
+ * were already returned and the total number of results returned.
+ */
+public class ExtractionCheckpoint {
+
+  private final int partition;
+  private final String cursorMark;
+  private final int offset;
+  private final long delivered;
+
+  @JsonCreator
+  public ExtractionCheckpoint(@JsonProperty("partition") int partition,
+                              @JsonProperty("cursorMark") String cursorMark,
+                              @JsonProperty("offset") int offset,
+                              @JsonProperty("delivered") long delivered) {
+    Preconditions.checkArgument(partition >= 0 && offset >= 0 &&
+        delivered >= 0, "Invalid checkpoint");
+    this.partition = partition;
+    this.cursorMark = Preconditions.checkNotNull(cursorMark);
+    this.offset = offset;
+    this.delivered = delivered;
+  }
+
+  /**
+   * @return index of the extractorRunId partition being consumed
+   */
+  public int getPartition() {
+    return partition;
+  }
+
+  /**
+   * @return cursorMark with which the batch being consumed was requested
+   */
+  public String getCursorMark() {
+    return cursorMark;
+  }
+
+  /**
+   * @return number of results of the batch that were already returned
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return total number of results returned
+   */
+  public long getDelivered() {
+    return delivered;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ExtractionCheckpoint)) {
+      return false;
+    }
+    ExtractionCheckpoint other = (ExtractionCheckpoint) o;
+    return partition == other.partition && offset == other.offset &&
+        delivered == other.delivered && cursorMark.equals(other.cursorMark);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(partition, cursorMark, offset, delivered);
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+        .add("partition", partition)
+        .add("cursorMark", cursorMark)
+        .add("offset", offset)
+        .add("delivered", delivered)
+        .toString();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Stores the checkpoint as JSON in a local file. The checkpoint is written
+ * to a temporary file that replaces the previous one, so a crash while it is
+ * saved leaves the previous checkpoint intact.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+  private final Path path;
+  private final Path tempPath;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public FileCheckpointStore(File file) {
+    Preconditions.checkNotNull(file);
+    this.path = file.toPath();
+    this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+  }
+
+  @Override
+  public ExtractionCheckpoint load() {
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try {
+      return mapper.readValue(path.toFile(), ExtractionCheckpoint.class);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  public void save(ExtractionCheckpoint checkpoint) {
+    try {
+      mapper.writeValue(tempPath.toFile(), checkpoint);
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  public void clear() {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Default {@link NavTransport}. Requests are sent over a pool of keep-alive
+ * connections, so the transport should be closed once it is no longer
+ * needed. They are authenticated by an {@link AuthenticationManager}, with
+ * the session cookies of all requests kept in a single cookie store.
+ */
+public class HttpTransport implements NavTransport {
+
+  private final ClientConfig config;
+  private final boolean isSSL;
+  private final SSLContext sslContext;
+  private final HostnameVerifier hostnameVerifier;
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CompressionStats compressionStats;
+  private final CloseableHttpClient httpClient;
+  private final CookieStore cookieStore;
+  private final AuthenticationManager authManager;
+  private final HttpComponentsClientHttpRequestFactory requestFactory;
+
+  public HttpTransport(ClientConfig config) {
+    this(config, new BasicCookieStore());
+  }
+
+  @VisibleForTesting
+  HttpTransport(ClientConfig config, CookieStore cookieStore) {
+    this.config = config;
+    this.isSSL = SSLUtils.isSSL(config.getNavigatorUrl());
+    this.sslContext = isSSL ? SSLUtils.getSSLContext(config) : null;
+    this.hostnameVerifier = isSSL ? SSLUtils.getHostnameVerifier(config) : null;
+    this.connectionManager = newConnectionManager();
+    this.compressionStats = new CompressionStats();
+    this.cookieStore = cookieStore;
+    this.authManager = new AuthenticationManager(config, cookieStore);
+    this.httpClient = newHttpClient();
+    this.requestFactory = new HttpComponentsClientHttpRequestFactory(
+        httpClient);
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod)
+      throws IOException {
+    if (authManager.isUsingSessions()) {
+      return new SessionRequest(uri, httpMethod);
+    }
+    ClientHttpRequest request = requestFactory.createRequest(uri, httpMethod);
+    authManager.addCredentials(request.getHeaders());
+    return request;
+  }
+
+  @Override
+  public String getApiUrl() {
+    String url = config.getNavigatorUrl();
+    return url + (url.endsWith("/") ? "" : "/") + "api/v" +
+        String.valueOf(config.getApiVersion());
+  }
+
+  /**
+   * Statistics of the pooled connections to Navigator. The number of leased,
+   * available and pending connections can be used to size the pool via
+   * {@link ClientConfig#setMaxConnectionsTotal(int)} and
+   * {@link ClientConfig#setMaxConnectionsPerRoute(int)}.
+   *
+   * @return current totals across all routes
+   */
+  public PoolStats getConnectionPoolStats() {
+    return connectionManager.getTotalStats();
+  }
+
+  /**
+   * @return byte counts of compressed responses read through this transport
+   */
+  public CompressionStats getCompressionStats() {
+    return compressionStats;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> type) {
+    return type.isInstance(this) ? type.cast(this) : null;
+  }
+
+  public AuthenticationManager getAuthenticationManager() {
+    return authManager;
+  }
+
+  public ClientConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * Close all pooled connections and stop the idle connection evictor
+   */
+  @Override
+  public void close() {
+    try {
+      httpClient.close();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private CloseableHttpClient newHttpClient() {
+    HttpClientBuilder builder = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultCookieStore(cookieStore)
+        .evictExpiredConnections()
+        .evictIdleConnections(config.getConnectionIdleTimeoutSecs(),
+            TimeUnit.SECONDS);
+    if (!config.isSessionAuth()) {
+      builder.disableCookieManagement();
+    }
+    if (config.getCompression() == null ||
+        config.getCompression() == Compression.NONE) {
+      builder.disableContentCompression();
+    } else {
+      // advertise gzip and deflate, the responses are decoded transparently
+      // between the two counting interceptors
+      builder.addInterceptorFirst(
+          new CompressionCountingInterceptor.Compressed(compressionStats));
+      builder.addInterceptorLast(
+          new CompressionCountingInterceptor.Uncompressed(compressionStats));
+    }
+    return builder.build();
+  }
+
+  private PoolingHttpClientConnectionManager newConnectionManager() {
+    RegistryBuilder<ConnectionSocketFactory> registryBuilder =
+        RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory());
+    if (isSSL) {
+      registryBuilder.register("https",
+          new SSLConnectionSocketFactory(sslContext, hostnameVerifier));
+    }
+    Registry<ConnectionSocketFactory> registry = registryBuilder.build();
+    PoolingHttpClientConnectionManager manager =
+        new PoolingHttpClientConnectionManager(registry);
+    manager.setMaxTotal(config.getMaxConnectionsTotal());
+    manager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+    return manager;
+  }
+
+  /**
+   * Request relying on the shared session. It is sent again with the
+   * credentials if Navigator rejects the session.
+   */
+  private class SessionRequest extends ReplayableRequest {
+
+    SessionRequest(URI uri, HttpMethod method) {
+      super(uri, method);
+    }
+
+    @Override
+    protected ClientHttpResponse executeReplayable() throws IOException {
+      boolean credentials = authManager.needsCredentials();
+      HttpClientContext context = HttpClientContext.create();
+      ClientHttpResponse response = send(credentials, context);
+      if (!credentials &&
+          response.getRawStatusCode() == HttpStatus.UNAUTHORIZED.value()) {
+        response.close();
+        authManager.invalidateSession();
+        credentials = true;
+        context = HttpClientContext.create();
+        response = send(true, context);
+      }
+      if (credentials && response.getRawStatusCode() <
+          HttpStatus.BAD_REQUEST.value()) {
+        // the cookies are added when the request goes out, so it may carry
+        // a session stored by a concurrent request after the decision above
+        authManager.authenticated(sentHeaders(context),
+            response.getHeaders());
+      }
+      return response;
+    }
+
+    private ClientHttpResponse send(boolean credentials,
+                                    HttpClientContext context)
+        throws IOException {
+      if (credentials) {
+        authManager.addCredentials(getHeaders());
+      } else {
+        authManager.removeCredentials(getHeaders());
+      }
+      return send(new ContextRequestFactory(httpClient, context));
+    }
+
+    private HttpHeaders sentHeaders(HttpClientContext context) {
+      HttpHeaders headers = new HttpHeaders();
+      HttpRequest sent = context.getRequest();
+      if (sent != null) {
+        for (Header header : sent.getAllHeaders()) {
+          headers.add(header.getName(), header.getValue());
+        }
+      }
+      return headers;
+    }
+  }
+
+  /**
+   * Request factory executing its requests in the given context, in which
+   * HttpClient records each request as it was sent
+   */
+  private static class ContextRequestFactory
+      extends HttpComponentsClientHttpRequestFactory {
+
+    private final HttpContext context;
+
+    ContextRequestFactory(HttpClient httpClient, HttpContext context) {
+      super(httpClient);
+      this.context = context;
+    }
+
+    @Override
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+      return context;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.cloudera.nav.sdk.model.Identity;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+
+/**
+ * Memory-bounded set of entity and relation identities.
+ *
+ * Identities are stored as packed 128-bit values in a primitive open
+ * addressing table with linear probing, i.e. 16 bytes per slot instead of
+ * the 100+ bytes of a String in a HashSet. The table holds up to 3/4 of its
+ * slots before it grows by half, so the expected number of identities
+ * determines the footprint up front. MD5 identities in lower case hex, as
+ * generated by Navigator and the SDK, are packed as they are; any other
+ * identity is packed as its 128-bit murmur3 hash, so that two such
+ * identities could collide, albeit with negligible probability.
+ *
+ * Not thread safe.
+ */
+public class IdentitySet {
+
+  private static final double MAX_LOAD = 0.75;
+  private static final int MAX_SLOTS = (Integer.MAX_VALUE - 8) / 2;
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  // high and low half of every slot, (0, 0) marks an empty slot
+  private long[] table;
+  private int slots;
+  private int size;
+  private boolean containsZero;
+
+  /**
+   * @param expectedSize number of identities to allocate space for
+   */
+  public IdentitySet(int expectedSize) {
+    Preconditions.checkArgument(expectedSize >= 0,
+        "Expected size must not be negative");
+    this.slots = slotsFor(Math.max(expectedSize, 16));
+    this.table = new long[2 * slots];
+  }
+
+  private static int slotsFor(long size) {
+    return (int) Math.min(MAX_SLOTS, (long) Math.ceil(size / MAX_LOAD));
+  }
+
+  /**
+   * @return true if the identity was not in the set yet
+   */
+  public boolean add(String identity) {
+    if (Identity.isValid(identity)) {
+      return add(Identity.parse(identity));
+    }
+    byte[] hash = HASH.hashString(identity, Charsets.UTF_8).asBytes();
+    return add(
+        Longs.fromBytes(hash[0], hash[1], hash[2], hash[3],
+            hash[4], hash[5], hash[6], hash[7]),
+        Longs.fromBytes(hash[8], hash[9], hash[10], hash[11],
+            hash[12], hash[13], hash[14], hash[15]));
+  }
+
+  /**
+   * @return true if the identity was not in the set yet
+   */
+  public boolean add(Identity identity) {
+    return add(identity.getHigh(), identity.getLow());
+  }
+
+  /**
+   * @return true if the 128-bit value was not in the set yet
+   */
+  public boolean add(long high, long low) {
+    if (high == 0 && low == 0) {
+      boolean added = !containsZero;
+      containsZero = true;
+      size += added ? 1 : 0;
+      return added;
+    }
+    int i = indexOf(high, low, slots);
+    while (table[2 * i] != 0 || table[2 * i + 1] != 0) {
+      if (table[2 * i] == high && table[2 * i + 1] == low) {
+        return false;
+      }
+      i = i + 1 == slots ? 0 : i + 1;
+    }
+    table[2 * i] = high;
+    table[2 * i + 1] = low;
+    if (++size > slots * MAX_LOAD) {
+      grow();
+    }
+    return true;
+  }
+
+  /**
+   * @return number of identities in the set
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return bytes allocated for the table
+   */
+  public long getAllocatedBytes() {
+    return 8L * table.length;
+  }
+
+  private void grow() {
+    Preconditions.checkState(slots < MAX_SLOTS,
+        "Identity set is full at %s identities", size);
+    long[] old = table;
+    slots = (int) Math.min(MAX_SLOTS, (long) slots * 3 / 2 + 1);
+    table = new long[2 * slots];
+    for (int j = 0; j < old.length; j += 2) {
+      if (old[j] != 0 || old[j + 1] != 0) {
+        int i = indexOf(old[j], old[j + 1], slots);
+        while (table[2 * i] != 0 || table[2 * i + 1] != 0) {
+          i = i + 1 == slots ? 0 : i + 1;
+        }
+        table[2 * i] = old[j];
+        table[2 * i + 1] = old[j + 1];
+      }
+    }
+  }
+
+  /**
+   * Map the value to a slot without a division, see Lemire's fast
+   * alternative to the modulo reduction
+   */
+  private static int indexOf(long high, long low, int slots) {
+    long hash = high ^ low;
+    long bits = (hash ^ (hash >>> 32)) & 0xffffffffL;
+    return (int) ((bits * slots) >>> 32);
+  }
+}
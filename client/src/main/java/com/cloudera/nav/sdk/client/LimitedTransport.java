@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * {@link NavTransport} that admits requests through a
+ * {@link ConcurrencyLimiter}. A request holds its slot from the time it is
+ * sent until its response is closed, the time to the response status is
+ * reported to the limiter. I/O errors, 429 and 5xx responses are reported
+ * as failures.
+ */
+public class LimitedTransport implements NavTransport {
+
+  private final NavTransport delegate;
+  private final ConcurrencyLimiter limiter;
+
+  public LimitedTransport(NavTransport delegate, ConcurrencyLimiter limiter) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+    this.limiter = Preconditions.checkNotNull(limiter);
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod)
+      throws IOException {
+    return new LimitedRequest(delegate.createRequest(uri, httpMethod));
+  }
+
+  @Override
+  public String getApiUrl() {
+    return delegate.getApiUrl();
+  }
+
+  public NavTransport getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> type) {
+    return type.isInstance(this) ? type.cast(this) : delegate.unwrap(type);
+  }
+
+  public ConcurrencyLimiter getLimiter() {
+    return limiter;
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  private class LimitedRequest implements ClientHttpRequest {
+
+    private final ClientHttpRequest request;
+
+    LimitedRequest(ClientHttpRequest request) {
+      this.request = request;
+    }
+
+    @Override
+    public ClientHttpResponse execute() throws IOException {
+      try {
+        limiter.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "Interrupted while waiting for the concurrency limit");
+      }
+      long start = System.nanoTime();
+      ClientHttpResponse response = null;
+      try {
+        response = request.execute();
+        int status = response.getRawStatusCode();
+        return new LimitedResponse(response, System.nanoTime() - start,
+            status == HttpStatus.TOO_MANY_REQUESTS.value() || status >= 500);
+      } catch (IOException | RuntimeException e) {
+        if (response != null) {
+          response.close();
+        }
+        limiter.release(System.nanoTime() - start, true);
+        throw e;
+      }
+    }
+
+    @Override
+    public OutputStream getBody() throws IOException {
+      return request.getBody();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return request.getHeaders();
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+      return request.getMethod();
+    }
+
+    @Override
+    public URI getURI() {
+      return request.getURI();
+    }
+  }
+
+  private class LimitedResponse implements ClientHttpResponse {
+
+    private final ClientHttpResponse response;
+    private final long latencyNanos;
+    private final boolean failed;
+    private boolean released;
+
+    LimitedResponse(ClientHttpResponse response, long latencyNanos,
+                    boolean failed) {
+      this.response = response;
+      this.latencyNanos = latencyNanos;
+      this.failed = failed;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+      return response.getStatusCode();
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+      return response.getRawStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return response.getStatusText();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      return response.getBody();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return response.getHeaders();
+    }
+
+    @Override
+    public void close() {
+      try {
+        response.close();
+      } finally {
+        synchronized (this) {
+          if (!released) {
+            released = true;
+            limiter.release(latencyNanos, failed);
+          }
+        }
+      }
+    }
+  }
+}
@@ -30,6 +30,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A simple example class to extract entities and relations via the overloaded
@@ -43,9 +45,16 @@ import org.apache.commons.lang.StringUtils;
  * The marker isn't designed to be used public API. Under the hood it is
  * composed of extractorRunId's that is incremented by the server every time
  * it reads additional metadata from Hadoop services.
+ *
+ * All markers of a call are computed from a single snapshot of the Sources,
+ * so they describe the same moment. Callers running several extractions for
+ * the same marker window can load the snapshot once with
+ * {@link #getSourceSnapshot()} and pass it to each of them.
  */
 public class MetadataExtractor {
 
+  private static final Logger LOG =
+      LoggerFactory.getLogger(MetadataExtractor.class);
   private NavApiCient client;
   private static final String DEFAULT_QUERY= "identity:*";
   private static final Integer DEFAULT_LIMIT = 100;
@@ -103,45 +112,122 @@ public class MetadataExtractor {
                                            String endMarkerRep,
                                            String entitiesQuery,
                                            String relationsQuery) {
+    return extractMetadata(getSourceSnapshot(), startMarkerRep, endMarkerRep,
+        entitiesQuery, relationsQuery);
+  }
+
+  /**
+   * {@link #extractMetadata(String, String, String, String)} with the
+   * current state of the Sources taken from the given snapshot instead of
+   * loading it from Navigator
+   *
+   * @param sources snapshot from {@link #getSourceSnapshot()}
+   * @param startMarkerRep String from previous extractMetadata call
+   * @param endMarkerRep String marker to extract up to, null for the
+   *                     snapshot's state
+   * @param entitiesQuery Solr query string for specifying entities
+   * @param relationsQuery Solr query string for specifying relations
+   */
+  public MetadataResultSet extractMetadata(SourceRegistry.Snapshot sources,
+                                           String startMarkerRep,
+                                           String endMarkerRep,
+                                           String entitiesQuery,
+                                           String relationsQuery) {
+    return extractMetadata(sources, startMarkerRep, endMarkerRep,
+        entitiesQuery, relationsQuery, null, null);
+  }
+
+  /**
+   * {@link #extractMetadata(String, String, String, String)} that only
+   * returns the selected fields of every entity and relation. Projecting
+   * away unused fields reduces the size of every result held in memory,
+   * and of the responses if the server supports it, see
+   * {@link ClientConfig#isServerFieldProjection()}.
+   *
+   * @param entityFields fields of the entities to return, null for all
+   * @param relationFields fields of the relations to return, null for all
+   */
+  public MetadataResultSet extractMetadata(String startMarkerRep,
+                                           String endMarkerRep,
+                                           String entitiesQuery,
+                                           String relationsQuery,
+                                           Collection<String> entityFields,
+                                           Collection<String> relationFields) {
+    return extractMetadata(getSourceSnapshot(), startMarkerRep, endMarkerRep,
+        entitiesQuery, relationsQuery, entityFields, relationFields);
+  }
+
+  /**
+   * {@link #extractMetadata(SourceRegistry.Snapshot, String, String, String,
+   * String)} that only returns the selected fields of every entity and
+   * relation
+   *
+   * @param entityFields fields of the entities to return, null for all
+   * @param relationFields fields of the relations to return, null for all
+   */
+  public MetadataResultSet extractMetadata(SourceRegistry.Snapshot sources,
+                                           String startMarkerRep,
+                                           String endMarkerRep,
+                                           String entitiesQuery,
+                                           String relationsQuery,
+                                           Collection<String> entityFields,
+                                           Collection<String> relationFields) {
     try {
       TypeReference<Map<String, Long>> typeRef =
           new TypeReference<Map<String, Long>>(){};
       Iterable<String> extractorQuery;
+      long savedQueries = 0L;
       Map<String, Long> endMarker;
+      Map<String, Long> currentMarker = getNavMarker(sources, true);
       if(StringUtils.isEmpty(startMarkerRep) && StringUtils.isEmpty(endMarkerRep)){
         extractorQuery = Lists.newArrayList("*");
       } else {
         Map<String, Long> startMarker;
         if(StringUtils.isEmpty(startMarkerRep)) {
-          startMarker = getNavMarker(false);
+          startMarker = getNavMarker(sources, false);
         } else {
           startMarker = new ObjectMapper().readValue(startMarkerRep, typeRef);
         }
         if(StringUtils.isEmpty(endMarkerRep)) {
-          endMarker = getNavMarker(true);
+          endMarker = currentMarker;
         } else {
           endMarker = new ObjectMapper().readValue(endMarkerRep, typeRef);
         }
-        extractorQuery = getExtractorQueryList(startMarker, endMarker);
+        List<String> runIds = getExtractorQueryList(startMarker, endMarker);
+        savedQueries = numQueries(countIterations(startMarker, endMarker)) -
+            numQueries(runIds.size());
+        extractorQuery = runIds;
       }
-      String currentMarkerRep = new ObjectMapper().writeValueAsString(getNavMarker(true));
-      return aggUpdatedResults(currentMarkerRep, extractorQuery, entitiesQuery, relationsQuery);
+      String currentMarkerRep = new ObjectMapper().writeValueAsString(
+          currentMarker);
+      return aggUpdatedResults(currentMarkerRep, extractorQuery, entitiesQuery,
+          relationsQuery, entityFields, relationFields, savedQueries);
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
   }
 
+  /**
+   * Load the current state of all Sources from Navigator in a single request
+   *
+   * @return snapshot that can be passed to several extractions
+   */
+  public SourceRegistry.Snapshot getSourceSnapshot() {
+    return new SourceRegistry.Snapshot(client.getAllSources(),
+        System.nanoTime());
+  }
+
   /**
    * Generate marker from each source and its sourceExtractIteration that
    * can be used to form extractorRunIds
    *
    * @return Map of sourceId to its to extractIteration
    */
-  private Map<String, Long> getNavMarker(boolean current) {
-    Collection<Source> sources = client.getAllSources();
+  private Map<String, Long> getNavMarker(SourceRegistry.Snapshot sources,
+                                         boolean current) {
     HashMap<String, Long> newMarker = Maps. newHashMap();
 
-    for (Source source : sources) {
+    for (Source source : sources.getSources()) {
       String id = source.getIdentity();
       Long sourceExtractIteration = !current ? 0L :
           source.getSourceExtractIteration() != null ?
@@ -153,24 +239,67 @@ public class MetadataExtractor {
 
   /**
    * Returns an iterable of all possible extractorRunIds in between the extraction
-   * states specified by marker m1 and marker m2.
+   * states specified by marker m1 and marker m2. Sources that are missing
+   * from m1 were added since, all their extractions are included.
+   *
+   * If {@link ClientConfig#isExtractorRunIdPatterns()} is enabled, the
+   * iterations of a source are given as a single pattern term, see
+   * {@link QueryUtils#buildExtractorRunIdPattern(String, long, long)}.
    *
    * @param m1 Marker for past extraction state
    * @param m2 Marker for later(current) extraction state
-   * @return Iterable of possible extractorRunIds to be used in queries
+   * @return List of possible extractorRunIds to be used in queries
    */
-  private Iterable<String> getExtractorQueryList(Map<String, Long> m1,
+  private List<String> getExtractorQueryList(Map<String, Long> m1,
                                                  Map<String, Long> m2) {
+    boolean patterns = client.getConfig() != null &&
+        client.getConfig().isExtractorRunIdPatterns();
     List<String> runIdList= Lists.newArrayList();
-    for (String key: m1.keySet()) {
-      for (long i=m1.get(key); i<(m2.get(key)+1); i++) {
-        String possible = key + "##" + Long.toString(i);
-        runIdList.add(possible);
+    for (String key: m2.keySet()) {
+      long start = m1.containsKey(key) ? m1.get(key) : 0L;
+      long end = m2.get(key);
+      if (start > end) {
+        continue;
+      }
+      if (patterns && start < end) {
+        runIdList.add(QueryUtils.buildExtractorRunIdPattern(key, start, end));
+      } else {
+        for (long i=start; i<(end+1); i++) {
+          String possible = key + "##" + Long.toString(i);
+          runIdList.add(possible);
+        }
       }
     }
+    if (patterns) {
+      long iterations = countIterations(m1, m2);
+      LOG.info("Selecting {} extractorRunIds with {} terms in {} instead of " +
+          "{} queries", iterations, runIdList.size(),
+          numQueries(runIdList.size()), numQueries(iterations));
+    }
     return runIdList;
   }
 
+  /**
+   * @return number of extract iterations between marker m1 and marker m2
+   */
+  private static long countIterations(Map<String, Long> m1,
+                                      Map<String, Long> m2) {
+    long iterations = 0;
+    for (Map.Entry<String, Long> entry : m2.entrySet()) {
+      long start = m1.containsKey(entry.getKey()) ?
+          m1.get(entry.getKey()) : 0L;
+      if (start <= entry.getValue()) {
+        iterations += entry.getValue() - start + 1;
+      }
+    }
+    return iterations;
+  }
+
+  private static long numQueries(long terms) {
+    long partitionSize = MetadataResultIterator.MAX_QUERY_PARTITION_SIZE;
+    return Math.max(1L, (terms + partitionSize - 1) / partitionSize);
+  }
+
   /**
    * Constructs an MetadataResultSet object with results of getAllPages
    * for entities and relations, and the marker used to generate these results.
@@ -179,18 +308,27 @@ public class MetadataExtractor {
    * @param extractorRunIds List of possible extractorRunIds
    * @param entitiesQuery Query string for filtering entities to extract
    * @param relationsQuery Query string filtering relations to extract
+   * @param entityFields fields of the entities to return, null for all
+   * @param relationFields fields of the relations to return, null for all
+   * @param savedQueries queries per type saved by extractorRunId patterns
    * @return MetadataResultSet with resulting entities, relations and marker
    */
   private MetadataResultSet aggUpdatedResults(String markerRep,
                                           Iterable<String> extractorRunIds,
                                           String entitiesQuery,
-                                          String relationsQuery) {
+                                          String relationsQuery,
+                                          Collection<String> entityFields,
+                                          Collection<String> relationFields,
+                                          long savedQueries) {
     MetadataResultSet metadataResultSet;
     MetadataIterable entities = new MetadataIterable(client,
-        MetadataType.ENTITIES, entitiesQuery, limit, extractorRunIds);
+        MetadataType.ENTITIES, entitiesQuery, limit, extractorRunIds,
+        entityFields);
     MetadataIterable relations = new MetadataIterable(client,
-        MetadataType.RELATIONS, relationsQuery, limit, extractorRunIds);
-    metadataResultSet = new MetadataResultSet(markerRep, entities, relations);
+        MetadataType.RELATIONS, relationsQuery, limit, extractorRunIds,
+        relationFields);
+    metadataResultSet = new MetadataResultSet(markerRep, entities, relations,
+        savedQueries);
     return metadataResultSet;
   }
 
@@ -200,7 +338,17 @@ public class MetadataExtractor {
    * @return String representation of a marker
    */
   public String getMarker() {
-    Map<String, Long> currentMarker = getNavMarker(true);
+    return getMarker(getSourceSnapshot());
+  }
+
+  /**
+   * Writes the marker for the state of the sources in the given snapshot
+   *
+   * @param sources snapshot from {@link #getSourceSnapshot()}
+   * @return String representation of a marker
+   */
+  public String getMarker(SourceRegistry.Snapshot sources) {
+    Map<String, Long> currentMarker = getNavMarker(sources, true);
     try {
       return new ObjectMapper().writeValueAsString(currentMarker);
     } catch (IOException e){
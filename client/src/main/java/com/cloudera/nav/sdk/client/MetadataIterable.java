@@ -17,12 +17,18 @@ package com.cloudera.nav.sdk.client;
 
 import com.cloudera.nav.sdk.model.MetadataType;
 
+import java.util.Collection;
 import java.util.Map;
 
 /**
  * Iterable over metadata (entities or relations determined by given
  * MetadataType) that satisfies the given String query and the given
- * extractorRunIds. Thin wrapper around MetadataResultIterator
+ * extractorRunIds. Thin wrapper around MetadataResultIterator, or
+ * ParallelMetadataResultIterator to page the extractorRunId partitions
+ * concurrently.
+ *
+ * If fields are given, only those fields of every result are returned.
+ * {@link #deduplicatedIterator()} skips results returned more than once.
  */
 public class MetadataIterable implements Iterable<Map<String, Object>> {
 
@@ -31,20 +37,100 @@ public class MetadataIterable implements Iterable<Map<String, Object>> {
   private final String query;
   private final Integer limit;
   private final Iterable<String> extractorRunIds;
+  private final Collection<String> fields;
 
   public MetadataIterable(NavApiCient client, MetadataType type,
                           String query, Integer limit,
                           Iterable<String> extractorRunIds){
+    this(client, type, query, limit, extractorRunIds, null);
+  }
+
+  /**
+   * @param fields fields to return for every result, null for all fields
+   */
+  public MetadataIterable(NavApiCient client, MetadataType type,
+                          String query, Integer limit,
+                          Iterable<String> extractorRunIds,
+                          Collection<String> fields) {
     this.query = query;
     this.type = type;
     this.client = client;
     this.limit =limit;
     this.extractorRunIds = extractorRunIds;
+    this.fields = fields;
+  }
+
+  public NavApiCient getClient() {
+    return client;
+  }
+
+  public MetadataType getType() {
+    return type;
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public Iterable<String> getExtractorRunIds() {
+    return extractorRunIds;
+  }
+
+  /**
+   * @return fields to return for every result, null for all fields
+   */
+  public Collection<String> getFields() {
+    return fields;
   }
 
   @Override
   public MetadataResultIterator iterator() {
     return new MetadataResultIterator(client, type, query, limit,
-        extractorRunIds);
+        extractorRunIds, fields, null);
+  }
+
+  /**
+   * @return iterator that resumes from the checkpoint in the given store and
+   *         saves its position to it
+   */
+  public MetadataResultIterator iterator(CheckpointStore checkpointStore) {
+    return MetadataResultIterator.withCheckpointStore(client, type, query,
+        limit, extractorRunIds, fields, checkpointStore);
+  }
+
+  /**
+   * @return iterator that skips results whose identity was returned
+   *         before, with a set of identities as configured in the client's
+   *         {@link ClientConfig}
+   */
+  public DeduplicatingIterator deduplicatedIterator() {
+    return new DeduplicatingIterator(iterator(), new IdentitySet(
+        client.getConfig().getDedupExpectedIdentities()));
+  }
+
+  /**
+   * @return iterator paging the extractorRunId partitions concurrently, as
+   *         configured in the client's {@link ClientConfig}
+   */
+  public ParallelMetadataResultIterator parallelIterator() {
+    return new ParallelMetadataResultIterator(client, type, query, limit,
+        extractorRunIds, fields,
+        client.getConfig().getParallelExtractionThreads(),
+        client.getConfig().getParallelExtractionBufferSize(),
+        client.getConfig().isParallelExtractionOrdered());
+  }
+
+  /**
+   * @see ParallelMetadataResultIterator
+   */
+  public ParallelMetadataResultIterator parallelIterator(int parallelism,
+                                                         int bufferSize,
+                                                         boolean ordered) {
+    return new ParallelMetadataResultIterator(client, type, query, limit,
+        extractorRunIds, fields, parallelism, bufferSize, ordered);
   }
 }
@@ -15,19 +15,35 @@
  */
 package com.cloudera.nav.sdk.client;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.Set;
+
 /**
  * Wrapper class for query criteria to be sent in POST request to Navigator API.
+ *
+ * The query may select the fields to return for every result. A null
+ * selection returns all fields.
  */
 public class MetadataQuery {
 
   private final String query;
   private final Integer limit;
   private final String cursorMark;
+  private final Set<String> fields;
 
   public MetadataQuery(String query, Integer limit, String cursorMark){
+    this(query, limit, cursorMark, null);
+  }
+
+  public MetadataQuery(String query, Integer limit, String cursorMark,
+                       Collection<String> fields) {
     this.query = query;
     this.limit = limit;
     this.cursorMark = cursorMark;
+    this.fields = fields == null ? null : ImmutableSet.copyOf(fields);
   }
 
   public String getQuery() {
@@ -41,4 +57,20 @@ public class MetadataQuery {
   public String getCursorMark() {
     return cursorMark;
   }
+
+  /**
+   * @return fields to return for every result, null for all fields
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public Set<String> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return the same query without a field selection
+   */
+  public MetadataQuery withoutFields() {
+    return fields == null ? this :
+        new MetadataQuery(query, limit, cursorMark);
+  }
 }
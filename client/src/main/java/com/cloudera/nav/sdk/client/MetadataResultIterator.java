@@ -17,13 +17,23 @@ package com.cloudera.nav.sdk.client;
 
 import com.cloudera.nav.sdk.model.MetadataType;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Lazy iterator over metadata (entities or relations determined by given
@@ -32,38 +42,177 @@ import java.util.NoSuchElementException;
  *
  * Under the hood, the iterator combines the query and the extractorRunIds and
  * sends a request via the given NavApiClient. The results are fetched in
- * batches.
+ * batches. If {@link ClientConfig#isStreamingResults()} is set, each batch is
+ * parsed incrementally while it is consumed; such an iterator should be
+ * closed if it is abandoned before it is exhausted.
+ *
+ * A batch that fails with an I/O error while it is read is requested again
+ * with the same cursorMark, following the client's {@link RetryPolicy}.
+ * Results of a streamed batch that were already returned are skipped.
+ *
+ * With {@link ClientConfig#getPrefetchBatches()} set, batches are requested
+ * by a {@link PrefetchingIterator} ahead of the consumer, up to the given
+ * number of batches. Prefetching is not supported with streamed batches.
+ *
+ * {@link #getCheckpoint()} returns the position of the iterator, from which
+ * a new iterator over the same query and extractorRunIds continues. An
+ * iterator created by {@link #withCheckpointStore} resumes from the
+ * checkpoint in the store and saves the position every
+ * {@link ClientConfig#getCheckpointInterval()} results, once the results
+ * before it have been consumed. The checkpoint is cleared when the last
+ * result has been consumed.
+ *
+ * If fields are given, only those fields of every result are returned, see
+ * {@link MetadataQuery#getFields()}.
+ *
+ * With {@link ClientConfig#isAdaptivePageSize()} set, the limit is only the
+ * size of the first page. The size of every following page is chosen by a
+ * {@link PageSizeTuner} from the response time and size of the pages
+ * before.
  */
-public class MetadataResultIterator implements Iterator<Map<String, Object>> {
+public class MetadataResultIterator implements Iterator<Map<String, Object>>,
+    Closeable {
 
   public static final Integer MAX_QUERY_PARTITION_SIZE = 800;
 
+  private static final Logger LOG = LoggerFactory.getLogger(
+      MetadataResultIterator.class);
+
   private final NavApiCient client;
   private final Integer limit;
   private final MetadataType type;
   private final String userQuery;
+  private final Collection<String> fields;
+  private final boolean streaming;
+  private final RetryPolicy retryPolicy;
+  private final PageSizeTuner pageSizeTuner;
   private boolean hasNext;
   private Iterator<List<String>> partitionRunIdIterator;
   private List<Map<String, Object>> resultsBatch;
+  private ResultsStream resultsStream;
   private Iterator<Map<String, Object>> resultsBatchIterator;
+  private int resultsBatchCount;
+  private int batchLimit;
+  private long batchRequestNanos;
   private String cursorMark = "*";
+  private String batchCursorMark = "*";
   private String nextQuery;
+  private int partitionIndex;
+  private long delivered;
+  private CheckpointStore checkpointStore;
+  private int checkpointInterval;
+  private PrefetchingIterator<PrefetchedBatch> prefetched;
 
   public MetadataResultIterator(NavApiCient client, MetadataType type,
                                 String query, Integer limit,
                                 Iterable<String> extractorRunIds) {
+    this(client, type, query, limit, extractorRunIds, null, null);
+  }
+
+  /**
+   * Create an iterator that continues from the given checkpoint of an
+   * iterator over the same query and extractorRunIds
+   *
+   * @param checkpoint position to resume from, null to start from the first
+   *                   result
+   */
+  public MetadataResultIterator(NavApiCient client, MetadataType type,
+                                String query, Integer limit,
+                                Iterable<String> extractorRunIds,
+                                ExtractionCheckpoint checkpoint) {
+    this(client, type, query, limit, extractorRunIds, null, checkpoint);
+  }
+
+  /**
+   * Create an iterator that continues from the given checkpoint of an
+   * iterator over the same query and extractorRunIds and only returns the
+   * given fields of every result
+   *
+   * @param fields fields to return, null for all fields
+   * @param checkpoint position to resume from, null to start from the first
+   *                   result
+   */
+  public MetadataResultIterator(NavApiCient client, MetadataType type,
+                                String query, Integer limit,
+                                Iterable<String> extractorRunIds,
+                                Collection<String> fields,
+                                ExtractionCheckpoint checkpoint) {
+    this(client, type, query, limit, extractorRunIds, fields, checkpoint,
+        null);
+  }
+
+  private MetadataResultIterator(NavApiCient client, MetadataType type,
+                                 String query, Integer limit,
+                                 Iterable<String> extractorRunIds,
+                                 Collection<String> fields,
+                                 ExtractionCheckpoint checkpoint,
+                                 CheckpointStore checkpointStore) {
     this.client = client;
     this.type = type;
     this.userQuery = query;
     this.limit = limit;
+    this.fields = fields;
+    this.streaming = client.getConfig() != null &&
+        client.getConfig().isStreamingResults();
+    this.retryPolicy = client.getConfig() != null ?
+        new RetryPolicy(client.getConfig()) : RetryPolicy.noRetries();
+    this.pageSizeTuner = client.getConfig() != null &&
+        client.getConfig().isAdaptivePageSize() ?
+        new PageSizeTuner(client.getConfig(), limit) : null;
+    if (checkpointStore != null) {
+      this.checkpointStore = checkpointStore;
+      this.checkpointInterval = client.getConfig() != null ?
+          client.getConfig().getCheckpointInterval() :
+          ClientConfig.DEFAULT_CHECKPOINT_INTERVAL;
+      Preconditions.checkArgument(checkpointInterval > 0,
+          "Checkpoint interval must be positive");
+    }
     this.partitionRunIdIterator = Iterables.partition(extractorRunIds,
         MAX_QUERY_PARTITION_SIZE).iterator();
+    int skip = 0;
+    if (checkpoint != null) {
+      Iterators.advance(partitionRunIdIterator, checkpoint.getPartition());
+      Preconditions.checkArgument(checkpoint.getPartition() == 0 ||
+          partitionRunIdIterator.hasNext(),
+          "Checkpoint does not match the extractorRunIds");
+      partitionIndex = checkpoint.getPartition();
+      skip = checkpoint.getOffset();
+      delivered = checkpoint.getDelivered();
+    }
     if(Iterables.isEmpty(extractorRunIds)) {
       nextQuery = userQuery;
     } else {
       getNextQuery();
     }
-    getNextBatch();
+    if (checkpoint != null) {
+      cursorMark = checkpoint.getCursorMark();
+    }
+    int prefetchBatches = client.getConfig() != null ?
+        client.getConfig().getPrefetchBatches() : 0;
+    Preconditions.checkArgument(prefetchBatches == 0 || !streaming,
+        "Batches cannot be prefetched when results are streamed");
+    if (prefetchBatches > 0) {
+      prefetched = new PrefetchingIterator<>(new Batches(skip),
+          prefetchBatches, "nav-prefetch-%d");
+      getNextPrefetchedBatch(skip);
+    } else {
+      getNextBatch(skip);
+    }
+  }
+
+  /**
+   * Create an iterator that resumes from the checkpoint in the given store
+   * and saves its position to it
+   *
+   * @param fields fields to return, null for all fields
+   * @param checkpointStore
+   */
+  public static MetadataResultIterator withCheckpointStore(
+      NavApiCient client, MetadataType type, String query, Integer limit,
+      Iterable<String> extractorRunIds, Collection<String> fields,
+      CheckpointStore checkpointStore) {
+    return new MetadataResultIterator(client, type, query, limit,
+        extractorRunIds, fields, checkpointStore.load(), checkpointStore);
   }
 
   @Override
@@ -71,53 +220,221 @@ public class MetadataResultIterator implements Iterator<Map<String, Object>> {
     return hasNext;
   }
 
+  /**
+   * @return position after the results returned so far
+   */
+  public ExtractionCheckpoint getCheckpoint() {
+    return new ExtractionCheckpoint(partitionIndex, batchCursorMark,
+        resultsBatchCount, delivered);
+  }
+
+  /**
+   * @return tuner of the page size, null unless
+   *         {@link ClientConfig#isAdaptivePageSize()} is set
+   */
+  public PageSizeTuner getPageSizeTuner() {
+    return pageSizeTuner;
+  }
+
   @Override
   public Map<String, Object> next() {
     if(!hasNext()) {
       throw new NoSuchElementException();
     }
-    Map<String, Object> nextResult = resultsBatchIterator.next();
+    if (checkpointStore != null && delivered > 0 &&
+        delivered % checkpointInterval == 0) {
+      // the caller asks for more, so the results before have been processed
+      checkpointStore.save(getCheckpoint());
+    }
+    Map<String, Object> nextResult = readNextResult();
+    resultsBatchCount++;
+    delivered++;
     //if at last element in batch
     if(!resultsBatchIterator.hasNext()){
-      //if on last batch
-      if(resultsBatch.size()<limit) {
-        //if on last query, leave loop
-        if (!partitionRunIdIterator.hasNext()) {
-          hasNext = false;
-        //Update query and get next batch
-        } else {
-          getNextQuery();
-          getNextBatch();
+      advanceBatch();
+    }
+    return nextResult;
+  }
+
+  /**
+   * Read the next result of the current batch. If reading a streamed batch
+   * fails, the batch is requested again following the retry policy and the
+   * results that were already returned are skipped.
+   */
+  private Map<String, Object> readNextResult() {
+    long startNanos = System.nanoTime();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return resultsBatchIterator.next();
+      } catch (RuntimeException e) {
+        if (resultsStream == null) {
+          throw e;
         }
-      //fetch next batch
+        recordReadFailure();
+        awaitRetry(e, attempt, startNanos);
+        fetchBatch(resultsBatchCount, attempt, startNanos);
+      }
+      if (!resultsBatchIterator.hasNext()) {
+        // the batch is shorter than before, continue with the next one
+        advanceBatch();
+        if (!hasNext) {
+          throw new NoSuchElementException(
+              "Results batch ended early when it was requested again");
+        }
+      }
+    }
+  }
+
+  /**
+   * Report a response that failed while it was read to the circuit breaker
+   * of the client's transport, if it has one
+   */
+  private void recordReadFailure() {
+    NavTransport transport = client.getTransport();
+    RetryingTransport retrying = transport == null ? null :
+        transport.unwrap(RetryingTransport.class);
+    if (retrying != null) {
+      retrying.getCircuitBreaker().recordFailure();
+    }
+  }
+
+  /**
+   * Move on from a consumed batch to the next batch of the partition, the
+   * next partition or the end of the results
+   */
+  private void advanceBatch() {
+    if (prefetched != null) {
+      getNextPrefetchedBatch(0);
+      return;
+    }
+    if (resultsStream != null) {
+      // a streamed batch reveals its cursor once it is fully parsed
+      cursorMark = resultsStream.getCursorMark();
+      recordPage(batchLimit, resultsStream.getCount(), batchRequestNanos,
+          resultsStream.getBytesRead());
+    }
+    //if on last batch
+    if(resultsBatchCount<batchLimit) {
+      //if on last query, leave loop
+      if (!partitionRunIdIterator.hasNext()) {
+        finish();
+      //Update query and get next batch
       } else {
+        getNextQuery();
         getNextBatch();
       }
+    //fetch next batch
+    } else {
+      getNextBatch();
     }
-    return nextResult;
   }
 
   @VisibleForTesting
   void getNextBatch() {
+    getNextBatch(0);
+  }
+
+  /**
+   * Retrieve the batch at the current cursorMark, skipping the given number
+   * of results that were returned before the iterator was resumed
+   */
+  private void getNextBatch(int skip) {
     // Retrieve the next batch of metadata results
     try {
-      ResultsBatch<Map<String, Object>> response = getResultsBatch();
-      resultsBatch = response.getResults();
-      resultsBatchIterator = resultsBatch.iterator();
+      fetchBatch(skip, 0, System.nanoTime());
+      resultsBatchCount = skip;
       hasNext = resultsBatchIterator.hasNext();
-      cursorMark = response.getCursorMark();
-      if (!hasNext && partitionRunIdIterator.hasNext()) {
-        getNextQuery();
-        getNextBatch();
+      if (!hasNext) {
+        advanceBatch();
       }
     } catch (Exception e){
       throw Throwables.propagate(e);
     }
   }
 
-  private ResultsBatch<Map<String, Object>> getResultsBatch() {
+  /**
+   * Request the batch at the current cursorMark, retrying I/O errors
+   *
+   * @param skip number of results of the batch that were already returned
+   * @param failedAttempts number of attempts that already failed
+   * @param startNanos time of the first attempt
+   */
+  private void fetchBatch(int skip, int failedAttempts, long startNanos) {
+    batchCursorMark = cursorMark;
+    // results that were already returned have to be part of the page
+    batchLimit = Math.max(nextPageSize(), skip);
+    for (int attempt = failedAttempts + 1; ; attempt++) {
+      try {
+        closeResultsStream();
+        if (streaming) {
+          // the response time of a stream is its time to the first result,
+          // reading the rest is paced by the consumer
+          long requestNanos = System.nanoTime();
+          resultsStream = getResultsStream(batchLimit);
+          batchRequestNanos = System.nanoTime() - requestNanos;
+          resultsBatchIterator = resultsStream;
+          for (int i = 0; i < skip && resultsStream.hasNext(); i++) {
+            resultsStream.next();
+          }
+        } else {
+          long requestNanos = System.nanoTime();
+          ResultsBatch<Map<String, Object>> response = getResultsBatch(
+              nextQuery, cursorMark, batchLimit);
+          recordPage(batchLimit, response.getResults().size(),
+              System.nanoTime() - requestNanos, response.getResponseBytes());
+          resultsBatch = response.getResults();
+          resultsBatchIterator = resultsBatch.iterator();
+          Iterators.advance(resultsBatchIterator, skip);
+          cursorMark = response.getCursorMark();
+        }
+        return;
+      } catch (RuntimeException e) {
+        closeResultsStream();
+        awaitRetry(e, attempt, startNanos);
+      }
+    }
+  }
+
+  /**
+   * Wait before the next attempt of a request, or rethrow the failure if it
+   * should not be retried
+   */
+  private void awaitRetry(RuntimeException e, int attempt, long startNanos) {
+    if (!retryPolicy.isRetryable(e)) {
+      throw e;
+    }
+    try {
+      if (!retryPolicy.awaitRetry(attempt, startNanos)) {
+        throw e;
+      }
+    } catch (InterruptedIOException ie) {
+      throw Throwables.propagate(ie);
+    }
+    LOG.warn("Requesting results batch again after attempt {} failed",
+        attempt, e);
+  }
+
+  /**
+   * @return number of results to request for the next batch
+   */
+  private int nextPageSize() {
+    return pageSizeTuner != null ? pageSizeTuner.getPageSize() : limit;
+  }
+
+  private void recordPage(int requested, int results, long nanos,
+                          long bytes) {
+    if (pageSizeTuner != null) {
+      pageSizeTuner.record(requested, results,
+          TimeUnit.NANOSECONDS.toMillis(nanos), bytes);
+    }
+  }
+
+  private ResultsBatch<Map<String, Object>> getResultsBatch(String queryString,
+                                                            String cursor,
+                                                            int pageLimit) {
     // Send the next request to the server to get a batch of results
-    MetadataQuery query = new MetadataQuery(nextQuery, limit, cursorMark);
+    MetadataQuery query = new MetadataQuery(queryString, pageLimit, cursor,
+        fields);
       switch(type) {
         case ENTITIES:
           return client.getEntityBatch(query);
@@ -129,14 +446,173 @@ public class MetadataResultIterator implements Iterator<Map<String, Object>> {
       }
   }
 
+  private ResultsStream getResultsStream(int pageLimit) {
+    MetadataQuery query = new MetadataQuery(nextQuery, pageLimit, cursorMark,
+        fields);
+    switch(type) {
+      case ENTITIES:
+        return client.streamEntityBatch(query);
+      case RELATIONS:
+        return client.streamRelationBatch(query);
+      default:
+        throw new UnsupportedOperationException("Invalid MetadataType " +
+            type.name());
+    }
+  }
+
   private void getNextQuery() {
+    if (nextQuery != null) {
+      partitionIndex++;
+    }
+    cursorMark="*";
+    nextQuery = getPartitionQuery(partitionRunIdIterator.next());
+  }
+
+  private String getPartitionQuery(List<String> extractorRunIdBatch) {
     // create the next query by combining the given userQuery with the next
     // partition of extractorRunIds
-    cursorMark="*";
-    List<String> extractorRunIdBatch = partitionRunIdIterator.next();
     String extractorString = QueryUtils.buildConjunctiveClause(
         "extractorRunId", extractorRunIdBatch);
-    nextQuery = QueryUtils.conjoinSolrQueries(userQuery, extractorString);
+    return QueryUtils.conjoinSolrQueries(userQuery, extractorString);
+  }
+
+  /**
+   * Mark the results as consumed. A restart starts from the beginning, so
+   * the saved checkpoint is cleared.
+   */
+  private void finish() {
+    hasNext = false;
+    if (checkpointStore != null) {
+      checkpointStore.clear();
+      checkpointStore = null;
+    }
+  }
+
+  /**
+   * Wait for the next batch requested in the background
+   *
+   * @param skip number of results of the batch that were already returned
+   */
+  private void getNextPrefetchedBatch(int skip) {
+    try {
+      while (prefetched.hasNext()) {
+        PrefetchedBatch batch = prefetched.next();
+        partitionIndex = batch.partition;
+        batchCursorMark = batch.cursorMark;
+        resultsBatch = batch.results;
+        resultsBatchIterator = resultsBatch.iterator();
+        Iterators.advance(resultsBatchIterator, skip);
+        resultsBatchCount = skip;
+        skip = 0;
+        hasNext = resultsBatchIterator.hasNext();
+        if (hasNext) {
+          return;
+        }
+      }
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+    finish();
+  }
+
+  /**
+   * Release the connection held by a partially consumed streamed batch.
+   * No further results are returned after the iterator is closed.
+   */
+  @Override
+  public void close() {
+    closeResultsStream();
+    if (prefetched != null) {
+      prefetched.close();
+    }
+    hasNext = false;
+  }
+
+  private void closeResultsStream() {
+    if (resultsStream != null) {
+      resultsStream.close();
+      resultsStream = null;
+    }
+  }
+
+  /**
+   * Batch requested in the background, with its position for checkpoints
+   */
+  private static class PrefetchedBatch {
+    private final int partition;
+    private final String cursorMark;
+    private final List<Map<String, Object>> results;
+
+    PrefetchedBatch(int partition, String cursorMark,
+                    List<Map<String, Object>> results) {
+      this.partition = partition;
+      this.cursorMark = cursorMark;
+      this.results = results;
+    }
+  }
+
+  /**
+   * Requests the batches of all partitions in turn, starting at the current
+   * query and cursorMark. The partitions are only consumed by the batches
+   * from then on.
+   */
+  private class Batches extends AbstractIterator<PrefetchedBatch> {
+    private String query = nextQuery;
+    private String cursor = cursorMark;
+    private int partition = partitionIndex;
+    private int pageLimit;
+    private boolean last;
+
+    /**
+     * @param firstSkip number of results of the first batch that were
+     *                  already returned
+     */
+    Batches(int firstSkip) {
+      // results that were already returned have to be part of the page
+      pageLimit = Math.max(nextPageSize(), firstSkip);
+    }
+
+    @Override
+    protected PrefetchedBatch computeNext() {
+      while (!last) {
+        ResultsBatch<Map<String, Object>> batch = requestBatch();
+        List<Map<String, Object>> results = batch.getResults();
+        PrefetchedBatch next = new PrefetchedBatch(partition, cursor,
+            results);
+        boolean fullPage = results.size() >= pageLimit;
+        pageLimit = nextPageSize();
+        if (fullPage) {
+          cursor = batch.getCursorMark();
+        } else if (partitionRunIdIterator.hasNext()) {
+          query = getPartitionQuery(partitionRunIdIterator.next());
+          cursor = "*";
+          partition++;
+        } else {
+          last = true;
+        }
+        if (!results.isEmpty()) {
+          return next;
+        }
+      }
+      return endOfData();
+    }
+
+    private ResultsBatch<Map<String, Object>> requestBatch() {
+      long startNanos = System.nanoTime();
+      for (int attempt = 1; ; attempt++) {
+        try {
+          long requestNanos = System.nanoTime();
+          ResultsBatch<Map<String, Object>> batch = getResultsBatch(query,
+              cursor, pageLimit);
+          recordPage(pageLimit, batch.getResults().size(),
+              System.nanoTime() - requestNanos, batch.getResponseBytes());
+          return batch;
+        } catch (RuntimeException e) {
+          awaitRetry(e, attempt, startNanos);
+        }
+      }
+    }
   }
 
   /**
@@ -25,13 +25,26 @@ public class MetadataResultSet {
   private final String marker;
   private final MetadataIterable entities;
   private final MetadataIterable relations;
+  private final long savedQueries;
 
   public MetadataResultSet(String marker,
                            MetadataIterable entities,
                            MetadataIterable relations){
+      this(marker, entities, relations, 0L);
+  }
+
+  /**
+   * @param savedQueries number of queries per type that selecting the
+   *                     extractorRunIds with patterns saved
+   */
+  public MetadataResultSet(String marker,
+                           MetadataIterable entities,
+                           MetadataIterable relations,
+                           long savedQueries){
       this.marker = marker;
       this.entities = entities;
       this.relations = relations;
+      this.savedQueries = savedQueries;
   }
 
   public String getMarker() {
@@ -45,4 +58,13 @@ public class MetadataResultSet {
   public MetadataIterable getRelations() {
       return relations;
   }
+
+  /**
+   * @return number of queries for the entities, and as many for the
+   *         relations, that were saved by selecting the extractorRunIds with
+   *         patterns, see {@link ClientConfig#isExtractorRunIdPatterns()}
+   */
+  public long getSavedQueries() {
+    return savedQueries;
+  }
 }
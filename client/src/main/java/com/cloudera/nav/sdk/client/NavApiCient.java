@@ -18,58 +18,72 @@ package com.cloudera.nav.sdk.client;
 import com.cloudera.nav.sdk.model.MetadataModel;
 import com.cloudera.nav.sdk.model.Source;
 import com.cloudera.nav.sdk.model.SourceType;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.SSLContext;
-
-import org.apache.commons.codec.binary.Base64;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.http.pool.PoolStats;
 import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * An API client to communicate with Navigator to register and validate
- * metadata models
+ * metadata models.
+ *
+ * All requests are sent through a {@link NavTransport}, by default a pool
+ * of keep-alive connections owned by the client, so the client should be
+ * closed once it is no longer needed.
  */
-public class NavApiCient {
+public class NavApiCient implements Closeable {
 
-  private static final Logger LOG = LoggerFactory.getLogger(NavApiCient.class);
   private static final String SOURCE_QUERY = "type:SOURCE";
 
   private final ClientConfig config;
-  private final Cache<String, Source> sourceCacheByUrl;
-  private final Cache<SourceType, Collection<Source>> sourceCacheByType;
-  private final boolean isSSL;
-  private final SSLContext sslContext;
-  private final HostnameVerifier hostnameVerifier;
+  private final SourceRegistry sourceRegistry;
+  private final NavTransport transport;
+  private final ObjectMapper mapper;
+  private RestTemplate restTemplate;
 
   public NavApiCient(ClientConfig config) {
+    this(config, new NavTransportFactory().newTransport(config));
+  }
+
+  /**
+   * Create a client sending all requests through the given transport. The
+   * transport is closed along with the client.
+   *
+   * @param config
+   * @param transport
+   */
+  public NavApiCient(ClientConfig config, NavTransport transport) {
+    Preconditions.checkNotNull(transport);
     this.config = config;
-    this.sourceCacheByUrl = CacheBuilder.newBuilder().build();
-    this.sourceCacheByType = CacheBuilder.newBuilder().build();
-    this.isSSL = SSLUtils.isSSL(config.getNavigatorUrl());
-    this.sslContext = isSSL ? SSLUtils.getSSLContext(config) : null;
-    this.hostnameVerifier = isSSL ? SSLUtils.getHostnameVerifier(config) : null;
+    this.transport = transport;
+    this.sourceRegistry = new SourceRegistry(config,
+        new Callable<Collection<Source>>() {
+          @Override
+          public Collection<Source> call() {
+            return getAllSources();
+          }
+        });
+    this.mapper = new ObjectMapper();
   }
 
   /**
@@ -90,11 +104,9 @@ public class NavApiCient {
   private <R, T> T sendRequest(String url, HttpMethod method,
                                Class<? extends T> resultClass,
                                R requestPayload) {
-    RestTemplate restTemplate = newRestTemplate();
-        HttpHeaders headers = getAuthHeaders();
+    RestTemplate restTemplate = getRestTemplate();
     HttpEntity<?> request = requestPayload == null ?
-        new HttpEntity<String>(headers) :
-        new HttpEntity<>(requestPayload, headers);
+        HttpEntity.EMPTY : new HttpEntity<>(requestPayload);
     ResponseEntity<? extends T> response = restTemplate.exchange(url, method,
         request, resultClass);
     return response.getBody();
@@ -106,7 +118,7 @@ public class NavApiCient {
    * @return a collection of available sources
    */
   public Collection<Source> getAllSources () {
-        String url = entitiesQueryUrl();
+    String url = entitiesQueryUrl();
     SourceAttrs[] sourceAttrs = sendRequest(url, HttpMethod.GET,
         SourceAttrs[].class);
     Collection<Source> sources = Lists.newArrayListWithExpectedSize(sourceAttrs
@@ -173,12 +185,19 @@ public class NavApiCient {
    * results that satisfy the query, starting from the cursorMark.
    * Called in next() of IncrementalExtractIterator()
    *
+   * If the query selects fields, only those fields are kept in every
+   * result.
+   *
    * @param metadataQuery Solr query string, cursormark and limit
    * @return ResultsBatch set of results that satisfy query and next cursor
    */
   public ResultsBatch<Map<String, Object>> getRelationBatch(
       MetadataQuery metadataQuery) {
     String fullUrlPost = pagingUrl("relations");
+    if (readsIncrementally(metadataQuery)) {
+      return readBatch(new RelationResultsBatch(),
+          streamRequest(fullUrlPost, metadataQuery));
+    }
     return sendRequest(fullUrlPost, HttpMethod.POST, RelationResultsBatch.class,
         metadataQuery);
   }
@@ -189,24 +208,149 @@ public class NavApiCient {
   public ResultsBatch<Map<String, Object>> getEntityBatch(
       MetadataQuery metadataQuery) {
     String fullUrlPost = pagingUrl("entities");
+    if (readsIncrementally(metadataQuery)) {
+      return readBatch(new EntityResultsBatch(),
+          streamRequest(fullUrlPost, metadataQuery));
+    }
     return sendRequest(fullUrlPost, HttpMethod.POST, EntityResultsBatch.class,
         metadataQuery);
   }
 
+  /**
+   * Batches are parsed from a {@link ResultsStream} if unselected fields
+   * should never be materialized, or if the tuning of the page size needs
+   * the size of the response
+   */
+  private boolean readsIncrementally(MetadataQuery metadataQuery) {
+    return metadataQuery.getFields() != null || config.isAdaptivePageSize();
+  }
+
+  /**
+   * Drain a stream into a batch, recording the size of the response
+   */
+  private ResultsBatch<Map<String, Object>> readBatch(
+      ResultsBatch<Map<String, Object>> batch, ResultsStream stream) {
+    try {
+      batch.setResults(Lists.newArrayList(stream));
+      batch.setCursorMark(stream.getCursorMark());
+      batch.setResponseBytes(stream.getBytesRead());
+      return batch;
+    } finally {
+      stream.close();
+    }
+  }
+
+  private synchronized RestTemplate getRestTemplate() {
+    if (restTemplate == null) {
+      restTemplate = newRestTemplate();
+    }
+    return restTemplate;
+  }
+
+  /**
+   * Streaming variant of {@link #getRelationBatch(MetadataQuery)}. The
+   * results are parsed as they are consumed from the returned stream, which
+   * holds on to its connection until it is exhausted or closed.
+   *
+   * Fields selected by the query are only sent to Navigator if
+   * {@link ClientConfig#isServerFieldProjection()} is set, but the
+   * projection is always applied while parsing.
+   *
+   * @param metadataQuery Solr query string, cursormark and limit
+   * @return ResultsStream over the results that satisfy query
+   */
+  public ResultsStream streamRelationBatch(MetadataQuery metadataQuery) {
+    return streamRequest(pagingUrl("relations"), metadataQuery);
+  }
+
+  /**
+   * {@link #streamRelationBatch(MetadataQuery) streamRelationBatch} with
+   * entities
+   */
+  public ResultsStream streamEntityBatch(MetadataQuery metadataQuery) {
+    return streamRequest(pagingUrl("entities"), metadataQuery);
+  }
+
+  private ResultsStream streamRequest(String url,
+                                      MetadataQuery metadataQuery) {
+    MetadataQuery requestPayload = config.isServerFieldProjection() ?
+        metadataQuery : metadataQuery.withoutFields();
+    RestTemplate template = getRestTemplate();
+    ClientHttpResponse response = null;
+    try {
+      ClientHttpRequest request = transport.createRequest(URI.create(url),
+          HttpMethod.POST);
+      request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+      request.getHeaders().setAccept(
+          Collections.singletonList(MediaType.APPLICATION_JSON));
+      mapper.writeValue(request.getBody(), requestPayload);
+      response = request.execute();
+      ResponseErrorHandler errorHandler = template.getErrorHandler();
+      if (errorHandler.hasError(response)) {
+        errorHandler.handleError(response);
+      }
+      return new ResultsStream(response.getBody(), response, mapper,
+          metadataQuery.getFields());
+    } catch (IOException | RuntimeException e) {
+      if (response != null) {
+        response.close();
+      }
+      throw Throwables.propagate(e);
+    }
+  }
+
   @VisibleForTesting
   RestTemplate newRestTemplate() {
-    if (isSSL) {
-      CloseableHttpClient httpClient = HttpClients.custom()
-          .setSSLContext(sslContext)
-          .setSSLHostnameVerifier(hostnameVerifier)
-          .build();
-      HttpComponentsClientHttpRequestFactory requestFactory =
-          new HttpComponentsClientHttpRequestFactory();
-      requestFactory.setHttpClient(httpClient);
-      return new RestTemplate(requestFactory);
-    } else {
-      return new RestTemplate();
-    }
+    return new RestTemplate(transport);
+  }
+
+  /**
+   * @return the transport used to send requests to Navigator
+   */
+  public NavTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Statistics of the pooled connections to Navigator. The number of leased,
+   * available and pending connections can be used to size the pool via
+   * {@link ClientConfig#setMaxConnectionsTotal(int)} and
+   * {@link ClientConfig#setMaxConnectionsPerRoute(int)}.
+   *
+   * @return current totals across all routes, null if requests are not
+   *         sent through an {@link HttpTransport}
+   */
+  public PoolStats getConnectionPoolStats() {
+    HttpTransport http = transport.unwrap(HttpTransport.class);
+    return http == null ? null : http.getConnectionPoolStats();
+  }
+
+  /**
+   * @return byte counts of compressed responses read by this client, null
+   *         if requests are not sent through an {@link HttpTransport}
+   */
+  public CompressionStats getCompressionStats() {
+    HttpTransport http = transport.unwrap(HttpTransport.class);
+    return http == null ? null : http.getCompressionStats();
+  }
+
+  /**
+   * @return limiter admitting the requests of this client, null if
+   *         adaptive concurrency is disabled
+   */
+  public ConcurrencyLimiter getConcurrencyLimiter() {
+    LimitedTransport limited = transport.unwrap(LimitedTransport.class);
+    return limited == null ? null : limited.getLimiter();
+  }
+
+  /**
+   * Close the underlying transport. The client cannot be used after it has
+   * been closed.
+   */
+  @Override
+  public void close() {
+    sourceRegistry.close();
+    transport.close();
   }
 
   public ClientConfig getConfig() {
@@ -222,11 +366,11 @@ public class NavApiCient {
    * @return
    */
   public Source getSourceForUrl(String serviceUrl) {
-    Source source = sourceCacheByUrl.getIfPresent(serviceUrl);
+    SourceRegistry.Snapshot snapshot = sourceRegistry.getSnapshot();
+    Source source = snapshot.getSourceForUrl(serviceUrl);
     if (source == null) {
-      loadAllSources();
+      source = sourceRegistry.refresh(snapshot).getSourceForUrl(serviceUrl);
     }
-    source = sourceCacheByUrl.getIfPresent(serviceUrl);
     Preconditions.checkArgument(source != null,
         "Could not find Source at " + serviceUrl);
     return source;
@@ -246,38 +390,31 @@ public class NavApiCient {
     return Iterables.getOnlyElement(sources);
   }
 
+  /**
+   * @param sourceType
+   * @return Sources of the given type, null if there are none
+   */
   public Collection<Source> getSourcesForType(SourceType sourceType) {
-    Collection<Source> sources = sourceCacheByType.getIfPresent(sourceType);
-    if (sources == null) {
-      loadAllSources();
-      sources = sourceCacheByType.getIfPresent(sourceType);
+    SourceRegistry.Snapshot snapshot = sourceRegistry.getSnapshot();
+    Collection<Source> sources = snapshot.getSourcesForType(sourceType);
+    if (sources.isEmpty()) {
+      sources = sourceRegistry.refresh(snapshot).getSourcesForType(sourceType);
     }
-    return sources;
+    return sources.isEmpty() ? null : sources;
   }
 
   /**
-   * Clear the cache of Sources that have been previously loaded.
+   * @return registry of the Sources loaded from Navigator
    */
-  public void resetSources() {
-    sourceCacheByUrl.invalidateAll();
-    sourceCacheByType.invalidateAll();
+  public SourceRegistry getSourceRegistry() {
+    return sourceRegistry;
   }
 
   /**
-   * Form headers for sending API calls to the Navigator server
-   *
-   * @return HttpHeaders headers for authorizing the plugin
+   * Clear the cache of Sources that have been previously loaded.
    */
-  private HttpHeaders getAuthHeaders() {
-    // basic authentication with base64 encoding
-    String plainCreds = String.format("%s:%s", config.getUsername(),
-        config.getPassword());
-    byte[] plainCredsBytes = plainCreds.getBytes();
-    byte[] base64CredsBytes = Base64.encodeBase64(plainCredsBytes);
-    String base64Creds = new String(base64CredsBytes);
-    HttpHeaders headers = new HttpHeaders();
-    headers.add("Authorization", "Basic " + base64Creds);
-    return headers;
+  public void resetSources() {
+    sourceRegistry.invalidate();
   }
 
   /**
@@ -291,8 +428,7 @@ public class NavApiCient {
   }
 
   String getApiUrl() {
-    return joinUrlPath(config.getNavigatorUrl(),
-        "/api/v" + String.valueOf(config.getApiVersion()));
+    return transport.getApiUrl();
   }
 
   private String pagingUrl(String type) {
@@ -301,32 +437,6 @@ public class NavApiCient {
     return typeUrl + "/paging";
   }
 
-  private void loadAllSources() {
-    Collection<Source> allSources = getAllSources();
-    for (Source source : allSources) {
-      if (source.getSourceUrl() == null) {
-        LOG.warn(String.format("Source %s did not have a source url",
-            source.getName() != null ? source.getName() :
-                source.getIdentity()));
-        continue;
-      }
-      sourceCacheByUrl.put(source.getSourceUrl(), source);
-      try {
-        Collection<Source> forType = sourceCacheByType.get(
-            source.getSourceType(),
-            new Callable<Collection<Source>>() {
-              @Override
-              public Collection<Source> call() throws Exception {
-                return Sets.newHashSet();
-              }
-            });
-        forType.add(source);
-      } catch (ExecutionException e) {
-        throw Throwables.propagate(e);
-      }
-    }
-  }
-
   private static String joinUrlPath(String base, String component) {
     boolean baseSlash = base.endsWith("/");
     boolean componentSlash = component.startsWith("/");
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+/**
+ * Sends requests to the Navigator API. Both the {@link NavApiCient} and the
+ * metadata writers go through a transport, so an alternative implementation
+ * (a different HTTP stack, an in-process fake for tests) can be plugged in
+ * for every call at once.
+ *
+ * Requests returned by {@link #createRequest(URI, HttpMethod)} are already
+ * authorized, callers only add the content specific headers and body.
+ * {@link HttpTransport} is the default implementation.
+ */
+public interface NavTransport extends ClientHttpRequestFactory, Closeable {
+
+  /**
+   * Create a new authorized request for the given URI
+   */
+  @Override
+  ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod)
+      throws IOException;
+
+  /**
+   * @return base url of the versioned Navigator API
+   */
+  String getApiUrl();
+
+  /**
+   * Find a transport of the given type in the chain of transports that
+   * requests pass through, e.g. to reach the statistics of the
+   * {@link HttpTransport} underneath a {@link RetryingTransport}
+   *
+   * @return this transport if it is of the given type, otherwise the result
+   *         of unwrapping the transport it delegates to, null if there is
+   *         none of the given type
+   */
+  <T> T unwrap(Class<T> type);
+
+  /**
+   * Release the resources held by this transport. It cannot be used after
+   * it has been closed.
+   */
+  @Override
+  void close();
+}
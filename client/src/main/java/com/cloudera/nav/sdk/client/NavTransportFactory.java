@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the {@link NavTransport} used when a client, plugin or writer
+ * factory is constructed from a {@link ClientConfig} alone
+ */
+public class NavTransportFactory {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(NavTransportFactory.class);
+
+  /**
+   * Create the default transport for the given configuration: an
+   * {@link HttpTransport}, or the transport of the configured
+   * {@link NavTransportProvider}, limited by a new {@link ConcurrencyLimiter} if
+   * adaptive concurrency is enabled, and wrapped in a
+   * {@link RetryingTransport} unless both retries and the circuit breaker are
+   * disabled
+   *
+   * @param config
+   * @return a new transport, to be closed by the caller
+   */
+  public NavTransport newTransport(ClientConfig config) {
+    return newTransport(config, config.isAdaptiveConcurrency() ?
+        new ConcurrencyLimiter(config) : null);
+  }
+
+  /**
+   * {@link #newTransport(ClientConfig)} sharing the given limiter, so that
+   * several clients in the same process adapt to Navigator together
+   *
+   * @param config
+   * @param limiter concurrency limiter, null for no limit
+   * @return a new transport, to be closed by the caller
+   */
+  public NavTransport newTransport(ClientConfig config,
+                                   ConcurrencyLimiter limiter) {
+    NavTransport transport = newBaseTransport(config);
+    if (limiter != null) {
+      // every attempt of a retried request is admitted separately, so no
+      // slot is held while backing off
+      transport = new LimitedTransport(transport, limiter);
+    }
+    if (config.getRetryMaxAttempts() > 1 ||
+        config.getCircuitBreakerFailureThreshold() > 0) {
+      transport = new RetryingTransport(transport, new RetryPolicy(config),
+          new CircuitBreaker(config));
+    }
+    return transport;
+  }
+
+  /**
+   * Create the transport of the configured provider, falling back to an
+   * {@link HttpTransport} if there is none or it cannot be used
+   */
+  @VisibleForTesting
+  NavTransport newBaseTransport(ClientConfig config) {
+    String providerClass = config.getTransportProvider();
+    if (providerClass != null) {
+      try {
+        NavTransportProvider provider = Class.forName(providerClass)
+            .asSubclass(NavTransportProvider.class).newInstance();
+        NavTransport transport = provider.newTransport(config);
+        if (transport != null) {
+          return transport;
+        }
+        LOG.info("Transport provider {} is not available for {}, using " +
+            "HTTP/1.1", providerClass, config.getNavigatorUrl());
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        LOG.warn("Could not create a transport with provider " +
+            providerClass + ", using HTTP/1.1", e);
+      }
+    }
+    return new HttpTransport(config);
+  }
+}
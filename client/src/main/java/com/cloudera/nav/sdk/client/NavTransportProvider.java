@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+/**
+ * Creates the underlying {@link NavTransport} in place of the default
+ * {@link HttpTransport}, for instance one that multiplexes concurrent
+ * requests over a few HTTP/2 connections. It is selected with
+ * {@link ClientConfig#getTransportProvider()} and must have a public no-arg
+ * constructor.
+ *
+ * The transport it creates is wrapped in the same concurrency limiting and
+ * retrying transports as the default one, so it only has to send requests.
+ */
+public interface NavTransportProvider {
+
+  /**
+   * @param config
+   * @return a new transport, or null if it cannot be used with the given
+   *         configuration (e.g. the server does not negotiate HTTP/2), in
+   *         which case the default transport is used instead
+   */
+  NavTransport newTransport(ClientConfig config);
+}
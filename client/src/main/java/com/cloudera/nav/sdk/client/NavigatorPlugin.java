@@ -26,6 +26,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -41,7 +42,7 @@ import org.slf4j.LoggerFactory;
  * write enriched data to be combined with Navigator's lineage and metadata
  * information
  */
-public class NavigatorPlugin {
+public class NavigatorPlugin implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(NavigatorPlugin
       .class);
@@ -78,14 +79,7 @@ public class NavigatorPlugin {
    */
   public NavigatorPlugin(ClientConfig config,
                          MetadataWriterFactory factory) {
-    Preconditions.checkArgument(!StringUtils.isEmpty(config.getNavigatorUrl()),
-        "No Navigator URL configured");
-    Preconditions.checkArgument(config.getApiVersion() >= 7,
-        "Minimum API version supported is v7 for writing to Navigator");
-    Preconditions.checkNotNull(factory);
-    this.config = config;
-    this.factory = factory;
-    this.client = new NavApiCient(config);
+    this(config, Preconditions.checkNotNull(factory), null);
   }
 
   /**
@@ -95,7 +89,33 @@ public class NavigatorPlugin {
    * @param config
    */
   public NavigatorPlugin(ClientConfig config) {
-    this(config, new MetadataWriterFactory(config));
+    this(config, (NavTransport) null);
+  }
+
+  /**
+   * Create a plugin that sends both API calls and metadata writes through
+   * the given transport. A default transport is created if none is given.
+   *
+   * @param config
+   * @param transport
+   */
+  public NavigatorPlugin(ClientConfig config, NavTransport transport) {
+    this(config, null, transport);
+  }
+
+  private NavigatorPlugin(ClientConfig config, MetadataWriterFactory factory,
+                          NavTransport transport) {
+    Preconditions.checkArgument(!StringUtils.isEmpty(config.getNavigatorUrl()),
+        "No Navigator URL configured");
+    Preconditions.checkArgument(config.getApiVersion() >= 7,
+        "Minimum API version supported is v7 for writing to Navigator");
+    if (transport == null) {
+      transport = new NavTransportFactory().newTransport(config);
+    }
+    this.config = config;
+    this.client = new NavApiCient(config, transport);
+    this.factory = factory != null ? factory :
+        new MetadataWriterFactory(config, transport);
   }
 
   /**
@@ -176,6 +196,13 @@ public class NavigatorPlugin {
     return client;
   }
 
+  /**
+   * @return the factory creating the writers for new metadata
+   */
+  public MetadataWriterFactory getWriterFactory() {
+    return factory;
+  }
+
   public ClientConfig getConfig() {
     return config;
   }
@@ -183,4 +210,13 @@ public class NavigatorPlugin {
   public String getNamespace() {
     return config.getNamespace();
   }
+
+  /**
+   * Release the connections held by the underlying client and writer factory
+   */
+  @Override
+  public void close() {
+    client.close();
+    factory.close();
+  }
 }
\ No newline at end of file
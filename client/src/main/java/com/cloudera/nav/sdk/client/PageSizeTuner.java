@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the number of results requested per page from the response time
+ * and size of the pages before. After every page the size is scaled so the
+ * next page would take the target time and, unless the byte target is 0,
+ * have the target size. A page may at most double the size and is kept
+ * between the configured bounds. A page that ended its query early is not
+ * used to grow the size, its fixed overhead would dominate the estimate.
+ *
+ * The getters of the last page and of the number of pages are metrics of
+ * the tuning. A tuner may be shared by the threads paging a single query.
+ */
+public class PageSizeTuner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      PageSizeTuner.class);
+  private static final int MAX_GROWTH = 2;
+
+  private final int minPageSize;
+  private final int maxPageSize;
+  private final long targetMillis;
+  private final long targetBytes;
+  private int pageSize;
+  private long pages;
+  private long lastPageMillis;
+  private long lastPageBytes = -1L;
+
+  /**
+   * @param initialPageSize page size before the first page was recorded
+   */
+  public PageSizeTuner(ClientConfig config, int initialPageSize) {
+    this(initialPageSize, config.getMinPageSize(), config.getMaxPageSize(),
+        config.getTargetPageMillis(), config.getTargetPageBytes());
+  }
+
+  @VisibleForTesting
+  PageSizeTuner(int initialPageSize, int minPageSize, int maxPageSize,
+                long targetMillis, long targetBytes) {
+    Preconditions.checkArgument(minPageSize > 0 && minPageSize <= maxPageSize,
+        "Invalid page size bounds [%s, %s]", minPageSize, maxPageSize);
+    Preconditions.checkArgument(targetMillis > 0,
+        "Target page time must be positive");
+    this.minPageSize = minPageSize;
+    this.maxPageSize = maxPageSize;
+    this.targetMillis = targetMillis;
+    this.targetBytes = targetBytes;
+    this.pageSize = clamp(initialPageSize);
+  }
+
+  /**
+   * @return number of results to request for the next page
+   */
+  public synchronized int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * @return number of pages recorded so far
+   */
+  public synchronized long getPages() {
+    return pages;
+  }
+
+  /**
+   * @return response time of the last page
+   */
+  public synchronized long getLastPageMillis() {
+    return lastPageMillis;
+  }
+
+  /**
+   * @return size of the last page, -1 if unknown
+   */
+  public synchronized long getLastPageBytes() {
+    return lastPageBytes;
+  }
+
+  /**
+   * Adjust the page size to a page that was received
+   *
+   * @param requested number of results that were requested
+   * @param results number of results returned
+   * @param millis response time of the page
+   * @param bytes size of the page, -1 if unknown
+   */
+  public synchronized void record(int requested, int results, long millis,
+                                  long bytes) {
+    pages++;
+    lastPageMillis = millis;
+    lastPageBytes = bytes;
+    if (results == 0) {
+      return;
+    }
+    double scale = targetMillis / (double) Math.max(millis, 1L);
+    if (targetBytes > 0 && bytes >= 0) {
+      scale = Math.min(scale, targetBytes / (double) Math.max(bytes, 1L));
+    }
+    if (scale > 1.0 && results < requested) {
+      return;
+    }
+    long proposed = Math.min((long) (results * scale),
+        (long) pageSize * MAX_GROWTH);
+    int previous = pageSize;
+    pageSize = clamp(proposed);
+    if (pageSize != previous) {
+      LOG.debug("Page size changed from {} to {} after {} results in {}ms " +
+          "and {} bytes", previous, pageSize, results, millis, bytes);
+    }
+  }
+
+  private int clamp(long size) {
+    return (int) Math.max(minPageSize, Math.min(maxPageSize, size));
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Iterator over the same results as a {@link MetadataResultIterator}, paging
+ * several extractorRunId partitions concurrently instead of one after
+ * another. Each partition is paged by its own MetadataResultIterator, with
+ * the same retries and streaming, on one of the iterator's threads.
+ *
+ * Results are either returned in partition order, the order of a serial
+ * iterator, or in the order they arrive. Workers stop fetching once the
+ * buffer of results that have not been consumed is full: a single buffer
+ * shared by all partitions when unordered, one per partition otherwise. At
+ * most as many partitions as there are threads are started but not yet
+ * consumed at any time.
+ *
+ * The iterator owns its threads, so it should be closed if it is abandoned
+ * before it is exhausted. Any failure of a partition is thrown from
+ * {@link #next()} or {@link #hasNext()} after the iterator has been closed.
+ */
+public class ParallelMetadataResultIterator
+    implements Iterator<Map<String, Object>>, Closeable {
+
+  private final NavApiCient client;
+  private final MetadataType type;
+  private final String userQuery;
+  private final Integer limit;
+  private final Collection<String> fields;
+  private final int parallelism;
+  private final int bufferSize;
+  private final boolean ordered;
+  private final Iterator<List<String>> partitions;
+  private final ExecutorService executor;
+  private final BlockingQueue<Object> sharedBuffer;
+  private final Deque<Partition> started = new ArrayDeque<>();
+  private Map<String, Object> nextResult;
+  private boolean closed;
+
+  public ParallelMetadataResultIterator(NavApiCient client, MetadataType type,
+                                        String query, Integer limit,
+                                        Iterable<String> extractorRunIds) {
+    this(client, type, query, limit, extractorRunIds,
+        client.getConfig().getParallelExtractionThreads(),
+        client.getConfig().getParallelExtractionBufferSize(),
+        client.getConfig().isParallelExtractionOrdered());
+  }
+
+  /**
+   * @param parallelism number of partitions paged concurrently
+   * @param bufferSize maximum number of fetched results not consumed yet,
+   *                   per partition if ordered
+   * @param ordered whether results are returned in partition order
+   */
+  public ParallelMetadataResultIterator(NavApiCient client, MetadataType type,
+                                        String query, Integer limit,
+                                        Iterable<String> extractorRunIds,
+                                        int parallelism, int bufferSize,
+                                        boolean ordered) {
+    this(client, type, query, limit, extractorRunIds, null, parallelism,
+        bufferSize, ordered);
+  }
+
+  /**
+   * @param fields fields to return for every result, null for all fields
+   * @param parallelism number of partitions paged concurrently
+   * @param bufferSize maximum number of fetched results not consumed yet,
+   *                   per partition if ordered
+   * @param ordered whether results are returned in partition order
+   */
+  public ParallelMetadataResultIterator(NavApiCient client, MetadataType type,
+                                        String query, Integer limit,
+                                        Iterable<String> extractorRunIds,
+                                        Collection<String> fields,
+                                        int parallelism, int bufferSize,
+                                        boolean ordered) {
+    Preconditions.checkArgument(parallelism > 0,
+        "Parallelism must be positive");
+    Preconditions.checkArgument(bufferSize > 0,
+        "Buffer size must be positive");
+    this.client = client;
+    this.type = type;
+    this.userQuery = query;
+    this.limit = limit;
+    this.fields = fields;
+    this.parallelism = parallelism;
+    this.bufferSize = bufferSize;
+    this.ordered = ordered;
+    // without extractorRunIds a single query for the user query is paged
+    this.partitions = Iterables.isEmpty(extractorRunIds) ?
+        Iterators.singletonIterator(Collections.<String>emptyList()) :
+        Iterables.partition(extractorRunIds,
+            MetadataResultIterator.MAX_QUERY_PARTITION_SIZE).iterator();
+    this.sharedBuffer = ordered ? null :
+        new ArrayBlockingQueue<Object>(bufferSize);
+    this.executor = Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder()
+            .setNameFormat("nav-partition-iterator-%d")
+            .setDaemon(true)
+            .build());
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextResult == null) {
+      nextResult = computeNext();
+    }
+    return nextResult != null;
+  }
+
+  @Override
+  public Map<String, Object> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map<String, Object> result = nextResult;
+    nextResult = null;
+    return result;
+  }
+
+  /**
+   * @return the next result, null once all partitions have been consumed
+   */
+  private Map<String, Object> computeNext() {
+    while (!closed) {
+      while (started.size() < parallelism && partitions.hasNext()) {
+        Partition partition = new Partition(partitions.next());
+        started.add(partition);
+        executor.execute(partition);
+      }
+      if (started.isEmpty()) {
+        close();
+        break;
+      }
+      Object item = take(ordered ? started.peek().buffer : sharedBuffer);
+      if (item instanceof Partition) {
+        // the partition has been fully fetched and consumed
+        Partition partition = (Partition) item;
+        started.remove(partition);
+        if (partition.failure != null) {
+          close();
+          throw Throwables.propagate(partition.failure);
+        }
+      } else {
+        return asResult(item);
+      }
+    }
+    return null;
+  }
+
+  private Object take(BlockingQueue<Object> buffer) {
+    try {
+      return buffer.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> asResult(Object item) {
+    return (Map<String, Object>) item;
+  }
+
+  /**
+   * @return number of partitions that have been started but not consumed
+   */
+  public int getStartedPartitions() {
+    return started.size();
+  }
+
+  /**
+   * Stop all partitions still being fetched. No further results are
+   * returned after the iterator is closed.
+   */
+  @Override
+  public void close() {
+    nextResult = null;
+    if (!closed) {
+      closed = true;
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Unsupported
+   */
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Pages one partition into its buffer, followed by itself to mark the end
+   */
+  private class Partition implements Runnable {
+
+    private final List<String> extractorRunIds;
+    private final BlockingQueue<Object> buffer;
+    private volatile Throwable failure;
+
+    Partition(List<String> extractorRunIds) {
+      this.extractorRunIds = extractorRunIds;
+      this.buffer = ordered ? new ArrayBlockingQueue<Object>(bufferSize) :
+          sharedBuffer;
+    }
+
+    @Override
+    public void run() {
+      MetadataResultIterator results = null;
+      try {
+        results = new MetadataResultIterator(client, type, userQuery, limit,
+            extractorRunIds, fields, null);
+        while (results.hasNext()) {
+          buffer.put(results.next());
+        }
+      } catch (InterruptedException e) {
+        // closed while waiting for buffer space
+        return;
+      } catch (Throwable t) {
+        failure = t;
+      } finally {
+        if (results != null) {
+          results.close();
+        }
+      }
+      try {
+        buffer.put(this);
+      } catch (InterruptedException e) {
+        // closed, nobody is waiting for the end of the partition
+      }
+    }
+  }
+}
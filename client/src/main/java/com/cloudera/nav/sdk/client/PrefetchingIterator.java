@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Iterator that takes the elements of another iterator on a background
+ * thread, up to the given number of elements ahead of the consumer. A
+ * failure of the other iterator is thrown to the consumer once it reaches
+ * the failed element.
+ *
+ * The iterator should be closed if it is abandoned before it is exhausted,
+ * which stops the background thread.
+ */
+class PrefetchingIterator<T> implements Iterator<T>, Closeable {
+
+  private static final Object END = new Object();
+
+  private final BlockingQueue<Object> prefetched;
+  private final ExecutorService executor;
+  private Object next;
+
+  /**
+   * @param source iterator to take the elements from, only used by the
+   *               background thread from now on
+   * @param capacity maximum number of elements taken ahead
+   * @param nameFormat name format of the background thread
+   */
+  PrefetchingIterator(final Iterator<? extends T> source, int capacity,
+                      String nameFormat) {
+    this.prefetched = new ArrayBlockingQueue<>(capacity);
+    this.executor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat(nameFormat)
+            .setDaemon(true)
+            .build());
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        prefetch(source);
+      }
+    });
+  }
+
+  private void prefetch(Iterator<? extends T> source) {
+    Object last = END;
+    try {
+      while (source.hasNext()) {
+        prefetched.put(source.next());
+      }
+    } catch (InterruptedException e) {
+      // closed while waiting for the consumer
+      return;
+    } catch (Throwable t) {
+      last = new Failure(t);
+    }
+    try {
+      prefetched.put(last);
+    } catch (InterruptedException e) {
+      // closed, nobody is waiting for the end of the elements
+    }
+  }
+
+  /**
+   * Wait until the next element was taken or the other iterator ended
+   */
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = prefetched.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw Throwables.propagate(e);
+      }
+      if (next == END) {
+        close();
+      }
+    }
+    if (next instanceof Failure) {
+      close();
+      throw Throwables.propagate(((Failure) next).cause);
+    }
+    return next != END;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T element = (T) next;
+    next = null;
+    return element;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Unsupported
+   */
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Failure of the other iterator, passed on to the consumer
+   */
+  private static class Failure {
+    private final Throwable cause;
+
+    Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+}
@@ -17,8 +17,14 @@
 package com.cloudera.nav.sdk.client;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -27,6 +33,8 @@ import org.apache.commons.lang.StringUtils;
  */
 public class QueryUtils {
 
+  private static final String RUN_ID_SEPARATOR = "##";
+
   /**
    * Makes a conjunctive "AND" Solr query with two clauses.
    *
@@ -71,4 +79,115 @@ public class QueryUtils {
     String typeClause = buildConjunctiveClause("type", types);
     return conjoinSolrQueries(sourceClause, typeClause);
   }
+
+  /**
+   * Builds a regular expression term matching the extractorRunIds of the
+   * given source for every extract iteration from start to end. Run ids are
+   * strings, so a range query would also match e.g. 100 for [1 TO 2]; the
+   * pattern matches exactly the decimal numbers in the window. It is valid
+   * both as a Lucene regular expression and a java.util.regex.Pattern.
+   *
+   * @param sourceId identity of the source
+   * @param start first extract iteration
+   * @param end last extract iteration, inclusive
+   * @return /sourceId##(iterations)/
+   */
+  public static String buildExtractorRunIdPattern(String sourceId,
+                                                  long start, long end) {
+    return "/" + escapeRegex(sourceId + RUN_ID_SEPARATOR) + "(" +
+        buildNumericRangePattern(start, end) + ")/";
+  }
+
+  /**
+   * Builds a regular expression that matches the decimal representation,
+   * without leading zeros, of every number from start to end
+   *
+   * @param start non-negative lower bound
+   * @param end upper bound, inclusive
+   * @return alternatives such as 9|[1-9][0-9]|1[0-2][0-9]|130
+   */
+  public static String buildNumericRangePattern(long start, long end) {
+    Preconditions.checkArgument(0 <= start && start <= end,
+        "Invalid range %s to %s", start, end);
+    // split the range into sub-ranges whose bounds only differ in a prefix
+    // of digits followed by digits spanning 0 to 9
+    SortedSet<Long> stops = Sets.newTreeSet();
+    stops.add(end);
+    for (int nines = 1; ; nines++) {
+      long stop = fillByNines(start, nines);
+      if (stop < start || stop >= end) {
+        break;
+      }
+      stops.add(stop);
+    }
+    for (int zeros = 1; ; zeros++) {
+      long stop = fillByZeros(end + 1, zeros) - 1;
+      if (stop <= start || stop > end) {
+        break;
+      }
+      stops.add(stop);
+    }
+    List<String> patterns = Lists.newArrayList();
+    long from = start;
+    for (long stop : stops) {
+      patterns.add(rangeToPattern(from, stop));
+      from = stop + 1;
+    }
+    return Joiner.on("|").join(patterns);
+  }
+
+  /**
+   * Pattern for a range whose bounds have the same number of digits
+   */
+  private static String rangeToPattern(long start, long stop) {
+    String from = Long.toString(start);
+    String to = Long.toString(stop);
+    StringBuilder pattern = new StringBuilder();
+    int anyDigits = 0;
+    for (int i = 0; i < from.length(); i++) {
+      char low = from.charAt(i);
+      char high = to.charAt(i);
+      if (low == high) {
+        pattern.append(low);
+      } else if (low != '0' || high != '9') {
+        pattern.append('[').append(low).append('-').append(high).append(']');
+      } else {
+        anyDigits++;
+      }
+    }
+    return pattern + Strings.repeat("[0-9]", anyDigits);
+  }
+
+  /**
+   * @return n with its last count digits replaced by 9s, all 9s if it has
+   *         fewer digits
+   */
+  private static long fillByNines(long n, int count) {
+    String digits = Long.toString(n);
+    if (count >= 19) {
+      return Long.MAX_VALUE;
+    }
+    String prefix = count < digits.length() ?
+        digits.substring(0, digits.length() - count) : "";
+    return Long.parseLong(prefix + Strings.repeat("9", count));
+  }
+
+  /**
+   * @return n with its last count digits replaced by 0s
+   */
+  private static long fillByZeros(long n, int count) {
+    long factor = (long) Math.pow(10, count);
+    return n - n % factor;
+  }
+
+  private static String escapeRegex(String literal) {
+    StringBuilder escaped = new StringBuilder();
+    for (char c : literal.toCharArray()) {
+      if (!Character.isLetterOrDigit(c)) {
+        escaped.append('\\');
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Request whose headers and body are buffered so that it can be sent more
+ * than once, each time as a new request of an underlying factory
+ */
+abstract class ReplayableRequest implements ClientHttpRequest {
+
+  private final URI uri;
+  private final HttpMethod method;
+  private final HttpHeaders headers = new HttpHeaders();
+  private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+  private boolean executed;
+
+  ReplayableRequest(URI uri, HttpMethod method) {
+    this.uri = uri;
+    this.method = method;
+  }
+
+  @Override
+  public final ClientHttpResponse execute() throws IOException {
+    Preconditions.checkState(!executed, "Request has already been sent");
+    executed = true;
+    return executeReplayable();
+  }
+
+  /**
+   * Send the request one or more times with {@link #send}
+   */
+  protected abstract ClientHttpResponse executeReplayable() throws IOException;
+
+  /**
+   * Send a copy of this request through the given factory
+   */
+  protected ClientHttpResponse send(ClientHttpRequestFactory factory)
+      throws IOException {
+    ClientHttpRequest request = factory.createRequest(uri, method);
+    request.getHeaders().putAll(headers);
+    body.writeTo(request.getBody());
+    return request.execute();
+  }
+
+  @Override
+  public OutputStream getBody() {
+    return body;
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    return headers;
+  }
+
+  @Override
+  public HttpMethod getMethod() {
+    return method;
+  }
+
+  @Override
+  public URI getURI() {
+    return uri;
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Incrementally parsed batch of results from a paging request. Unlike
+ * {@link ResultsBatch}, results are parsed one at a time as they are
+ * consumed, so only a single result of the page is held in memory.
+ *
+ * The cursorMark is captured whenever it appears in the response. If it
+ * follows the results, it is only available once the stream has been
+ * exhausted. The stream closes itself after the last result; it should be
+ * closed explicitly if it is abandoned earlier.
+ *
+ * If a set of fields is given, every other field of a result is skipped by
+ * the parser without being materialized.
+ */
+public class ResultsStream implements Iterator<Map<String, Object>>,
+    Closeable {
+
+  private static final String CURSOR_MARK = "cursorMark";
+  private static final Set<String> RESULT_FIELDS = ImmutableSet.of(
+      "results", "entities", "relations");
+  private static final TypeReference<Map<String, Object>> RESULT_TYPE =
+      new TypeReference<Map<String, Object>>(){};
+
+  private final Closeable response;
+  private final JsonParser parser;
+  private final ObjectMapper mapper;
+  private final Set<String> fields;
+  private String cursorMark;
+  private int count;
+  private long bytesRead = -1L;
+  private boolean inResults;
+  private boolean closed;
+
+  public ResultsStream(InputStream body, Closeable response,
+                       ObjectMapper mapper) throws IOException {
+    this(body, response, mapper, null);
+  }
+
+  /**
+   * @param fields fields to keep for every result, null to keep all fields
+   */
+  public ResultsStream(InputStream body, Closeable response,
+                       ObjectMapper mapper, Set<String> fields)
+      throws IOException {
+    this.response = response;
+    this.mapper = mapper;
+    this.fields = fields;
+    this.parser = mapper.getFactory().createParser(body);
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      close();
+      throw new IOException("Expected a JSON object for the results batch");
+    }
+    advance();
+  }
+
+  /**
+   * @return cursor for the next batch, null if it has not been parsed yet
+   */
+  public String getCursorMark() {
+    return cursorMark;
+  }
+
+  /**
+   * @return number of results returned so far
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return bytes of the response parsed so far, -1 if unknown
+   */
+  public long getBytesRead() {
+    return closed ? bytesRead :
+        parser.getCurrentLocation().getByteOffset();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return inResults;
+  }
+
+  @Override
+  public Map<String, Object> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      Map<String, Object> result = fields == null ?
+          mapper.<Map<String, Object>>readValue(parser, RESULT_TYPE) :
+          readProjection();
+      count++;
+      advance();
+      return result;
+    } catch (IOException e) {
+      close();
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Parse the current result keeping only the selected fields
+   */
+  private Map<String, Object> readProjection() throws IOException {
+    Map<String, Object> result =
+        Maps.newHashMapWithExpectedSize(fields.size());
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if (fields.contains(field)) {
+        result.put(field, mapper.readValue(parser, Object.class));
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Move the parser to the start of the next result, or to the end of the
+   * response if there are no more results
+   */
+  private void advance() throws IOException {
+    JsonToken token = parser.nextToken();
+    if (inResults) {
+      if (token == JsonToken.START_OBJECT) {
+        return;
+      }
+      // end of the results array, pick up any trailing fields
+      inResults = false;
+      token = parser.nextToken();
+    }
+    while (token == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      token = parser.nextToken();
+      if (CURSOR_MARK.equals(field)) {
+        cursorMark = parser.getValueAsString();
+      } else if (RESULT_FIELDS.contains(field) &&
+          token == JsonToken.START_ARRAY) {
+        token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+          inResults = true;
+          return;
+        }
+      } else {
+        parser.skipChildren();
+      }
+      token = parser.nextToken();
+    }
+    close();
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    bytesRead = getBytesRead();
+    closed = true;
+    inResults = false;
+    try {
+      parser.close();
+      response.close();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Unsupported
+   */
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+}
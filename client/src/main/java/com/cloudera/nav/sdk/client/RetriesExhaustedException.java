@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link RetryingTransport} when a request still fails with an
+ * I/O error after all attempts allowed by its {@link RetryPolicy}
+ */
+public class RetriesExhaustedException extends IOException {
+
+  private final int attempts;
+
+  public RetriesExhaustedException(int attempts, IOException cause) {
+    super(String.format("Request failed after %d attempt(s): %s", attempts,
+        cause.getMessage()), cause);
+    this.attempts = attempts;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+}
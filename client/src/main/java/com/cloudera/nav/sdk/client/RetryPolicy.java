@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether and when a failed request to Navigator is attempted again.
+ * The delay before a retry is drawn uniformly between 0 and an exponentially
+ * growing bound ("full jitter"), so clients that failed together do not
+ * retry together. No attempt is started once the max elapsed time since the
+ * first attempt would be exceeded.
+ */
+public class RetryPolicy {
+
+  private static final RetryPolicy NO_RETRIES = new RetryPolicy(1, 0L, 0L, 0L,
+      ImmutableSet.<Integer>of(), ImmutableSet.<Integer>of());
+
+  /**
+   * @return a policy that never retries
+   */
+  public static RetryPolicy noRetries() {
+    return NO_RETRIES;
+  }
+
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final long maxElapsedMillis;
+  private final Set<Integer> retryableStatuses;
+  private final Set<Integer> retryableStatusClasses;
+  private final Random random = new Random();
+
+  public RetryPolicy(ClientConfig config) {
+    this(config.getRetryMaxAttempts(), config.getRetryInitialBackoffMillis(),
+        config.getRetryMaxBackoffMillis(), config.getRetryMaxElapsedMillis(),
+        parseStatuses(config.getRetryStatusCodes(), false),
+        parseStatuses(config.getRetryStatusCodes(), true));
+  }
+
+  private RetryPolicy(int maxAttempts, long initialBackoffMillis,
+                      long maxBackoffMillis, long maxElapsedMillis,
+                      Set<Integer> retryableStatuses,
+                      Set<Integer> retryableStatusClasses) {
+    Preconditions.checkArgument(maxAttempts > 0,
+        "At least one attempt is required");
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.maxElapsedMillis = maxElapsedMillis;
+    this.retryableStatuses = retryableStatuses;
+    this.retryableStatusClasses = retryableStatusClasses;
+  }
+
+  /**
+   * @return true if a response with the given status should be retried
+   */
+  public boolean isRetryableStatus(int statusCode) {
+    return retryableStatuses.contains(statusCode) ||
+        retryableStatusClasses.contains(statusCode / 100);
+  }
+
+  /**
+   * Whether a request that failed with the given exception should be
+   * attempted again. Only I/O errors qualify, unless the retries of a
+   * {@link RetryingTransport} have already been exhausted or its circuit
+   * breaker is open.
+   */
+  public boolean isRetryable(Throwable t) {
+    boolean io = false;
+    for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+      if (cause instanceof RetriesExhaustedException ||
+          cause instanceof CircuitBreakerOpenException) {
+        return false;
+      }
+      io |= cause instanceof IOException;
+    }
+    return io;
+  }
+
+  /**
+   * Wait before the next attempt of a request.
+   *
+   * @param attempts number of attempts made so far
+   * @param startNanos {@link System#nanoTime()} of the first attempt
+   * @return false without waiting if no further attempt should be made
+   */
+  public boolean awaitRetry(int attempts, long startNanos)
+      throws InterruptedIOException {
+    long delay = getRetryDelayMillis(attempts, startNanos);
+    if (delay < 0) {
+      return false;
+    }
+    sleep(delay);
+    return true;
+  }
+
+  /**
+   * @param attempts number of attempts made so far
+   * @param startNanos {@link System#nanoTime()} of the first attempt
+   * @return delay before the next attempt of a request, -1 if no further
+   *         attempt should be made
+   */
+  public long getRetryDelayMillis(int attempts, long startNanos) {
+    if (attempts >= maxAttempts) {
+      return -1L;
+    }
+    long delay = getBackoffMillis(attempts);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(
+        System.nanoTime() - startNanos);
+    return elapsed + delay > maxElapsedMillis ? -1L : delay;
+  }
+
+  /**
+   * Wait for the given delay, as returned by
+   * {@link #getRetryDelayMillis(int, long)}
+   */
+  public void sleep(long delayMillis) throws InterruptedIOException {
+    try {
+      TimeUnit.MILLISECONDS.sleep(delayMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+
+  /**
+   * @return randomized delay before the retry following the given number of
+   *         attempts
+   */
+  long getBackoffMillis(int attempts) {
+    long bound = initialBackoffMillis;
+    for (int i = 1; i < attempts && bound < maxBackoffMillis; i++) {
+      bound *= 2;
+    }
+    bound = Math.min(bound, maxBackoffMillis);
+    return bound <= 0 ? 0L : (long) (random.nextDouble() * (bound + 1));
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  private static Set<Integer> parseStatuses(String statusCodes,
+                                            boolean classes) {
+    ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+    if (statusCodes == null) {
+      return builder.build();
+    }
+    for (String code : Splitter.on(',').trimResults().omitEmptyStrings()
+        .split(statusCodes)) {
+      boolean isClass = code.toLowerCase().endsWith("xx");
+      if (isClass == classes) {
+        builder.add(Integer.valueOf(isClass ? code.substring(0, 1) : code));
+      }
+    }
+    return builder.build();
+  }
+}
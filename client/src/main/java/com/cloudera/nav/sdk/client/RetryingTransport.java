@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * {@link NavTransport} that retries requests failing with an I/O error or a
+ * retryable status according to a {@link RetryPolicy}, and fails fast while
+ * its {@link CircuitBreaker} is open.
+ *
+ * Request bodies are buffered so they can be replayed. This is safe for
+ * paging reads, which return the same page for the same cursorMark, and for
+ * metadata writes, which are keyed by entity identity. When the attempts are
+ * exhausted, the last error response is returned as is, or a
+ * {@link RetriesExhaustedException} is thrown for I/O errors. Runtime
+ * exceptions of the underlying transport count as failures of the circuit
+ * breaker but are not retried.
+ */
+public class RetryingTransport implements NavTransport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      RetryingTransport.class);
+
+  private final NavTransport delegate;
+  private final RetryPolicy retryPolicy;
+  private final CircuitBreaker circuitBreaker;
+
+  public RetryingTransport(NavTransport delegate, RetryPolicy retryPolicy,
+                           CircuitBreaker circuitBreaker) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+    this.retryPolicy = Preconditions.checkNotNull(retryPolicy);
+    this.circuitBreaker = Preconditions.checkNotNull(circuitBreaker);
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+    return new RetryingRequest(uri, httpMethod);
+  }
+
+  @Override
+  public String getApiUrl() {
+    return delegate.getApiUrl();
+  }
+
+  public NavTransport getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> type) {
+    return type.isInstance(this) ? type.cast(this) : delegate.unwrap(type);
+  }
+
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  private class RetryingRequest extends ReplayableRequest {
+
+    RetryingRequest(URI uri, HttpMethod method) {
+      super(uri, method);
+    }
+
+    @Override
+    protected ClientHttpResponse executeReplayable() throws IOException {
+      long startNanos = System.nanoTime();
+      for (int attempt = 1; ; attempt++) {
+        if (!circuitBreaker.allowRequest()) {
+          throw new CircuitBreakerOpenException(String.format(
+              "Not sending %s %s, Navigator is unavailable", getMethod(),
+              getURI()));
+        }
+        ClientHttpResponse response;
+        int status;
+        try {
+          response = send(delegate);
+          status = response.getRawStatusCode();
+        } catch (IOException e) {
+          circuitBreaker.recordFailure();
+          if (!retryPolicy.awaitRetry(attempt, startNanos)) {
+            throw new RetriesExhaustedException(attempt, e);
+          }
+          LOG.warn("Retrying {} {} after attempt {} failed: {}", getMethod(),
+              getURI(), attempt, e.toString());
+          continue;
+        } catch (RuntimeException e) {
+          // not retried, but the attempt still has to be reported so that a
+          // HALF_OPEN trial does not stay in flight forever
+          circuitBreaker.recordFailure();
+          throw e;
+        }
+        if (!retryPolicy.isRetryableStatus(status)) {
+          circuitBreaker.recordSuccess();
+          return response;
+        }
+        circuitBreaker.recordFailure();
+        long delay = retryPolicy.getRetryDelayMillis(attempt, startNanos);
+        if (delay < 0) {
+          return response;
+        }
+        response.close();
+        LOG.warn("Retrying {} {} after attempt {} returned status {}",
+            getMethod(), getURI(), attempt, status);
+        retryPolicy.sleep(delay);
+      }
+    }
+  }
+}
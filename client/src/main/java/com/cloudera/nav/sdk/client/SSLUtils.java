@@ -84,8 +84,7 @@ public class SSLUtils {
    *
    * @param config
    */
-  @VisibleForTesting
-  static TrustManager getTrustManager(ClientConfig config) {
+  public static TrustManager getTrustManager(ClientConfig config) {
     if (config.isDisableSSLValidation()) {
       return new AcceptAllTrustManager();
     }
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import com.cloudera.nav.sdk.model.Source;
+import com.cloudera.nav.sdk.model.SourceType;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sources known to Navigator, loaded in a single query and kept as an
+ * immutable {@link Snapshot}. Lookups read the current snapshot without
+ * locking.
+ *
+ * A snapshot is used for the configured time to live. Once it is within the
+ * refresh-ahead window of expiring, a reload is started in the background
+ * while callers keep using the current snapshot. Only callers that find no
+ * snapshot, or an expired one, wait for Navigator. At most one load is in
+ * flight at a time, concurrent callers share its result.
+ *
+ * A lookup that misses in the current snapshot may reload it, but only
+ * once the snapshot is older than the configured minimum, so repeated
+ * lookups of an unknown Source do not each query Navigator.
+ */
+public class SourceRegistry implements Closeable {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(SourceRegistry.class);
+  private static final long IDLE_THREAD_TIMEOUT_SECS = 60L;
+
+  /**
+   * Immutable view of all Sources at the time they were loaded
+   */
+  public static class Snapshot {
+
+    private final ImmutableList<Source> sources;
+    private final ImmutableMap<String, Source> sourcesByUrl;
+    private final ImmutableSetMultimap<SourceType, Source> sourcesByType;
+    private final long loadedAtNanos;
+
+    Snapshot(Collection<Source> sources, long loadedAtNanos) {
+      Map<String, Source> byUrl = Maps.newHashMap();
+      ImmutableSetMultimap.Builder<SourceType, Source> byType =
+          ImmutableSetMultimap.builder();
+      for (Source source : sources) {
+        if (source.getSourceUrl() == null) {
+          LOG.warn("Source {} did not have a source url",
+              source.getName() != null ? source.getName() :
+                  source.getIdentity());
+          continue;
+        }
+        byUrl.put(source.getSourceUrl(), source);
+        byType.put(source.getSourceType(), source);
+      }
+      this.sources = ImmutableList.copyOf(sources);
+      this.sourcesByUrl = ImmutableMap.copyOf(byUrl);
+      this.sourcesByType = byType.build();
+      this.loadedAtNanos = loadedAtNanos;
+    }
+
+    /**
+     * @return all Sources, including those without a source url
+     */
+    public ImmutableList<Source> getSources() {
+      return sources;
+    }
+
+    /**
+     * @return the Source at the given service url, null if there is none
+     */
+    public Source getSourceForUrl(String serviceUrl) {
+      return sourcesByUrl.get(serviceUrl);
+    }
+
+    /**
+     * @return Sources of the given type, empty if there are none
+     */
+    public ImmutableSetMultimap<SourceType, Source> getSourcesByType() {
+      return sourcesByType;
+    }
+
+    public Collection<Source> getSourcesForType(SourceType sourceType) {
+      return sourcesByType.get(sourceType);
+    }
+
+    long getLoadedAtNanos() {
+      return loadedAtNanos;
+    }
+  }
+
+  private final Callable<? extends Collection<Source>> loader;
+  private final long ttlNanos;
+  private final long refreshAheadNanos;
+  private final long minRefreshNanos;
+  private final ExecutorService refreshExecutor;
+  private final AtomicReference<SettableFuture<Snapshot>> inFlight =
+      new AtomicReference<>();
+  private volatile Snapshot current;
+
+  public SourceRegistry(ClientConfig config,
+                        Callable<? extends Collection<Source>> loader) {
+    this(loader, config.getSourceCacheTtlMillis(),
+        config.getSourceCacheRefreshAheadMillis(),
+        config.getSourceCacheMinRefreshMillis(), newRefreshExecutor());
+  }
+
+  @VisibleForTesting
+  SourceRegistry(Callable<? extends Collection<Source>> loader,
+                 long ttlMillis, long refreshAheadMillis,
+                 long minRefreshMillis, ExecutorService refreshExecutor) {
+    Preconditions.checkArgument(ttlMillis >= 0 && refreshAheadMillis >= 0 &&
+        minRefreshMillis >= 0);
+    this.loader = Preconditions.checkNotNull(loader);
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.refreshAheadNanos = TimeUnit.MILLISECONDS.toNanos(
+        Math.min(refreshAheadMillis, ttlMillis));
+    this.minRefreshNanos = TimeUnit.MILLISECONDS.toNanos(minRefreshMillis);
+    this.refreshExecutor = refreshExecutor;
+  }
+
+  /**
+   * @return the current snapshot, loading it from Navigator if there is
+   *         none or it has expired
+   */
+  public Snapshot getSnapshot() {
+    Snapshot snapshot = current;
+    if (snapshot == null) {
+      return load();
+    }
+    if (ttlNanos > 0) {
+      long age = nanoTime() - snapshot.getLoadedAtNanos();
+      if (age >= ttlNanos) {
+        return refresh(snapshot);
+      } else if (refreshAheadNanos > 0 && age >= ttlNanos - refreshAheadNanos) {
+        refreshInBackground();
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Reload the Sources unless the given snapshot has already been replaced,
+   * e.g. after a lookup missed in it. Callers that find the same stale
+   * snapshot at the same time share a single load. A snapshot younger than
+   * the minimum refresh interval is kept, the miss stands until then.
+   *
+   * @param stale snapshot that is out of date
+   * @return a snapshot newer than the given one, or the given one if it is
+   *         too recent to reload
+   */
+  public Snapshot refresh(Snapshot stale) {
+    Snapshot snapshot = current;
+    if (snapshot != null && snapshot != stale) {
+      return snapshot;
+    }
+    if (stale != null &&
+        nanoTime() - stale.getLoadedAtNanos() < minRefreshNanos) {
+      return stale;
+    }
+    return load();
+  }
+
+  /**
+   * Drop the current snapshot, the next lookup loads the Sources again
+   */
+  public void invalidate() {
+    current = null;
+  }
+
+  /**
+   * Stop any background reload
+   */
+  @Override
+  public void close() {
+    refreshExecutor.shutdownNow();
+  }
+
+  /**
+   * Join the load in flight or start one in the calling thread
+   */
+  private Snapshot load() {
+    SettableFuture<Snapshot> future = SettableFuture.create();
+    if (inFlight.compareAndSet(null, future)) {
+      runLoad(future);
+    } else {
+      SettableFuture<Snapshot> other = inFlight.get();
+      if (other != null) {
+        future = other;
+      } else {
+        // the other load finished in between, its result is current
+        Snapshot snapshot = current;
+        return snapshot != null ? snapshot : load();
+      }
+    }
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private void refreshInBackground() {
+    final SettableFuture<Snapshot> future = SettableFuture.create();
+    if (!inFlight.compareAndSet(null, future)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          runLoad(future);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // closed, the current snapshot is used until it expires
+      inFlight.set(null);
+      future.setException(e);
+    }
+  }
+
+  private void runLoad(SettableFuture<Snapshot> future) {
+    try {
+      Snapshot snapshot = new Snapshot(loader.call(), nanoTime());
+      current = snapshot;
+      future.set(snapshot);
+    } catch (Throwable t) {
+      LOG.warn("Failed to load Sources from Navigator", t);
+      future.setException(t);
+    } finally {
+      inFlight.set(null);
+    }
+  }
+
+  private static ExecutorService newRefreshExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+        IDLE_THREAD_TIMEOUT_SECS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder()
+            .setNameFormat("nav-source-refresh-%d")
+            .setDaemon(true)
+            .build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  @VisibleForTesting
+  long nanoTime() {
+    return System.nanoTime();
+  }
+}
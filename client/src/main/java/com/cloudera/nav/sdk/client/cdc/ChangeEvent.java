@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.cdc;
+
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.base.Objects;
+
+import java.util.Map;
+
+/**
+ * Change of an entity or relation between two polls of a
+ * {@link ChangeFeed}
+ */
+public class ChangeEvent {
+
+  public enum Type {
+    /** Not seen before */
+    ADDED,
+    /** Seen before with different content */
+    UPDATED,
+    /** Seen before and now marked as deleted */
+    DELETED
+  }
+
+  private final Type type;
+  private final MetadataType metadataType;
+  private final String identity;
+  private final Map<String, Object> metadata;
+
+  public ChangeEvent(Type type, MetadataType metadataType, String identity,
+                     Map<String, Object> metadata) {
+    this.type = type;
+    this.metadataType = metadataType;
+    this.identity = identity;
+    this.metadata = metadata;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return whether an entity or a relation changed
+   */
+  public MetadataType getMetadataType() {
+    return metadataType;
+  }
+
+  public String getIdentity() {
+    return identity;
+  }
+
+  /**
+   * @return the entity or relation as extracted, for deletions its last
+   *         state in Navigator
+   */
+  public Map<String, Object> getMetadata() {
+    return metadata;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+        .add("type", type)
+        .add("metadataType", metadataType)
+        .add("identity", identity)
+        .toString();
+  }
+}
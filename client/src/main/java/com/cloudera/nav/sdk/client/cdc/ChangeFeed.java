@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.cdc;
+
+import com.cloudera.nav.sdk.client.MetadataExtractor;
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.cloudera.nav.sdk.model.Identity;
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Charsets;
+import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feed of the changes to entities and relations in Navigator, derived from
+ * successive incremental extractions.
+ *
+ * An extraction returns everything that was extracted again since the
+ * previous marker, changed or not. The feed keeps a 64 bit fingerprint of
+ * the content of every identity it has seen, and only emits an event if an
+ * identity is new, its fingerprint differs, or it is now marked as deleted.
+ * Fields that change with every extraction, such as the extractorRunId,
+ * are left out of the fingerprint. Identities are held as 128-bit values,
+ * see {@link FingerprintTable}.
+ *
+ * The state is a journal in a local file. Every change is appended as it is
+ * delivered, and the marker is appended once all events of a poll were
+ * delivered, which commits the poll. Changes after the last marker are
+ * discarded when the state is loaded, so events are delivered at least
+ * once: if the process stops or a listener fails during a poll, the next
+ * poll emits the same events again. Once the journal holds more than twice
+ * as many changes as there are identities, it is compacted by rewriting the
+ * current state. The first poll performs a full extraction and emits every
+ * identity as added.
+ */
+public class ChangeFeed {
+
+  public static final Set<String> DEFAULT_IGNORED_FIELDS =
+      ImmutableSet.of("extractorRunId");
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChangeFeed.class);
+  private static final int STATE_VERSION = 2;
+  private static final int CHANGED = 1;
+  private static final int DELETED = 2;
+  private static final int COMMIT = 3;
+  private static final long MIN_COMPACTION_CHANGES = 1024;
+
+  private final MetadataExtractor extractor;
+  private final Path statePath;
+  private final Path tempPath;
+  private final Set<String> ignoredFields;
+  private final ObjectMapper mapper = new ObjectMapper().configure(
+      SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+  private final HashFunction hashFunction = Hashing.murmur3_128();
+  private FingerprintTable fingerprints;
+  private String marker;
+  // length of the journal up to the last marker and changes it holds
+  private long committedLength;
+  private long journalChanges;
+
+  public ChangeFeed(MetadataExtractor extractor, File stateFile) {
+    this(extractor, stateFile, DEFAULT_IGNORED_FIELDS);
+  }
+
+  /**
+   * @param ignoredFields fields that are not compared between extractions
+   */
+  public ChangeFeed(MetadataExtractor extractor, File stateFile,
+                    Collection<String> ignoredFields) {
+    this.extractor = extractor;
+    this.statePath = stateFile.toPath();
+    this.tempPath = statePath.resolveSibling(statePath.getFileName() +
+        ".tmp");
+    this.ignoredFields = ImmutableSet.copyOf(ignoredFields);
+    loadState();
+  }
+
+  /**
+   * Extract the metadata changed since the last poll and deliver an event
+   * for every real change to the listener
+   *
+   * @return number of events delivered
+   */
+  public synchronized long poll(ChangeListener listener) {
+    MetadataResultSet results = marker == null ?
+        extractor.extractMetadata() : extractor.extractMetadata(marker);
+    long[] counts = new long[2];
+    try {
+      try (DataOutputStream journal = openJournal()) {
+        diff(MetadataType.ENTITIES, results.getEntities(), listener, counts,
+            journal);
+        diff(MetadataType.RELATIONS, results.getRelations(), listener,
+            counts, journal);
+        writeCommit(journal, results.getMarker());
+      }
+      committedLength = Files.size(statePath);
+    } catch (IOException | RuntimeException e) {
+      // forget the fingerprints of the failed poll, it is repeated
+      loadState();
+      throw Throwables.propagate(e);
+    }
+    marker = results.getMarker();
+    journalChanges += counts[0];
+    if (journalChanges > Math.max(MIN_COMPACTION_CHANGES,
+        2L * fingerprints.size())) {
+      compact();
+    }
+    LOG.info("Delivered {} changes, {} unchanged results were suppressed",
+        counts[0], counts[1]);
+    return counts[0];
+  }
+
+  /**
+   * @return marker of the last poll, null before the first poll
+   */
+  public synchronized String getMarker() {
+    return marker;
+  }
+
+  /**
+   * @return number of identities with a fingerprint
+   */
+  public synchronized int size() {
+    return fingerprints.size();
+  }
+
+  /**
+   * @param counts events delivered and unchanged results so far
+   */
+  private void diff(MetadataType metadataType,
+                    Iterable<Map<String, Object>> results,
+                    ChangeListener listener, long[] counts,
+                    DataOutputStream journal) throws IOException {
+    for (Map<String, Object> result : results) {
+      if (!(result.get("identity") instanceof String)) {
+        continue;
+      }
+      String identity = (String) result.get("identity");
+      Identity key = key(identity);
+      int slot = fingerprints.find(key.getHigh(), key.getLow());
+      ChangeEvent.Type type = null;
+      if (Boolean.TRUE.equals(result.get("deleted"))) {
+        if (slot >= 0) {
+          fingerprints.remove(key.getHigh(), key.getLow());
+          writeChange(journal, DELETED, key, 0L);
+          type = ChangeEvent.Type.DELETED;
+        }
+      } else {
+        long fingerprint = fingerprint(result);
+        if (slot < 0 || fingerprints.getFingerprint(slot) != fingerprint) {
+          fingerprints.put(key.getHigh(), key.getLow(), fingerprint);
+          writeChange(journal, CHANGED, key, fingerprint);
+          type = slot < 0 ? ChangeEvent.Type.ADDED :
+              ChangeEvent.Type.UPDATED;
+        }
+      }
+      if (type == null) {
+        counts[1]++;
+      } else {
+        listener.onChange(new ChangeEvent(type, metadataType, identity,
+            result));
+        counts[0]++;
+      }
+    }
+  }
+
+  /**
+   * MD5 identities are kept as they are, any other identity as its 128-bit
+   * murmur3 hash
+   */
+  private Identity key(String identity) {
+    if (Identity.isValid(identity)) {
+      return Identity.parse(identity);
+    }
+    return Identity.fromBytes(
+        hashFunction.hashString(identity, Charsets.UTF_8).asBytes());
+  }
+
+  private long fingerprint(Map<String, Object> result) {
+    Map<String, Object> content = Maps.filterKeys(result,
+        Predicates.not(Predicates.in(ignoredFields)));
+    try {
+      // map entries are ordered by key, so equal content hashes equally
+      return hashFunction.hashBytes(mapper.writeValueAsBytes(content))
+          .asLong();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Replay the committed polls of the journal. The end of the last commit is
+   * found first, so that the changes up to it can be applied to the
+   * fingerprints as they are read.
+   */
+  private void loadState() {
+    fingerprints = new FingerprintTable(0);
+    marker = null;
+    committedLength = 0;
+    journalChanges = 0;
+    if (!Files.exists(statePath)) {
+      return;
+    }
+    try {
+      long length = findCommittedLength();
+      if (length == 0) {
+        // not even the version was written
+        return;
+      }
+      try (DataInputStream in = new DataInputStream(ByteStreams.limit(
+          new BufferedInputStream(Files.newInputStream(statePath)), length))) {
+        readVersion(in);
+        int type;
+        while ((type = in.read()) != -1) {
+          if (type == CHANGED) {
+            fingerprints.put(in.readLong(), in.readLong(), in.readLong());
+            journalChanges++;
+          } else if (type == DELETED) {
+            fingerprints.remove(in.readLong(), in.readLong());
+            journalChanges++;
+          } else {
+            marker = readMarker(in);
+          }
+        }
+      }
+      committedLength = length;
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * @return length of the journal up to the end of its last commit
+   */
+  private long findCommittedLength() throws IOException {
+    long length = 0;
+    byte[] change = new byte[24];
+    try (CountingInputStream counting = new CountingInputStream(
+        new BufferedInputStream(Files.newInputStream(statePath)))) {
+      DataInputStream in = new DataInputStream(counting);
+      readVersion(in);
+      length = counting.getCount();
+      int type;
+      while ((type = in.read()) != -1) {
+        if (type == CHANGED) {
+          in.readFully(change, 0, 24);
+        } else if (type == DELETED) {
+          in.readFully(change, 0, 16);
+        } else if (type == COMMIT) {
+          readMarker(in);
+          length = counting.getCount();
+        } else {
+          throw new IOException("Corrupt change feed state at byte " +
+              counting.getCount());
+        }
+      }
+    } catch (EOFException e) {
+      // the last poll was cut off, it is repeated
+    }
+    return length;
+  }
+
+  private static void readVersion(DataInputStream in) throws IOException {
+    int version = in.readInt();
+    if (version != STATE_VERSION) {
+      throw new IOException("Unsupported change feed state version " +
+          version);
+    }
+  }
+
+  /**
+   * Open the journal for appending after the last committed poll
+   */
+  private DataOutputStream openJournal() throws IOException {
+    FileChannel channel = FileChannel.open(statePath,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      channel.truncate(committedLength);
+      channel.position(committedLength);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    DataOutputStream journal = new DataOutputStream(new BufferedOutputStream(
+        Channels.newOutputStream(channel)));
+    if (committedLength == 0) {
+      journal.writeInt(STATE_VERSION);
+    }
+    return journal;
+  }
+
+  private static void writeChange(DataOutputStream journal, int type,
+                                  Identity key, long fingerprint)
+      throws IOException {
+    journal.writeByte(type);
+    journal.writeLong(key.getHigh());
+    journal.writeLong(key.getLow());
+    if (type == CHANGED) {
+      journal.writeLong(fingerprint);
+    }
+  }
+
+  private static void writeCommit(DataOutputStream journal, String marker)
+      throws IOException {
+    journal.writeByte(COMMIT);
+    journal.writeBoolean(marker != null);
+    if (marker != null) {
+      byte[] bytes = marker.getBytes(Charsets.UTF_8);
+      journal.writeInt(bytes.length);
+      journal.write(bytes);
+    }
+  }
+
+  private static String readMarker(DataInputStream in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  /**
+   * Replace the journal with the current fingerprints and marker
+   */
+  private void compact() {
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+        out.writeInt(STATE_VERSION);
+        for (int i = 0; i < fingerprints.capacity(); i++) {
+          if (fingerprints.isOccupied(i)) {
+            out.writeByte(CHANGED);
+            out.writeLong(fingerprints.getHigh(i));
+            out.writeLong(fingerprints.getLow(i));
+            out.writeLong(fingerprints.getFingerprint(i));
+          }
+        }
+        writeCommit(out, marker);
+      }
+      Files.move(tempPath, statePath, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      committedLength = Files.size(statePath);
+      journalChanges = fingerprints.size();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.cdc;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Map from 128-bit identities to 64-bit fingerprints in primitive arrays,
+ * laid out like {@link com.cloudera.nav.sdk.client.IdentitySet}: an open
+ * addressing table with linear probing that grows by half at 3/4 load, with
+ * 24 bytes and an occupancy bit per slot. Removing an identity shifts the
+ * following entries of its probe sequence back, so no tombstones are left.
+ *
+ * Not thread safe.
+ */
+class FingerprintTable {
+
+  private static final double MAX_LOAD = 0.75;
+  private static final int MAX_SLOTS = (Integer.MAX_VALUE - 8) / 2;
+
+  // high and low half of the identity in every slot
+  private long[] keys;
+  private long[] fingerprints;
+  private long[] occupied;
+  private int slots;
+  private int size;
+
+  FingerprintTable(int expectedSize) {
+    Preconditions.checkArgument(expectedSize >= 0,
+        "Expected size must not be negative");
+    allocate((int) Math.min(MAX_SLOTS,
+        (long) Math.ceil(Math.max(expectedSize, 16) / MAX_LOAD)));
+  }
+
+  /**
+   * @return number of identities with a fingerprint
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return number of slots, see {@link #isOccupied(int)}
+   */
+  int capacity() {
+    return slots;
+  }
+
+  /**
+   * @return slot of the identity, -1 if it has no fingerprint
+   */
+  int find(long high, long low) {
+    int i = indexOf(high, low, slots);
+    while (isOccupied(i)) {
+      if (keys[2 * i] == high && keys[2 * i + 1] == low) {
+        return i;
+      }
+      i = next(i);
+    }
+    return -1;
+  }
+
+  boolean isOccupied(int slot) {
+    return (occupied[slot >>> 6] & (1L << slot)) != 0;
+  }
+
+  long getHigh(int slot) {
+    return keys[2 * slot];
+  }
+
+  long getLow(int slot) {
+    return keys[2 * slot + 1];
+  }
+
+  long getFingerprint(int slot) {
+    return fingerprints[slot];
+  }
+
+  /**
+   * Set the fingerprint of the identity, replacing any previous one
+   */
+  void put(long high, long low, long fingerprint) {
+    int i = indexOf(high, low, slots);
+    while (isOccupied(i)) {
+      if (keys[2 * i] == high && keys[2 * i + 1] == low) {
+        fingerprints[i] = fingerprint;
+        return;
+      }
+      i = next(i);
+    }
+    set(i, high, low, fingerprint);
+    if (++size > slots * MAX_LOAD) {
+      grow();
+    }
+  }
+
+  /**
+   * @return true if the identity had a fingerprint
+   */
+  boolean remove(long high, long low) {
+    int i = find(high, low);
+    if (i < 0) {
+      return false;
+    }
+    int j = i;
+    while (true) {
+      j = next(j);
+      if (!isOccupied(j)) {
+        break;
+      }
+      // move the entry into the gap unless its home slot lies after the gap
+      int home = indexOf(keys[2 * j], keys[2 * j + 1], slots);
+      boolean stays = i <= j ? i < home && home <= j : i < home || home <= j;
+      if (!stays) {
+        set(i, keys[2 * j], keys[2 * j + 1], fingerprints[j]);
+        i = j;
+      }
+    }
+    occupied[i >>> 6] &= ~(1L << i);
+    size--;
+    return true;
+  }
+
+  private void set(int slot, long high, long low, long fingerprint) {
+    keys[2 * slot] = high;
+    keys[2 * slot + 1] = low;
+    fingerprints[slot] = fingerprint;
+    occupied[slot >>> 6] |= 1L << slot;
+  }
+
+  private int next(int slot) {
+    return slot + 1 == slots ? 0 : slot + 1;
+  }
+
+  private void allocate(int slots) {
+    this.slots = slots;
+    this.keys = new long[2 * slots];
+    this.fingerprints = new long[slots];
+    this.occupied = new long[(slots + 63) / 64];
+  }
+
+  private void grow() {
+    Preconditions.checkState(slots < MAX_SLOTS,
+        "Fingerprint table is full at %s identities", size);
+    long[] oldKeys = keys;
+    long[] oldFingerprints = fingerprints;
+    long[] oldOccupied = occupied;
+    int oldSlots = slots;
+    allocate((int) Math.min(MAX_SLOTS, (long) slots * 3 / 2 + 1));
+    for (int j = 0; j < oldSlots; j++) {
+      if ((oldOccupied[j >>> 6] & (1L << j)) != 0) {
+        int i = indexOf(oldKeys[2 * j], oldKeys[2 * j + 1], slots);
+        while (isOccupied(i)) {
+          i = next(i);
+        }
+        set(i, oldKeys[2 * j], oldKeys[2 * j + 1], oldFingerprints[j]);
+      }
+    }
+  }
+
+  /**
+   * Map the identity to a slot without a division, as in IdentitySet
+   */
+  private static int indexOf(long high, long low, int slots) {
+    long hash = high ^ low;
+    long bits = (hash ^ (hash >>> 32)) & 0xffffffffL;
+    return (int) ((bits * slots) >>> 32);
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.export;
+
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.avro.file.CodecFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes extracted entities and relations to compressed Avro container
+ * files in a local directory, e.g. for Hive or Spark jobs to read. Avro
+ * container files are splittable at their sync markers, so a large export
+ * can be read in parallel.
+ *
+ * The schema of each type of metadata is derived from the attributes of
+ * its first results, see {@link MetadataSchema}. Files roll over once they
+ * reach the configured size and are named after the type of metadata and
+ * their sequence number, e.g. entities-00000.avro. A file is written under
+ * a hidden temporary name and only renamed once it is complete. If an
+ * export fails, the files it already wrote are deleted. The marker of an
+ * exported result set is stored in the metadata of every file as
+ * {@link #MARKER_KEY}.
+ */
+public class AvroMetadataExporter {
+
+  public static final long DEFAULT_MAX_FILE_BYTES = 256L * 1024 * 1024;
+  public static final int DEFAULT_SAMPLE_SIZE = 1000;
+  public static final String MARKER_KEY = "nav.marker";
+  public static final String EXTENSION = ".avro";
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      AvroMetadataExporter.class);
+
+  private final File dir;
+  private final CodecFactory codec;
+  private final long maxFileBytes;
+  private final int sampleSize;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public AvroMetadataExporter(File dir) {
+    this(dir, CodecFactory.snappyCodec(), DEFAULT_MAX_FILE_BYTES,
+        DEFAULT_SAMPLE_SIZE);
+  }
+
+  /**
+   * @param dir directory to write the files to
+   * @param codec compression codec of the files
+   * @param maxFileBytes size after which a new file is started
+   * @param sampleSize number of results to derive the schema from
+   */
+  public AvroMetadataExporter(File dir, CodecFactory codec,
+                              long maxFileBytes, int sampleSize) {
+    Preconditions.checkArgument(maxFileBytes > 0,
+        "Maximum file size must be positive");
+    Preconditions.checkArgument(sampleSize > 0,
+        "Sample size must be positive");
+    this.dir = dir;
+    this.codec = codec;
+    this.maxFileBytes = maxFileBytes;
+    this.sampleSize = sampleSize;
+  }
+
+  /**
+   * Export all entities and relations of the result set
+   *
+   * @return files written, entities first
+   */
+  public List<File> export(MetadataResultSet rs) {
+    List<File> entities = export(MetadataType.ENTITIES, rs.getEntities(),
+        rs.getMarker());
+    boolean finished = false;
+    try {
+      List<File> relations = export(MetadataType.RELATIONS,
+          rs.getRelations(), rs.getMarker());
+      finished = true;
+      return ImmutableList.<File>builder()
+          .addAll(entities)
+          .addAll(relations)
+          .build();
+    } finally {
+      if (!finished) {
+        delete(entities);
+      }
+    }
+  }
+
+  private static void delete(Iterable<File> files) {
+    for (File file : files) {
+      if (file.exists() && !file.delete()) {
+        LOG.warn("Could not delete {}", file);
+      }
+    }
+  }
+
+  /**
+   * Export the given entities or relations. Nothing is written if there
+   * are no results.
+   *
+   * @param marker marker to store with the files, may be null
+   * @return files written
+   */
+  public List<File> export(MetadataType type,
+                           Iterable<Map<String, Object>> results,
+                           String marker) {
+    Iterator<Map<String, Object>> it = results.iterator();
+    try {
+      SampledResults sampled = SampledResults.sample(type, it, sampleSize,
+          mapper);
+      if (sampled.isEmpty()) {
+        return ImmutableList.of();
+      }
+      String prefix = type.name().toLowerCase(Locale.ENGLISH);
+      ExportFiles files = new ExportFiles(prefix);
+      long count;
+      boolean finished = false;
+      try (RollingAvroWriter writer = new RollingAvroWriter(
+          sampled.getSchema(), marker, codec, maxFileBytes, Long.MAX_VALUE,
+          files)) {
+        Iterator<Map<String, Object>> all = sampled.iterator();
+        while (all.hasNext()) {
+          writer.append(all.next());
+        }
+        writer.roll();
+        count = writer.getCount();
+        finished = true;
+      } finally {
+        if (!finished) {
+          files.abort();
+        }
+      }
+      LOG.info("Exported {} {} to {} files in {}", count, prefix,
+          files.getFiles().size(), dir);
+      return files.getFiles();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      if (it instanceof Closeable) {
+        try {
+          ((Closeable) it).close();
+        } catch (IOException e) {
+          LOG.warn("Could not close results", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Files of one type of metadata, each written under a hidden temporary
+   * name and renamed once it is complete
+   */
+  private class ExportFiles implements RollingAvroWriter.FileFactory {
+
+    private final String prefix;
+    private final List<File> files = Lists.newArrayList();
+
+    ExportFiles(String prefix) {
+      this.prefix = prefix;
+    }
+
+    List<File> getFiles() {
+      return files;
+    }
+
+    private File file(int sequence) {
+      return new File(dir, String.format("%s-%05d%s", prefix, sequence,
+          EXTENSION));
+    }
+
+    private File tmpFile(int sequence) {
+      return new File(dir, "." + file(sequence).getName() + ".tmp");
+    }
+
+    @Override
+    public OutputStream create(int sequence) throws IOException {
+      return new BufferedOutputStream(
+          new FileOutputStream(tmpFile(sequence)));
+    }
+
+    @Override
+    public void completed(int sequence) throws IOException {
+      File file = file(sequence);
+      Files.move(tmpFile(sequence).toPath(), file.toPath(),
+          StandardCopyOption.ATOMIC_MOVE);
+      files.add(file);
+    }
+
+    /**
+     * Delete the completed files and the file being written, if any, so
+     * that a rerun does not rename its files over those of the failed
+     * export
+     */
+    void abort() {
+      delete(Iterables.concat(files,
+          ImmutableList.of(tmpFile(files.size()))));
+      files.clear();
+    }
+  }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.export;
+
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes extracted entities and relations to a Hadoop FileSystem as Avro
+ * container files, e.g. into a partition of a Hive table.
+ *
+ * Results are converted and written by several concurrent writers, each to
+ * its own sequence of files that roll over once they reach the configured
+ * size or number of records. Entities and relations go to the entities and
+ * relations subdirectories of the output, as part-WWWWW-SSSSS.avro files
+ * of writer W. The schema is derived as for {@link AvroMetadataExporter}.
+ *
+ * All files of a run are written to a hidden temporary directory next to
+ * the output, which is renamed to the output once every writer has
+ * finished and a _SUCCESS file was added. If the run fails the temporary
+ * directory is deleted, so the output either exists completely or not at
+ * all.
+ */
+public class FileSystemMetadataSink {
+
+  public static final int DEFAULT_WRITERS = 4;
+  public static final String SUCCESS_FILE = "_SUCCESS";
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      FileSystemMetadataSink.class);
+  private static final int QUEUED_RESULTS_PER_WRITER = 1024;
+  private static final long POLL_MILLIS = 100L;
+  private static final long TERMINATION_SECS = 30L;
+  // tells a writer that there are no more results, compared by identity
+  private static final Map<String, Object> END =
+      Collections.unmodifiableMap(new HashMap<String, Object>());
+
+  private final FileSystem fs;
+  private final int writers;
+  private final long maxFileBytes;
+  private final long maxFileRecords;
+  private final CodecFactory codec;
+  private final int sampleSize;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public FileSystemMetadataSink(FileSystem fs) {
+    this(fs, DEFAULT_WRITERS, AvroMetadataExporter.DEFAULT_MAX_FILE_BYTES,
+        Long.MAX_VALUE, CodecFactory.snappyCodec(),
+        AvroMetadataExporter.DEFAULT_SAMPLE_SIZE);
+  }
+
+  /**
+   * @param fs file system to write to
+   * @param writers number of concurrent writers
+   * @param maxFileBytes size after which a writer starts a new file
+   * @param maxFileRecords records after which a writer starts a new file
+   * @param codec compression codec of the files
+   * @param sampleSize number of results to derive the schema from
+   */
+  public FileSystemMetadataSink(FileSystem fs, int writers,
+                                long maxFileBytes, long maxFileRecords,
+                                CodecFactory codec, int sampleSize) {
+    Preconditions.checkArgument(writers > 0,
+        "Number of writers must be positive");
+    Preconditions.checkArgument(maxFileBytes > 0 && maxFileRecords > 0,
+        "Maximum file size must be positive");
+    Preconditions.checkArgument(sampleSize > 0,
+        "Sample size must be positive");
+    this.fs = fs;
+    this.writers = writers;
+    this.maxFileBytes = maxFileBytes;
+    this.maxFileRecords = maxFileRecords;
+    this.codec = codec;
+    this.sampleSize = sampleSize;
+  }
+
+  /**
+   * Write all entities and relations of the result set to the output
+   * directory, which must not exist yet
+   *
+   * @return the output directory
+   */
+  public Path write(MetadataResultSet rs, Path output) {
+    return write(
+        ImmutableMap.<MetadataType, Iterable<Map<String, Object>>>of(
+            MetadataType.ENTITIES, rs.getEntities(),
+            MetadataType.RELATIONS, rs.getRelations()),
+        rs.getMarker(), output);
+  }
+
+  /**
+   * Write the given entities or relations to the output directory, which
+   * must not exist yet
+   *
+   * @param marker marker to store with the files, may be null
+   * @return the output directory
+   */
+  public Path write(MetadataType type, Iterable<Map<String, Object>> results,
+                    String marker, Path output) {
+    return write(
+        ImmutableMap.<MetadataType, Iterable<Map<String, Object>>>of(
+            type, results),
+        marker, output);
+  }
+
+  private Path write(Map<MetadataType, Iterable<Map<String, Object>>> input,
+                     String marker, Path output) {
+    Path tmpDir = null;
+    boolean committed = false;
+    try {
+      output = fs.makeQualified(output);
+      Preconditions.checkState(!fs.exists(output),
+          "Output %s already exists", output);
+      tmpDir = new Path(output.getParent(), "_" + output.getName() +
+          ".tmp-" + UUID.randomUUID());
+      if (!fs.mkdirs(tmpDir)) {
+        throw new IOException("Could not create " + tmpDir);
+      }
+      for (Map.Entry<MetadataType, Iterable<Map<String, Object>>> entry :
+          input.entrySet()) {
+        writeAll(entry.getKey(), entry.getValue(), marker, tmpDir);
+      }
+      fs.create(new Path(tmpDir, SUCCESS_FILE), false).close();
+      if (!fs.rename(tmpDir, output)) {
+        throw new IOException("Could not rename " + tmpDir + " to " +
+            output);
+      }
+      committed = true;
+      LOG.info("Committed {}", output);
+      return output;
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      if (!committed && tmpDir != null) {
+        abort(tmpDir);
+      }
+    }
+  }
+
+  private void abort(Path tmpDir) {
+    try {
+      if (fs.exists(tmpDir) && !fs.delete(tmpDir, true)) {
+        LOG.warn("Could not delete {}", tmpDir);
+      }
+    } catch (IOException e) {
+      LOG.warn("Could not delete " + tmpDir, e);
+    }
+  }
+
+  /**
+   * Hand the results to the writers and wait for them to finish
+   */
+  private void writeAll(MetadataType type,
+                        Iterable<Map<String, Object>> results,
+                        String marker, Path tmpDir) throws IOException {
+    Iterator<Map<String, Object>> it = results.iterator();
+    String name = type.name().toLowerCase(Locale.ENGLISH);
+    ExecutorService executor = Executors.newFixedThreadPool(writers,
+        new ThreadFactoryBuilder()
+            .setNameFormat("nav-sink-" + name + "-%d")
+            .setDaemon(true)
+            .build());
+    try {
+      SampledResults sampled = SampledResults.sample(type, it, sampleSize,
+          mapper);
+      if (sampled.isEmpty()) {
+        return;
+      }
+      Path dir = new Path(tmpDir, name);
+      BlockingQueue<Map<String, Object>> queue = new ArrayBlockingQueue<>(
+          writers * QUEUED_RESULTS_PER_WRITER);
+      List<Future<Long>> futures = Lists.newArrayList();
+      for (int i = 0; i < writers; i++) {
+        futures.add(executor.submit(
+            new Writer(i, sampled.getSchema(), marker, dir, queue)));
+      }
+
+      Iterator<Map<String, Object>> all = sampled.iterator();
+      while (all.hasNext()) {
+        put(queue, all.next(), futures);
+      }
+      for (int i = 0; i < writers; i++) {
+        put(queue, END, futures);
+      }
+      long count = 0;
+      for (Future<Long> future : futures) {
+        count += future.get();
+      }
+      LOG.info("Wrote {} {} to {}", count, name, dir);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing " + name, e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      stop(executor);
+      if (it instanceof Closeable) {
+        ((Closeable) it).close();
+      }
+    }
+  }
+
+  /**
+   * Stop the writers, waiting for them so that none of them writes to the
+   * temporary directory after it was deleted
+   */
+  private static void stop(ExecutorService executor) {
+    executor.shutdownNow();
+    try {
+      if (!executor.awaitTermination(TERMINATION_SECS, TimeUnit.SECONDS)) {
+        LOG.warn("Writers did not stop within {} seconds",
+            TERMINATION_SECS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Queue a result, failing if one of the writers failed in the meantime
+   */
+  private static void put(BlockingQueue<Map<String, Object>> queue,
+                          Map<String, Object> result,
+                          List<Future<Long>> futures)
+      throws InterruptedException, ExecutionException {
+    while (!queue.offer(result, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+      for (Future<Long> future : futures) {
+        if (future.isDone()) {
+          // throws the failure of the writer
+          future.get();
+          throw new IllegalStateException("Writer stopped early");
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes results from the queue to a sequence of rolling files until it
+   * takes the end of the results
+   */
+  private class Writer implements Callable<Long> {
+
+    private final int id;
+    private final MetadataSchema schema;
+    private final String marker;
+    private final Path dir;
+    private final BlockingQueue<Map<String, Object>> queue;
+
+    Writer(int id, MetadataSchema schema, String marker, Path dir,
+           BlockingQueue<Map<String, Object>> queue) {
+      this.id = id;
+      this.schema = schema;
+      this.marker = marker;
+      this.dir = dir;
+      this.queue = queue;
+    }
+
+    @Override
+    public Long call() throws Exception {
+      try (RollingAvroWriter writer = new RollingAvroWriter(schema, marker,
+          codec, maxFileBytes, maxFileRecords,
+          new RollingAvroWriter.FileFactory() {
+            @Override
+            public OutputStream create(int sequence) throws IOException {
+              return fs.create(new Path(dir, String.format("part-%05d-%05d%s",
+                  id, sequence, AvroMetadataExporter.EXTENSION)), false);
+            }
+
+            @Override
+            public void completed(int sequence) {
+              // the output is committed as a whole
+            }
+          })) {
+        Map<String, Object> result;
+        while ((result = queue.take()) != END) {
+          writer.append(result);
+        }
+        writer.roll();
+        return writer.getCount();
+      }
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.export;
+
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Avro record schema derived from the attributes observed in a sample of
+ * entities or relations, together with the conversion of results to
+ * records of that schema.
+ *
+ * Every observed attribute becomes a nullable field. Numbers become long or
+ * double fields, booleans boolean fields, lists arrays of strings and maps
+ * maps of strings. Attributes seen with conflicting types become string
+ * fields. Attributes that did not appear in the sample, or whose value does
+ * not fit the derived type, are kept as JSON text in the
+ * {@link #OTHER_ATTRIBUTES} map so that no metadata is lost.
+ */
+class MetadataSchema {
+
+  static final String NAMESPACE = "com.cloudera.nav.sdk.avro";
+  static final String OTHER_ATTRIBUTES = "otherAttributes";
+
+  private static final Pattern INVALID_NAME_CHARS =
+      Pattern.compile("[^A-Za-z0-9_]");
+
+  private enum Kind {
+    BOOLEAN("boolean"), LONG("long"), DOUBLE("double"), STRING("string"),
+    ARRAY("array"), MAP("map");
+
+    private final String avroType;
+
+    private Kind(String avroType) {
+      this.avroType = avroType;
+    }
+
+    private Object toSchema() {
+      switch (this) {
+        case ARRAY:
+          return ImmutableMap.of("type", avroType,
+              "items", ImmutableList.of("null", "string"));
+        case MAP:
+          return ImmutableMap.of("type", avroType,
+              "values", ImmutableList.of("null", "string"));
+        default:
+          return avroType;
+      }
+    }
+
+    private static Kind of(Object value) {
+      if (value instanceof Boolean) {
+        return BOOLEAN;
+      } else if (value instanceof Integer || value instanceof Long ||
+          value instanceof Short || value instanceof BigInteger) {
+        return LONG;
+      } else if (value instanceof Number) {
+        return DOUBLE;
+      } else if (value instanceof List) {
+        return ARRAY;
+      } else if (value instanceof Map) {
+        return MAP;
+      }
+      return STRING;
+    }
+
+    private Kind merge(Kind other) {
+      if (other == null || other == this) {
+        return this;
+      } else if ((this == LONG && other == DOUBLE) ||
+          (this == DOUBLE && other == LONG)) {
+        return DOUBLE;
+      }
+      return STRING;
+    }
+  }
+
+  private final Schema schema;
+  // attribute name -> kind of its field, in field order
+  private final Map<String, Kind> kinds;
+  // attribute name -> name of its field
+  private final Map<String, String> fieldNames;
+  private final ObjectMapper mapper;
+
+  private MetadataSchema(Schema schema, Map<String, Kind> kinds,
+                         Map<String, String> fieldNames,
+                         ObjectMapper mapper) {
+    this.schema = schema;
+    this.kinds = kinds;
+    this.fieldNames = fieldNames;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Derive the schema of the given type of metadata from a sample of its
+   * results
+   */
+  static MetadataSchema infer(MetadataType type,
+                              Collection<Map<String, Object>> sample,
+                              ObjectMapper mapper) {
+    Map<String, Kind> kinds = Maps.newTreeMap();
+    for (Map<String, Object> result : sample) {
+      for (Map.Entry<String, Object> attr : result.entrySet()) {
+        Kind seen = kinds.get(attr.getKey());
+        if (attr.getValue() != null) {
+          kinds.put(attr.getKey(), Kind.of(attr.getValue()).merge(seen));
+        } else if (!kinds.containsKey(attr.getKey())) {
+          kinds.put(attr.getKey(), null);
+        }
+      }
+    }
+
+    Map<String, Kind> fieldKinds = Maps.newLinkedHashMap();
+    Map<String, String> fieldNames = Maps.newHashMap();
+    List<Object> fields = Lists.newArrayList();
+    for (Map.Entry<String, Kind> attr : kinds.entrySet()) {
+      String fieldName = toFieldName(attr.getKey());
+      if (fieldName.equals(OTHER_ATTRIBUTES) ||
+          fieldNames.containsValue(fieldName)) {
+        // cannot be told apart from another field, keep it as JSON
+        continue;
+      }
+      Kind kind = attr.getValue() == null ? Kind.STRING : attr.getValue();
+      fieldKinds.put(attr.getKey(), kind);
+      fieldNames.put(attr.getKey(), fieldName);
+      fields.add(field(fieldName, kind.toSchema()));
+    }
+    fields.add(field(OTHER_ATTRIBUTES, Kind.MAP.toSchema()));
+
+    String recordName = type == MetadataType.ENTITIES ? "Entity" :
+        "Relation";
+    Map<String, Object> record = ImmutableMap.<String, Object>of(
+        "type", "record",
+        "name", recordName,
+        "namespace", NAMESPACE,
+        "fields", fields);
+    try {
+      Schema schema = new Schema.Parser().parse(
+          mapper.writeValueAsString(record));
+      return new MetadataSchema(schema, fieldKinds, fieldNames, mapper);
+    } catch (JsonProcessingException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static Map<String, Object> field(String name, Object type) {
+    Map<String, Object> field = Maps.newLinkedHashMap();
+    field.put("name", name);
+    field.put("type", ImmutableList.of("null", type));
+    field.put("default", null);
+    return field;
+  }
+
+  private static String toFieldName(String attribute) {
+    String name = INVALID_NAME_CHARS.matcher(attribute).replaceAll("_");
+    if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+      name = "_" + name;
+    }
+    return name;
+  }
+
+  Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Convert an entity or relation to a record of this schema
+   */
+  GenericRecord toRecord(Map<String, Object> result) {
+    GenericRecord record = new GenericData.Record(schema);
+    Map<String, String> others = Maps.newTreeMap();
+    for (Map.Entry<String, Object> attr : result.entrySet()) {
+      Object value = attr.getValue();
+      if (value == null) {
+        continue;
+      }
+      Kind kind = kinds.get(attr.getKey());
+      Object converted = kind == null ? null : convert(kind, value);
+      if (converted != null) {
+        record.put(fieldNames.get(attr.getKey()), converted);
+      } else {
+        others.put(attr.getKey(), toJson(value));
+      }
+    }
+    record.put(OTHER_ATTRIBUTES, others);
+    return record;
+  }
+
+  /**
+   * @return the value as the given kind, null if it does not fit
+   */
+  private Object convert(Kind kind, Object value) {
+    switch (kind) {
+      case BOOLEAN:
+        return value instanceof Boolean ? value : null;
+      case LONG:
+        return Kind.of(value) == Kind.LONG ?
+            ((Number) value).longValue() : null;
+      case DOUBLE:
+        return value instanceof Number ?
+            ((Number) value).doubleValue() : null;
+      case ARRAY:
+        if (!(value instanceof List)) {
+          return null;
+        }
+        List<String> items = Lists.newArrayList();
+        for (Object item : (List<?>) value) {
+          items.add(item == null ? null : toText(item));
+        }
+        return items;
+      case MAP:
+        if (!(value instanceof Map)) {
+          return null;
+        }
+        Map<String, String> values = Maps.newLinkedHashMap();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          values.put(String.valueOf(entry.getKey()),
+              entry.getValue() == null ? null : toText(entry.getValue()));
+        }
+        return values;
+      default:
+        return toText(value);
+    }
+  }
+
+  private String toText(Object value) {
+    return value instanceof String ? (String) value : toJson(value);
+  }
+
+  private String toJson(Object value) {
+    try {
+      return mapper.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.export;
+
+import com.google.common.io.CountingOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes results as records of a {@link MetadataSchema} to a sequence of
+ * Avro container files, starting a new file once the current one reaches
+ * the maximum size or number of records. The marker is stored in the
+ * metadata of every file as {@link AvroMetadataExporter#MARKER_KEY}.
+ *
+ * Not thread safe.
+ */
+class RollingAvroWriter implements Closeable {
+
+  /**
+   * Creates the files of a writer and is told when each one is complete
+   */
+  interface FileFactory {
+
+    /**
+     * @param sequence number of the file, starting at 0
+     * @return stream to write the file to, closed by the writer
+     */
+    OutputStream create(int sequence) throws IOException;
+
+    /**
+     * Called once the file was completely written and closed
+     */
+    void completed(int sequence) throws IOException;
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      RollingAvroWriter.class);
+
+  private final MetadataSchema schema;
+  private final String marker;
+  private final CodecFactory codec;
+  private final long maxFileBytes;
+  private final long maxFileRecords;
+  private final FileFactory fileFactory;
+  private DataFileWriter<GenericRecord> writer;
+  private CountingOutputStream out;
+  private int files;
+  private long fileRecords;
+  private long count;
+
+  /**
+   * @param marker marker to store with the files, may be null
+   */
+  RollingAvroWriter(MetadataSchema schema, String marker, CodecFactory codec,
+                    long maxFileBytes, long maxFileRecords,
+                    FileFactory fileFactory) {
+    this.schema = schema;
+    this.marker = marker;
+    this.codec = codec;
+    this.maxFileBytes = maxFileBytes;
+    this.maxFileRecords = maxFileRecords;
+    this.fileFactory = fileFactory;
+  }
+
+  void append(Map<String, Object> result) throws IOException {
+    if (writer == null) {
+      open();
+    }
+    writer.append(schema.toRecord(result));
+    count++;
+    fileRecords++;
+    // only counts the blocks flushed so far
+    if (fileRecords >= maxFileRecords || out.getCount() >= maxFileBytes) {
+      roll();
+    }
+  }
+
+  /**
+   * @return number of results written
+   */
+  long getCount() {
+    return count;
+  }
+
+  private void open() throws IOException {
+    out = new CountingOutputStream(fileFactory.create(files));
+    writer = new DataFileWriter<>(
+        new GenericDatumWriter<GenericRecord>(schema.getSchema()));
+    writer.setCodec(codec);
+    if (marker != null) {
+      writer.setMeta(AvroMetadataExporter.MARKER_KEY, marker);
+    }
+    writer.create(schema.getSchema(), out);
+    fileRecords = 0;
+  }
+
+  /**
+   * Complete the current file, if any
+   */
+  void roll() throws IOException {
+    if (writer == null) {
+      return;
+    }
+    writer.close();
+    writer = null;
+    fileFactory.completed(files++);
+  }
+
+  /**
+   * Close the current file, if any, without completing it
+   */
+  @Override
+  public void close() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Could not close file " + files, e);
+    }
+    writer = null;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.export;
+
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results whose first entries were taken to derive their
+ * {@link MetadataSchema}, followed by the rest of the results
+ */
+class SampledResults {
+
+  private final MetadataSchema schema;
+  private final Iterator<Map<String, Object>> results;
+
+  private SampledResults(MetadataSchema schema,
+                         Iterator<Map<String, Object>> results) {
+    this.schema = schema;
+    this.results = results;
+  }
+
+  /**
+   * Take up to sampleSize results from the iterator to derive the schema
+   */
+  static SampledResults sample(MetadataType type,
+                               Iterator<Map<String, Object>> it,
+                               int sampleSize, ObjectMapper mapper) {
+    List<Map<String, Object>> sample = Lists.newArrayList(
+        Iterators.limit(it, sampleSize));
+    if (sample.isEmpty()) {
+      return new SampledResults(null, it);
+    }
+    return new SampledResults(MetadataSchema.infer(type, sample, mapper),
+        Iterators.concat(sample.iterator(), it));
+  }
+
+  boolean isEmpty() {
+    return schema == null;
+  }
+
+  /**
+   * @return schema of the results, null if there are none
+   */
+  MetadataSchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * @return the sampled results followed by the rest
+   */
+  Iterator<Map<String, Object>> iterator() {
+    return results;
+  }
+}
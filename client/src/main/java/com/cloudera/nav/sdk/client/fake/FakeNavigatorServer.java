@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.fake;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * In-process stand-in for the Navigator API, serving the metadata of a
+ * {@link SyntheticMetadataGenerator}. It is meant for benchmarking
+ * extraction and write throughput without a cluster, and implements
+ * <ul>
+ *   <li>GET entities?query=type:SOURCE</li>
+ *   <li>POST entities/paging and relations/paging, restricted to the
+ *   extractorRunId clause of the query, which may contain run ids and
+ *   /regular expressions/ matching them. The rest of the query is ignored.
+ *   </li>
+ *   <li>POST metadata/plugin, counting the written entities and relations
+ *   </li>
+ *   <li>POST models, echoing the registered models</li>
+ * </ul>
+ * for any API version. Every response is delayed by the configured latency.
+ *
+ * Once credentials are set, requests have to authenticate with Basic
+ * authentication, which establishes a session (a JSESSIONID cookie by
+ * default), or with the cookie of an existing session. A cookie that is not
+ * a session, like that of a load balancer, can be set on every response.
+ */
+public class FakeNavigatorServer implements Closeable {
+
+  private static final Pattern API_PATH = Pattern.compile(
+      "/api/v\\d+/(.*?)/?");
+  private static final Pattern RUN_ID_CLAUSE = Pattern.compile(
+      "extractorRunId:\\(((?:/(?:\\\\.|[^/\\\\])*/|[^)/])*)\\)");
+  private static final Pattern RUN_ID_TERM = Pattern.compile(
+      "/((?:\\\\.|[^/\\\\])*)/|[^\\s]+");
+  private static final TypeReference<Map<String, Object>> MAP_TYPE =
+      new TypeReference<Map<String, Object>>(){};
+
+  private final SyntheticMetadataGenerator generator;
+  private final ObjectMapper mapper;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong entitiesWritten = new AtomicLong();
+  private final AtomicLong relationsWritten = new AtomicLong();
+  private final AtomicInteger failuresLeft = new AtomicInteger();
+  private volatile int failureStatus;
+  private final Set<String> sessions = Collections.newSetFromMap(
+      new ConcurrentHashMap<String, Boolean>());
+  private final AtomicLong authentications = new AtomicLong();
+  private volatile String authorization;
+  private volatile boolean sessionsEnabled = true;
+  private volatile String sessionCookieName = "JSESSIONID";
+  private volatile String extraCookie;
+  private volatile long latencyMillis;
+  private HttpServer server;
+  private ExecutorService executor;
+
+  public FakeNavigatorServer(SyntheticMetadataGenerator generator) {
+    this.generator = generator;
+    this.mapper = new ObjectMapper();
+  }
+
+  /**
+   * Start serving on an ephemeral port of the loopback interface
+   */
+  public synchronized void start() throws IOException {
+    Preconditions.checkState(server == null, "Server already started");
+    server = HttpServer.create(new InetSocketAddress(
+        InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/api/", new ApiHandler());
+    executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setNameFormat("fake-navigator-%d")
+        .setDaemon(true)
+        .build());
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * @return url to configure as {@link
+   *         com.cloudera.nav.sdk.client.ClientConfig#setNavigatorUrl(String)}
+   */
+  public String getUrl() {
+    Preconditions.checkState(server != null, "Server not started");
+    return String.format("http://%s:%d",
+        server.getAddress().getHostString(), server.getAddress().getPort());
+  }
+
+  public SyntheticMetadataGenerator getGenerator() {
+    return generator;
+  }
+
+  /**
+   * Delay every response by the given time
+   */
+  public void setLatencyMillis(long latencyMillis) {
+    Preconditions.checkArgument(latencyMillis >= 0);
+    this.latencyMillis = latencyMillis;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  /**
+   * Require requests to authenticate with the given credentials
+   */
+  public void setCredentials(String username, String password) {
+    String plainCreds = username + ":" + password;
+    this.authorization = "Basic " + new String(Base64.encodeBase64(
+        plainCreds.getBytes(Charsets.UTF_8)), Charsets.US_ASCII);
+  }
+
+  /**
+   * Whether authenticated requests establish a session
+   */
+  public void setSessionsEnabled(boolean sessionsEnabled) {
+    this.sessionsEnabled = sessionsEnabled;
+  }
+
+  /**
+   * Name of the cookie that holds the session
+   */
+  public void setSessionCookieName(String sessionCookieName) {
+    this.sessionCookieName = sessionCookieName;
+  }
+
+  /**
+   * Set the given cookie, as name=value, on every response
+   */
+  public void setExtraCookie(String extraCookie) {
+    this.extraCookie = extraCookie;
+  }
+
+  /**
+   * Invalidate all sessions, the next request of every client is rejected
+   * unless it carries the credentials
+   */
+  public void expireSessions() {
+    sessions.clear();
+  }
+
+  /**
+   * @return number of requests authenticated with their credentials
+   */
+  public long getAuthenticationCount() {
+    return authentications.get();
+  }
+
+  /**
+   * Answer the next requests with the given error status instead of
+   * serving them
+   *
+   * @param count number of requests to fail
+   * @param statusCode HTTP status of the failed responses
+   */
+  public void failNextRequests(int count, int statusCode) {
+    failureStatus = statusCode;
+    failuresLeft.set(count);
+  }
+
+  /**
+   * @return number of requests served
+   */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * @return number of entities written through metadata/plugin
+   */
+  public long getEntitiesWritten() {
+    return entitiesWritten.get();
+  }
+
+  /**
+   * @return number of relations written through metadata/plugin
+   */
+  public long getRelationsWritten() {
+    return relationsWritten.get();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      server = null;
+    }
+  }
+
+  private class ApiHandler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      requests.incrementAndGet();
+      try {
+        if (latencyMillis > 0) {
+          TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        }
+        if (extraCookie != null) {
+          exchange.getResponseHeaders().add("Set-Cookie",
+              extraCookie + "; Path=/");
+        }
+        if (!authenticate(exchange)) {
+          discardRequestBody(exchange);
+          exchange.getResponseHeaders().add("WWW-Authenticate",
+              "Basic realm=\"Navigator\"");
+          exchange.sendResponseHeaders(401, -1);
+          return;
+        }
+        if (takeFailure()) {
+          discardRequestBody(exchange);
+          exchange.sendResponseHeaders(failureStatus, -1);
+          return;
+        }
+        Matcher matcher = API_PATH.matcher(
+            exchange.getRequestURI().getPath());
+        String endpoint = matcher.matches() ? matcher.group(1) : "";
+        String method = exchange.getRequestMethod();
+        if ("GET".equals(method) && "entities".equals(endpoint)) {
+          String query = exchange.getRequestURI().getQuery();
+          sendJson(exchange, query != null && query.contains("type:SOURCE") ?
+              generator.getSources() : Collections.emptyList());
+        } else if ("POST".equals(method) && "entities/paging".equals(endpoint)) {
+          sendJson(exchange, page(readJson(exchange), true));
+        } else if ("POST".equals(method) &&
+            "relations/paging".equals(endpoint)) {
+          sendJson(exchange, page(readJson(exchange), false));
+        } else if ("POST".equals(method) &&
+            "metadata/plugin".equals(endpoint)) {
+          sendJson(exchange, write(exchange));
+        } else if ("POST".equals(method) && "models".equals(endpoint)) {
+          sendJson(exchange, readJson(exchange));
+        } else {
+          exchange.sendResponseHeaders(404, -1);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        exchange.sendResponseHeaders(503, -1);
+      } catch (RuntimeException e) {
+        exchange.sendResponseHeaders(400, -1);
+      } finally {
+        exchange.close();
+      }
+    }
+  }
+
+  /**
+   * Read a request that is rejected, so its connection can be reused
+   */
+  private static void discardRequestBody(HttpExchange exchange)
+      throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      ByteStreams.copy(in, ByteStreams.nullOutputStream());
+    }
+  }
+
+  private boolean authenticate(HttpExchange exchange) {
+    if (authorization == null) {
+      return true;
+    }
+    List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+    if (cookies != null) {
+      for (String header : cookies) {
+        for (String cookie : header.split(";")) {
+          String[] pair = cookie.trim().split("=", 2);
+          if (pair.length == 2 && sessionCookieName.equals(pair[0]) &&
+              sessions.contains(pair[1])) {
+            return true;
+          }
+        }
+      }
+    }
+    if (!authorization.equals(
+        exchange.getRequestHeaders().getFirst("Authorization"))) {
+      return false;
+    }
+    authentications.incrementAndGet();
+    if (sessionsEnabled) {
+      String session = UUID.randomUUID().toString();
+      sessions.add(session);
+      exchange.getResponseHeaders().add("Set-Cookie",
+          sessionCookieName + "=" + session + "; Path=/; HttpOnly");
+    }
+    return true;
+  }
+
+  private boolean takeFailure() {
+    while (true) {
+      int left = failuresLeft.get();
+      if (left <= 0) {
+        return false;
+      }
+      if (failuresLeft.compareAndSet(left, left - 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * The cursorMark is the offset of the next result across the requested
+   * extractions. Only the selected fields of every result are returned if
+   * the query has any.
+   */
+  private Map<String, Object> page(Map<String, Object> query,
+                                   boolean entities) {
+    List<int[]> runs = requestedRuns((String) query.get("query"));
+    int limit = ((Number) query.get("limit")).intValue();
+    String cursorMark = (String) query.get("cursorMark");
+    long offset = cursorMark == null || "*".equals(cursorMark) ? 0L :
+        Long.parseLong(cursorMark);
+    int perRun = generator.getEntitiesPerRun();
+    long end = Math.min(offset + limit, (long) runs.size() * perRun);
+    List<Map<String, Object>> results = Lists.newArrayListWithCapacity(
+        (int) Math.max(end - offset, 0));
+    @SuppressWarnings("unchecked")
+    Collection<String> fields = (Collection<String>) query.get("fields");
+    for (long pos = offset; pos < end; pos++) {
+      int[] run = runs.get((int) (pos / perRun));
+      int index = (int) (pos % perRun);
+      Map<String, Object> result = entities ?
+          generator.newEntity(run[0], run[1], index) :
+          generator.newRelation(run[0], run[1], index);
+      results.add(fields == null ? result :
+          Maps.filterKeys(result, Predicates.in(fields)));
+    }
+    return ImmutableMap.of(
+        "cursorMark", String.valueOf(Math.max(end, offset)),
+        "results", results);
+  }
+
+  private List<int[]> requestedRuns(String query) {
+    Matcher matcher = RUN_ID_CLAUSE.matcher(query == null ? "" : query);
+    Collection<String> runIds = matcher.find() &&
+        !"*".equals(matcher.group(1).trim()) ?
+        parseRunIdTerms(matcher.group(1)) :
+        generator.getExtractorRunIds();
+    List<int[]> runs = Lists.newArrayListWithCapacity(runIds.size());
+    for (String runId : runIds) {
+      int[] run = generator.parseExtractorRunId(runId.trim());
+      if (run != null) {
+        runs.add(run);
+      }
+    }
+    return runs;
+  }
+
+  /**
+   * Expand the terms of an extractorRunId clause, both run ids and /regular
+   * expressions/ matching run ids
+   */
+  private Collection<String> parseRunIdTerms(String clause) {
+    Set<String> runIds = Sets.newLinkedHashSet();
+    Matcher terms = RUN_ID_TERM.matcher(clause);
+    while (terms.find()) {
+      if (terms.group(1) != null) {
+        Pattern pattern = Pattern.compile(terms.group(1));
+        for (String runId : generator.getExtractorRunIds()) {
+          if (pattern.matcher(runId).matches()) {
+            runIds.add(runId);
+          }
+        }
+      } else if (!"OR".equals(terms.group())) {
+        runIds.add(terms.group());
+      }
+    }
+    return runIds;
+  }
+
+  private Map<String, Object> write(HttpExchange exchange) throws IOException {
+    // a writer may send several metadata batches in one request
+    int entities = 0;
+    int relations = 0;
+    try (InputStream in = requestBody(exchange)) {
+      MappingIterator<Map<String, Object>> batches =
+          mapper.reader(MAP_TYPE).readValues(in);
+      while (batches.hasNextValue()) {
+        Map<String, Object> batch = batches.nextValue();
+        entities += size(batch.get("entities"));
+        relations += size(batch.get("relations"));
+      }
+    }
+    entitiesWritten.addAndGet(entities);
+    relationsWritten.addAndGet(relations);
+    return ImmutableMap.<String, Object>of(
+        "entities", updateCount(entities),
+        "relations", updateCount(relations));
+  }
+
+  private static int size(Object values) {
+    if (values instanceof Collection) {
+      return ((Collection<?>) values).size();
+    } else if (values instanceof Map) {
+      return ((Map<?, ?>) values).size();
+    }
+    return 0;
+  }
+
+  private static Map<String, Object> updateCount(int count) {
+    Map<String, Object> update = Maps.newHashMap();
+    update.put("count", count);
+    update.put("errors", Collections.emptyList());
+    return update;
+  }
+
+  private Map<String, Object> readJson(HttpExchange exchange)
+      throws IOException {
+    try (InputStream in = requestBody(exchange)) {
+      return mapper.readValue(in, MAP_TYPE);
+    }
+  }
+
+  private InputStream requestBody(HttpExchange exchange) throws IOException {
+    String encoding = exchange.getRequestHeaders().getFirst(
+        "Content-Encoding");
+    InputStream in = exchange.getRequestBody();
+    if ("gzip".equalsIgnoreCase(encoding)) {
+      return new GZIPInputStream(in);
+    } else if ("deflate".equalsIgnoreCase(encoding)) {
+      return new InflaterInputStream(in);
+    }
+    return in;
+  }
+
+  private void sendJson(HttpExchange exchange, Object value)
+      throws IOException {
+    String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    boolean gzip = accept != null && accept.contains("gzip");
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    if (gzip) {
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+    }
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream out = exchange.getResponseBody();
+    try {
+      if (gzip) {
+        out = new GZIPOutputStream(out);
+      }
+      mapper.writeValue(out, value);
+    } finally {
+      out.close();
+    }
+  }
+}
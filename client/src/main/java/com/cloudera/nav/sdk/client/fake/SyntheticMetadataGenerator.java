@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.fake;
+
+import com.cloudera.nav.sdk.model.MD5IdGenerator;
+import com.cloudera.nav.sdk.model.SourceType;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic generator of synthetic Navigator metadata. Every source has
+ * been extracted a fixed number of times and every extraction (identified
+ * by its extractorRunId, "sourceId##iteration") produced the same number of
+ * entities and relations. Results are generated on demand from their
+ * position, so arbitrarily large data sets take no memory.
+ */
+public class SyntheticMetadataGenerator {
+
+  private static final String CLUSTER_NAME = "Cluster 1";
+
+  private final int numSources;
+  private final int extractIterations;
+  private final int entitiesPerRun;
+  private final List<String> sourceIds;
+  private final List<Map<String, Object>> sources;
+
+  /**
+   * @param numSources number of HDFS sources
+   * @param extractIterations number of extractions of each source
+   * @param entitiesPerRun entities added by every extraction, each one is
+   *                       also the source of a relation
+   */
+  public SyntheticMetadataGenerator(int numSources, int extractIterations,
+                                    int entitiesPerRun) {
+    Preconditions.checkArgument(numSources > 0 && extractIterations > 0 &&
+        entitiesPerRun > 0, "Generator dimensions must be positive");
+    this.numSources = numSources;
+    this.extractIterations = extractIterations;
+    this.entitiesPerRun = entitiesPerRun;
+    ImmutableList.Builder<String> ids = ImmutableList.builder();
+    for (int i = 0; i < numSources; i++) {
+      ids.add(MD5IdGenerator.generateIdentity(CLUSTER_NAME, "HDFS-" + i));
+    }
+    this.sourceIds = ids.build();
+    ImmutableList.Builder<Map<String, Object>> builder =
+        ImmutableList.builder();
+    for (int i = 0; i < numSources; i++) {
+      builder.add(newSource(i));
+    }
+    this.sources = builder.build();
+  }
+
+  /**
+   * @return all sources in the format of the Navigator entities API
+   */
+  public List<Map<String, Object>> getSources() {
+    return sources;
+  }
+
+  /**
+   * @return all extractorRunIds, in the order results are returned
+   */
+  public List<String> getExtractorRunIds() {
+    List<String> runIds = Lists.newArrayListWithCapacity(
+        numSources * extractIterations);
+    for (int source = 0; source < numSources; source++) {
+      for (int iteration = 1; iteration <= extractIterations; iteration++) {
+        runIds.add(extractorRunId(source, iteration));
+      }
+    }
+    return runIds;
+  }
+
+  /**
+   * @return number of entities, and relations, in every extraction
+   */
+  public int getEntitiesPerRun() {
+    return entitiesPerRun;
+  }
+
+  /**
+   * @return total number of entities, and relations, across all extractions
+   */
+  public long getTotalEntities() {
+    return (long) numSources * extractIterations * entitiesPerRun;
+  }
+
+  /**
+   * @return the position of the source and iteration of the given
+   *         extractorRunId, or null if it does not belong to this data set
+   */
+  int[] parseExtractorRunId(String extractorRunId) {
+    int separator = extractorRunId.lastIndexOf("##");
+    if (separator < 0) {
+      return null;
+    }
+    String sourceId = extractorRunId.substring(0, separator);
+    int iteration;
+    try {
+      iteration = Integer.parseInt(extractorRunId.substring(separator + 2));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (iteration < 1 || iteration > extractIterations) {
+      return null;
+    }
+    int source = sourceIds.indexOf(sourceId);
+    return source < 0 ? null : new int[] { source, iteration };
+  }
+
+  /**
+   * @return the entity at the given position of an extraction
+   */
+  public Map<String, Object> newEntity(int source, int iteration, int index) {
+    String runId = extractorRunId(source, iteration);
+    String path = String.format("/data/source%d/run%d/file%d", source,
+        iteration, index);
+    Map<String, Object> entity = Maps.newHashMap();
+    entity.put("identity", entityId(source, iteration, index));
+    entity.put("originalName", "file" + index);
+    entity.put("fileSystemPath", path);
+    entity.put("parentPath", path.substring(0, path.lastIndexOf('/')));
+    entity.put("sourceId", sourceId(source));
+    entity.put("sourceType", SourceType.HDFS.name());
+    entity.put("type", "FILE");
+    entity.put("internalType", "fselement");
+    entity.put("extractorRunId", runId);
+    entity.put("size", 1024L * (index + 1));
+    entity.put("deleted", false);
+    return entity;
+  }
+
+  /**
+   * @return the relation at the given position of an extraction. It links
+   *         the entity at the same position to the next one of the run.
+   */
+  public Map<String, Object> newRelation(int source, int iteration,
+                                         int index) {
+    String src = entityId(source, iteration, index);
+    String target = entityId(source, iteration, (index + 1) % entitiesPerRun);
+    Map<String, Object> relation = Maps.newHashMap();
+    relation.put("identity", MD5IdGenerator.generateIdentity(src, target,
+        "DATA_FLOW"));
+    relation.put("type", "DATA_FLOW");
+    relation.put("extractorRunId", extractorRunId(source, iteration));
+    relation.put("source", endpoint(source, src));
+    relation.put("target", endpoint(source, target));
+    return relation;
+  }
+
+  private Map<String, Object> endpoint(int source, String entityId) {
+    Map<String, Object> endpoint = Maps.newHashMap();
+    Collection<String> ids = ImmutableList.of(entityId);
+    endpoint.put("entityIds", ids);
+    endpoint.put("sourceId", sourceId(source));
+    endpoint.put("sourceType", SourceType.HDFS.name());
+    endpoint.put("type", "FILE");
+    return endpoint;
+  }
+
+  private Map<String, Object> newSource(int source) {
+    Map<String, Object> attrs = Maps.newHashMap();
+    attrs.put("identity", sourceId(source));
+    attrs.put("originalName", "HDFS-" + source);
+    attrs.put("sourceType", SourceType.HDFS.name());
+    attrs.put("clusterName", CLUSTER_NAME);
+    attrs.put("sourceUrl", String.format("hdfs://host%d:8020", source));
+    attrs.put("sourceExtractIteration", (long) extractIterations);
+    return attrs;
+  }
+
+  private String sourceId(int source) {
+    return sourceIds.get(source);
+  }
+
+  private String extractorRunId(int source, int iteration) {
+    return sourceId(source) + "##" + iteration;
+  }
+
+  private String entityId(int source, int iteration, int index) {
+    return MD5IdGenerator.generateIdentity(sourceId(source),
+        String.valueOf(iteration), String.valueOf(index));
+  }
+}
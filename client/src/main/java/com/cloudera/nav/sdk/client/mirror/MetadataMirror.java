@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.mirror;
+
+import com.cloudera.nav.sdk.client.MetadataExtractor;
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local copy of the metadata in Navigator, kept in a directory so that
+ * repeated lookups do not page through Navigator.
+ *
+ * The first {@link #sync()} performs a full extraction, every later one an
+ * incremental extraction from the marker of the previous sync. Entities
+ * and relations are appended to a memory mapped log as they are extracted,
+ * and indexed in memory by identity, type and sourceType. A newer record of
+ * an identity replaces the older one, a record marked as deleted removes
+ * it. The indexes are rebuilt from the log when the mirror is opened again.
+ *
+ * The marker and the time of the last sync are saved once all its records
+ * were written to disk. If a sync fails, the next one repeats the same
+ * incremental extraction. The log only grows; delete the directory to
+ * start over from a full extraction.
+ *
+ * Lookups may be served concurrently with each other and with a sync.
+ */
+public class MetadataMirror implements Closeable {
+
+  public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      MetadataMirror.class);
+  private static final String STATE_FILE = "mirror.json";
+  private static final TypeReference<Map<String, Object>> RECORD_TYPE =
+      new TypeReference<Map<String, Object>>(){};
+
+  private final MetadataExtractor extractor;
+  private final MirrorLog log;
+  private final Path statePath;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, IndexEntry> index = Maps.newHashMap();
+  private final SetMultimap<String, String> byType = HashMultimap.create();
+  private final SetMultimap<String, String> bySourceType =
+      HashMultimap.create();
+  private volatile SyncState state;
+
+  public MetadataMirror(MetadataExtractor extractor, File directory)
+      throws IOException {
+    this(extractor, directory, DEFAULT_SEGMENT_BYTES);
+  }
+
+  @VisibleForTesting
+  MetadataMirror(MetadataExtractor extractor, File directory,
+                 int segmentBytes) throws IOException {
+    this.extractor = extractor;
+    this.log = new MirrorLog(directory, segmentBytes);
+    this.statePath = new File(directory, STATE_FILE).toPath();
+    if (Files.exists(statePath)) {
+      state = mapper.readValue(statePath.toFile(), SyncState.class);
+    }
+    log.replay(new MirrorLog.RecordVisitor() {
+      @Override
+      public void visit(long position, byte[] record) throws IOException {
+        index(position, mapper.<Map<String, Object>>readValue(record,
+            RECORD_TYPE));
+      }
+    });
+  }
+
+  /**
+   * Apply the changes in Navigator since the last sync, or copy all
+   * metadata if the mirror has not been synced yet
+   */
+  public synchronized void sync() {
+    long startMillis = System.currentTimeMillis();
+    SyncState previous = state;
+    MetadataResultSet results = previous == null ?
+        extractor.extractMetadata() :
+        extractor.extractMetadata(previous.getMarker());
+    try {
+      long records = apply(results.getEntities()) +
+          apply(results.getRelations());
+      log.force();
+      SyncState synced = new SyncState(results.getMarker(), startMillis);
+      Path tempPath = statePath.resolveSibling(STATE_FILE + ".tmp");
+      mapper.writeValue(tempPath.toFile(), synced);
+      Files.move(tempPath, statePath, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      state = synced;
+      LOG.info("Applied {} records to the mirror in {}ms", records,
+          System.currentTimeMillis() - startMillis);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private long apply(Iterable<Map<String, Object>> results)
+      throws IOException {
+    long count = 0;
+    for (Map<String, Object> result : results) {
+      if (!(result.get("identity") instanceof String)) {
+        continue;
+      }
+      byte[] record = mapper.writeValueAsBytes(result);
+      lock.writeLock().lock();
+      try {
+        index(log.append(record), result);
+      } finally {
+        lock.writeLock().unlock();
+      }
+      count++;
+    }
+    return count;
+  }
+
+  private void index(long position, Map<String, Object> result) {
+    String identity = (String) result.get("identity");
+    IndexEntry previous = index.remove(identity);
+    if (previous != null) {
+      byType.remove(previous.type, identity);
+      bySourceType.remove(previous.sourceType, identity);
+    }
+    if (Boolean.TRUE.equals(result.get("deleted"))) {
+      return;
+    }
+    IndexEntry entry = new IndexEntry(position,
+        asString(result.get("type")), asString(result.get("sourceType")));
+    index.put(identity, entry);
+    if (entry.type != null) {
+      byType.put(entry.type, identity);
+    }
+    if (entry.sourceType != null) {
+      bySourceType.put(entry.sourceType, identity);
+    }
+  }
+
+  private static String asString(Object value) {
+    return value == null ? null : value.toString();
+  }
+
+  /**
+   * @return the entity or relation with the given identity, null if it is
+   *         not in the mirror
+   */
+  public Map<String, Object> get(String identity) {
+    lock.readLock().lock();
+    try {
+      IndexEntry entry = index.get(identity);
+      return entry == null ? null : read(entry.position);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param type type to match, null for any type
+   * @param sourceType sourceType to match, null for any sourceType
+   * @return entities and relations of the given type and sourceType
+   */
+  public List<Map<String, Object>> find(String type, String sourceType) {
+    lock.readLock().lock();
+    try {
+      Set<String> identities;
+      if (type == null && sourceType == null) {
+        identities = index.keySet();
+      } else if (type == null) {
+        identities = bySourceType.get(sourceType);
+      } else if (sourceType == null) {
+        identities = byType.get(type);
+      } else {
+        identities = Sets.intersection(byType.get(type),
+            bySourceType.get(sourceType));
+      }
+      List<Map<String, Object>> results = Lists.newArrayListWithCapacity(
+          identities.size());
+      for (String identity : identities) {
+        results.add(read(index.get(identity).position));
+      }
+      return results;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return types of the entities and relations in the mirror
+   */
+  public Collection<String> getTypes() {
+    lock.readLock().lock();
+    try {
+      return ImmutableSet.copyOf(byType.keySet());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return number of entities and relations in the mirror
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return marker of the last sync, null if the mirror was never synced
+   */
+  public String getMarker() {
+    SyncState current = state;
+    return current == null ? null : current.getMarker();
+  }
+
+  /**
+   * @return time the last sync started, -1 if the mirror was never synced
+   */
+  public long getLastSyncMillis() {
+    SyncState current = state;
+    return current == null ? -1L : current.getSyncedAtMillis();
+  }
+
+  /**
+   * @return time since the state of the mirror was taken from Navigator,
+   *         Long.MAX_VALUE if the mirror was never synced
+   */
+  public long getStalenessMillis() {
+    SyncState current = state;
+    return current == null ? Long.MAX_VALUE :
+        System.currentTimeMillis() - current.getSyncedAtMillis();
+  }
+
+  /**
+   * @return size of the log in bytes
+   */
+  public long getLogBytes() {
+    return log.getSize();
+  }
+
+  @Override
+  public void close() throws IOException {
+    log.close();
+  }
+
+  private Map<String, Object> read(long position) {
+    try {
+      return mapper.readValue(log.read(position), RECORD_TYPE);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static class IndexEntry {
+    private final long position;
+    private final String type;
+    private final String sourceType;
+
+    IndexEntry(long position, String type, String sourceType) {
+      this.position = position;
+      this.type = type;
+      this.sourceType = sourceType;
+    }
+  }
+
+  /**
+   * Marker of the last sync and the time it started
+   */
+  static class SyncState {
+    private final String marker;
+    private final long syncedAtMillis;
+
+    @JsonCreator
+    SyncState(@JsonProperty("marker") String marker,
+              @JsonProperty("syncedAtMillis") long syncedAtMillis) {
+      this.marker = marker;
+      this.syncedAtMillis = syncedAtMillis;
+    }
+
+    public String getMarker() {
+      return marker;
+    }
+
+    public long getSyncedAtMillis() {
+      return syncedAtMillis;
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.mirror;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only log of records in segment files of a directory. Every record
+ * is stored as its length followed by its bytes, and is addressed by the
+ * index of its segment in the upper and its offset in the lower 32 bits of
+ * a long.
+ *
+ * Records are appended through the file channel of the last segment and
+ * read from read-only memory mappings, which are extended once a record
+ * beyond the mapped part of a segment is read. A segment is full once the
+ * next record would exceed the segment size, a record larger than the
+ * segment size gets a segment of its own.
+ *
+ * Appends have to be serialized by the caller, reads may run concurrently
+ * with each other and with appends of other records.
+ */
+class MirrorLog implements Closeable {
+
+  /**
+   * Visitor of the records during replay
+   */
+  interface RecordVisitor {
+    void visit(long position, byte[] record) throws IOException;
+  }
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final int LENGTH_BYTES = 4;
+
+  private final File directory;
+  private final int segmentBytes;
+  private final List<Segment> segments = Lists.newCopyOnWriteArrayList();
+
+  MirrorLog(File directory, int segmentBytes) throws IOException {
+    Preconditions.checkArgument(segmentBytes > LENGTH_BYTES,
+        "Segment size %s is too small", segmentBytes);
+    Preconditions.checkArgument(directory.isDirectory() || directory.mkdirs(),
+        "Cannot create directory %s", directory);
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    String[] names = directory.list(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith(SEGMENT_PREFIX) &&
+            name.endsWith(SEGMENT_SUFFIX);
+      }
+    });
+    // zero padded names sort in the order of the segments
+    Arrays.sort(names);
+    for (String name : names) {
+      segments.add(new Segment(new File(directory, name)));
+    }
+    if (segments.isEmpty()) {
+      addSegment();
+    }
+  }
+
+  /**
+   * Visit every record in the order it was appended. A record at the end of
+   * the last segment that was not written completely, because the process
+   * stopped while it was appended, is removed.
+   */
+  void replay(RecordVisitor visitor) throws IOException {
+    for (int i = 0; i < segments.size(); i++) {
+      Segment segment = segments.get(i);
+      ByteBuffer buffer = segment.map(segment.size);
+      int offset = 0;
+      while (offset + LENGTH_BYTES <= segment.size) {
+        int length = buffer.getInt(offset);
+        if (length < 0 || offset + LENGTH_BYTES + length > segment.size) {
+          break;
+        }
+        byte[] record = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + LENGTH_BYTES);
+        view.get(record);
+        visitor.visit(position(i, offset), record);
+        offset += LENGTH_BYTES + length;
+      }
+      if (offset < segment.size) {
+        Preconditions.checkState(i == segments.size() - 1,
+            "Segment %s is corrupt at offset %s", segment.file, offset);
+        segment.truncate(offset);
+      }
+    }
+  }
+
+  /**
+   * @return position of the appended record
+   */
+  long append(byte[] record) throws IOException {
+    Segment segment = segments.get(segments.size() - 1);
+    long end = (long) segment.size + LENGTH_BYTES + record.length;
+    if (segment.size > 0 && end > segmentBytes) {
+      segment = addSegment();
+    }
+    Preconditions.checkArgument(
+        LENGTH_BYTES + record.length <= Integer.MAX_VALUE - segment.size,
+        "Record of %s bytes is too large", record.length);
+    ByteBuffer buffer = ByteBuffer.allocate(LENGTH_BYTES + record.length);
+    buffer.putInt(record.length).put(record).flip();
+    int offset = segment.size;
+    while (buffer.hasRemaining()) {
+      segment.channel.write(buffer, offset + buffer.position());
+    }
+    segment.size += buffer.limit();
+    return position(segments.size() - 1, offset);
+  }
+
+  /**
+   * @return the record at a position returned by {@link #append(byte[])}
+   *         or passed to a {@link RecordVisitor}
+   */
+  byte[] read(long position) throws IOException {
+    Segment segment = segments.get((int) (position >>> 32));
+    int offset = (int) position;
+    ByteBuffer buffer = segment.map(offset + LENGTH_BYTES);
+    int length = buffer.getInt(offset);
+    buffer = segment.map(offset + LENGTH_BYTES + length).duplicate();
+    buffer.position(offset + LENGTH_BYTES);
+    byte[] record = new byte[length];
+    buffer.get(record);
+    return record;
+  }
+
+  /**
+   * Force the appended records to the storage device
+   */
+  void force() throws IOException {
+    segments.get(segments.size() - 1).channel.force(false);
+  }
+
+  /**
+   * @return number of bytes in all segments
+   */
+  long getSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Segment segment : segments) {
+      segment.channel.close();
+    }
+  }
+
+  private Segment addSegment() throws IOException {
+    if (!segments.isEmpty()) {
+      force();
+    }
+    Segment segment = new Segment(new File(directory,
+        String.format("%s%08d%s", SEGMENT_PREFIX, segments.size(),
+            SEGMENT_SUFFIX)));
+    segments.add(segment);
+    return segment;
+  }
+
+  private static long position(int segment, int offset) {
+    return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+  }
+
+  private static class Segment {
+    private final File file;
+    private final FileChannel channel;
+    private volatile int size;
+    private volatile MappedByteBuffer mapped;
+
+    Segment(File file) throws IOException {
+      this.file = file;
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+      this.size = (int) channel.size();
+    }
+
+    /**
+     * @return mapping covering at least the given number of bytes
+     */
+    MappedByteBuffer map(int bytes) throws IOException {
+      MappedByteBuffer current = mapped;
+      if (current != null && current.limit() >= bytes) {
+        return current;
+      }
+      synchronized (this) {
+        if (mapped == null || mapped.limit() < bytes) {
+          mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return mapped;
+      }
+    }
+
+    void truncate(int bytes) throws IOException {
+      channel.truncate(bytes);
+      size = bytes;
+      mapped = null;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.reactive;
+
+import com.cloudera.nav.sdk.client.MetadataIterable;
+import com.cloudera.nav.sdk.client.MetadataResultIterator;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reactive Streams {@link Publisher} of the results of a
+ * {@link MetadataIterable}, such as the entities or relations of a
+ * MetadataExtractor result set. Every subscription pages through its own
+ * {@link MetadataResultIterator}.
+ *
+ * Paging is driven by demand: results are only taken from the iterator
+ * while the subscriber has requested more, so at most the page holding the
+ * next result is fetched ahead of the demand. The iterator is used on a
+ * thread of the publisher's executor, never on the thread of the
+ * subscriber's request, and all signals, onSubscribe included, are
+ * delivered on that thread one at a time. Cancelling a subscription stops
+ * paging and closes its iterator once the request in flight, if any, has
+ * completed. A subscriber whose onNext throws is treated as having
+ * cancelled its subscription.
+ */
+public class MetadataPublisher implements Publisher<Map<String, Object>> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      MetadataPublisher.class);
+
+  private final MetadataIterable iterable;
+  private final Executor executor;
+
+  /**
+   * Publish on daemon threads that are started as needed
+   */
+  public MetadataPublisher(MetadataIterable iterable) {
+    this(iterable, Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder()
+            .setNameFormat("nav-publisher-%d")
+            .setDaemon(true)
+            .build()));
+  }
+
+  public MetadataPublisher(MetadataIterable iterable, Executor executor) {
+    this.iterable = iterable;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super Map<String, Object>> subscriber) {
+    Preconditions.checkNotNull(subscriber);
+    new MetadataSubscription(subscriber).schedule();
+  }
+
+  /**
+   * Signals are delivered by a drain task on the executor. Requests and
+   * cancellation only update the state and make sure a task is scheduled,
+   * the number of pending updates keeps a single task draining at a time.
+   */
+  private class MetadataSubscription implements Subscription, Runnable {
+
+    private final Subscriber<? super Map<String, Object>> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pendingUpdates = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    // only updated by the drain task, or if the executor rejects it
+    private volatile boolean subscribed;
+    private volatile boolean terminated;
+    private boolean rejected;
+    // only used by the drain task
+    private MetadataResultIterator results;
+
+    MetadataSubscription(Subscriber<? super Map<String, Object>> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException(
+            "Rule 3.9: requested a non-positive number of results: " + n);
+      } else {
+        addDemand(n);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void addDemand(long n) {
+      while (true) {
+        long current = demand.get();
+        long updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+        if (demand.compareAndSet(current, updated)) {
+          return;
+        }
+      }
+    }
+
+    private void schedule() {
+      if (pendingUpdates.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // no drain task is running, signal the failure once
+          pendingUpdates.set(0);
+          cancelled = true;
+          if (!rejected && !terminated) {
+            rejected = true;
+            if (!subscribed) {
+              subscribed = true;
+              subscriber.onSubscribe(this);
+            }
+            subscriber.onError(e);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int updates = pendingUpdates.get();
+      do {
+        drain();
+        updates = pendingUpdates.addAndGet(-updates);
+      } while (updates != 0);
+    }
+
+    private void drain() {
+      if (terminated) {
+        return;
+      }
+      if (!subscribed) {
+        // requests made by onSubscribe are drained by the next round
+        subscribed = true;
+        try {
+          subscriber.onSubscribe(this);
+        } catch (RuntimeException e) {
+          LOG.warn("Subscriber failed in onSubscribe, cancelling its " +
+              "subscription", e);
+          cancelled = true;
+          terminate();
+        }
+        return;
+      }
+      while (!cancelled && invalidRequest == null) {
+        boolean hasNext;
+        Map<String, Object> next = null;
+        try {
+          if (results == null) {
+            results = iterable.iterator();
+          }
+          hasNext = results.hasNext();
+          if (hasNext && demand.get() > 0) {
+            next = results.next();
+          }
+        } catch (RuntimeException e) {
+          terminate();
+          subscriber.onError(e);
+          return;
+        }
+        if (!hasNext) {
+          terminate();
+          subscriber.onComplete();
+          return;
+        }
+        if (next == null) {
+          // wait for more demand
+          return;
+        }
+        try {
+          subscriber.onNext(next);
+        } catch (RuntimeException e) {
+          LOG.warn("Subscriber failed in onNext, cancelling its subscription",
+              e);
+          cancelled = true;
+          terminate();
+          return;
+        }
+        if (demand.get() != Long.MAX_VALUE) {
+          demand.decrementAndGet();
+        }
+      }
+      terminate();
+      if (!cancelled) {
+        subscriber.onError(invalidRequest);
+      }
+    }
+
+    private void terminate() {
+      terminated = true;
+      if (results != null) {
+        results.close();
+        results = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.writer;
+
+import com.cloudera.nav.sdk.client.Compression;
+import com.cloudera.nav.sdk.client.CompressionStats;
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Request body stream that compresses everything written to it with the
+ * configured content coding. The compressed body must be completed with
+ * {@link #finish()} before the response is requested.
+ */
+class CompressedRequestStream extends FilterOutputStream {
+
+  private final DeflaterOutputStream compressor;
+
+  CompressedRequestStream(OutputStream body, Compression compression,
+                          CompressionStats stats) throws IOException {
+    this(newCompressor(stats.countCompressedWritten(body), compression),
+        stats);
+  }
+
+  private CompressedRequestStream(DeflaterOutputStream compressor,
+                                  CompressionStats stats) {
+    super(new BufferedOutputStream(
+        stats.countUncompressedWritten(compressor)));
+    this.compressor = compressor;
+  }
+
+  private static DeflaterOutputStream newCompressor(OutputStream out,
+      Compression compression) throws IOException {
+    Preconditions.checkArgument(compression != Compression.NONE);
+    return compression == Compression.GZIP ? new GZIPOutputStream(out) :
+        new DeflaterOutputStream(out);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+  }
+
+  /**
+   * Write the remaining compressed data without closing the underlying
+   * request stream
+   */
+  public void finish() throws IOException {
+    out.flush();
+    compressor.finish();
+  }
+}
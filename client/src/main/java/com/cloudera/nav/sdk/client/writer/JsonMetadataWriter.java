@@ -25,30 +25,32 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
+import com.google.common.io.CharStreams;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
 
 import org.apache.commons.httpclient.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
 
 /**
  * Write metadata in JSON format
  */
 public class JsonMetadataWriter extends MetadataWriter {
 
-  private final HttpURLConnection conn;
+  private final ClientHttpRequest request;
   private final ObjectMapper mapper;
   private ResultSet lastResult;
 
   public JsonMetadataWriter(ClientConfig config,
                             OutputStream stream,
-                            HttpURLConnection conn) {
+                            ClientHttpRequest request) {
     super(config, stream);
-    this.conn = conn;
+    this.request = request;
     this.mapper = newMapper();
   }
 
@@ -81,23 +83,23 @@ public class JsonMetadataWriter extends MetadataWriter {
   public void flush() {
     super.flush();
     try {
-      // request is not sent until response code is requested
-      if (conn.getResponseCode() >= HttpStatus.SC_BAD_REQUEST) {
-
-    	  // display error message
-    	  BufferedReader br = new BufferedReader(new InputStreamReader((conn.getErrorStream())));
-    	  StringBuilder sb = new StringBuilder();
-    	  String responseBody;
-    	  while ((responseBody = br.readLine()) != null) {
-    		  sb.append(responseBody);
-    	  }
-    	  responseBody = sb.toString();
-
-        throw new RuntimeException(String.format(
-            "Error writing metadata (code %s): %s %s", conn.getResponseCode(),
-            conn.getResponseMessage(), responseBody));
+      if (stream instanceof CompressedRequestStream) {
+        // the compressed body has to be complete before it is sent
+        ((CompressedRequestStream) stream).finish();
+      }
+      // request is not sent until it is executed
+      try (ClientHttpResponse response = request.execute()) {
+        if (response.getRawStatusCode() >= HttpStatus.SC_BAD_REQUEST) {
+          // display error message
+          String responseBody = CharStreams.toString(new InputStreamReader(
+              response.getBody(), Charsets.UTF_8));
+          throw new RuntimeException(String.format(
+              "Error writing metadata (code %s): %s %s",
+              response.getRawStatusCode(), response.getStatusText(),
+              responseBody));
+        }
+        lastResult = mapper.readValue(response.getBody(), ResultSet.class);
       }
-      lastResult = mapper.readValue(conn.getInputStream(), ResultSet.class);
     } catch (IOException e) {
       Throwables.propagate(e);
     }
@@ -16,6 +16,7 @@
 
 package com.cloudera.nav.sdk.client.writer;
 
+import com.cloudera.nav.sdk.model.Identity;
 import com.cloudera.nav.sdk.model.entities.Entity;
 import com.cloudera.nav.sdk.model.relations.Relation;
 import com.google.common.collect.Maps;
@@ -27,6 +28,9 @@ import java.util.Map;
  * Thin wrapper for entities and relations. This class is used to store
  * a flat representation of entities and relations starting with
  * a particular Entity instance and following @MRelation annotations
+ *
+ * Entities and relations are keyed by their identity String. Lookups by
+ * {@link Identity} use its String form.
  */
 public class MClassWrapper {
 
@@ -44,7 +48,23 @@ public class MClassWrapper {
   }
 
   public boolean hasEntity(Entity en) {
-    return entities.containsKey(en.getIdentity());
+    return hasEntity(en.getIdentity());
+  }
+
+  public boolean hasEntity(String identity) {
+    return entities.containsKey(identity);
+  }
+
+  public boolean hasEntity(Identity identity) {
+    return hasEntity(identity.toString());
+  }
+
+  public Entity getEntity(String identity) {
+    return entities.get(identity);
+  }
+
+  public Entity getEntity(Identity identity) {
+    return getEntity(identity.toString());
   }
 
   public void addEntity(Entity en) {
@@ -16,37 +16,43 @@
 package com.cloudera.nav.sdk.client.writer;
 
 import com.cloudera.nav.sdk.client.ClientConfig;
-import com.cloudera.nav.sdk.client.SSLUtils;
+import com.cloudera.nav.sdk.client.Compression;
+import com.cloudera.nav.sdk.client.CompressionStats;
+import com.cloudera.nav.sdk.client.NavTransport;
+import com.cloudera.nav.sdk.client.NavTransportFactory;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
 
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-
-import org.apache.commons.net.util.Base64;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
 
 /**
  * A factory that returns the appropriate MetadataWriter given a set of
- * configurations
+ * configurations. Metadata is sent to Navigator through a
+ * {@link NavTransport} which is closed along with the factory.
  */
-public class MetadataWriterFactory {
+public class MetadataWriterFactory implements Closeable {
 
   private final ClientConfig config;
-  private final boolean isSSL;
-  private final SSLContext sslContext;
-  private final HostnameVerifier hostnameVerifier;
+  private final NavTransport transport;
+  private final CompressionStats compressionStats;
 
   public MetadataWriterFactory(ClientConfig config) {
+    this(config, new NavTransportFactory().newTransport(config));
+  }
+
+  public MetadataWriterFactory(ClientConfig config, NavTransport transport) {
+    Preconditions.checkNotNull(transport);
     this.config = config;
-    this.isSSL = SSLUtils.isSSL(config.getNavigatorUrl());
-    this.sslContext = isSSL ? SSLUtils.getSSLContext(config) : null;
-    this.hostnameVerifier = isSSL ? SSLUtils.getHostnameVerifier(config) : null;
+    this.transport = transport;
+    this.compressionStats = new CompressionStats();
   }
 
   /**
@@ -54,44 +60,55 @@ public class MetadataWriterFactory {
    */
   public MetadataWriter newWriter() {
     try {
-      HttpURLConnection conn = createHttpStream();
-      OutputStream stream = new BufferedOutputStream(conn.getOutputStream());
-      return new JsonMetadataWriter(config, stream, conn);
+      ClientHttpRequest request = createRequest();
+      OutputStream stream = isCompressed() ?
+          new CompressedRequestStream(request.getBody(),
+              config.getCompression(), compressionStats) :
+          new BufferedOutputStream(request.getBody());
+      return new JsonMetadataWriter(config, stream, request);
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
   }
 
-  private HttpURLConnection createHttpStream()
-      throws IOException {
-    String apiUrl = joinUrlPath(
-        joinUrlPath(config.getNavigatorUrl(),
-            "api/v" + String.valueOf(config.getApiVersion())),
-            "metadata/plugin");
-    HttpURLConnection conn = openConnection(new URL(apiUrl));
-    conn.setRequestMethod("POST");
-    String userpass = config.getUsername() + ":" + config.getPassword();
-    String basicAuth = "Basic " + new String(Base64.encodeBase64(
-        userpass.getBytes()));
-    conn.addRequestProperty("Authorization", basicAuth);
-    conn.addRequestProperty("Content-Type", "application/json");
-    conn.setDoOutput(true);
-    return conn;
+  private ClientHttpRequest createRequest() throws IOException {
+    String apiUrl = transport.getApiUrl();
+    URI uri = URI.create(apiUrl + (apiUrl.endsWith("/") ? "" : "/") +
+        "metadata/plugin");
+    ClientHttpRequest request = transport.createRequest(uri, HttpMethod.POST);
+    request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    if (isCompressed()) {
+      request.getHeaders().add("Content-Encoding",
+          config.getCompression().getContentEncoding());
+    }
+    return request;
   }
 
-  private HttpURLConnection openConnection(URL url)
-      throws IOException {
-    if (isSSL) {
-      HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-      conn.setHostnameVerifier(hostnameVerifier);
-      conn.setSSLSocketFactory(sslContext.getSocketFactory());
-      return conn;
-    } else {
-      return (HttpURLConnection) url.openConnection();
-    }
+  /**
+   * @return byte counts of the compressed metadata written by the writers
+   *         created by this factory
+   */
+  public CompressionStats getCompressionStats() {
+    return compressionStats;
+  }
+
+  /**
+   * @return the transport used to send metadata to Navigator
+   */
+  public NavTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Close the underlying transport
+   */
+  @Override
+  public void close() {
+    transport.close();
   }
 
-  private static String joinUrlPath(String base, String component) {
-    return base + (base.endsWith("/") ? "" : "/") + component;
+  private boolean isCompressed() {
+    return config.getCompression() != null &&
+        config.getCompression() != Compression.NONE;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.model.Source;
+import com.cloudera.nav.sdk.model.SourceType;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AsyncNavApiClientTest {
+
+  private NavApiCient client;
+  private AsyncNavApiClient asyncClient;
+
+  @Before
+  public void setUp() {
+    client = mock(NavApiCient.class);
+    asyncClient = new AsyncNavApiClient(client, 1);
+  }
+
+  @After
+  public void tearDown() {
+    asyncClient.close();
+  }
+
+  @Test
+  public void testGetEntityBatch() throws Exception {
+    EntityResultsBatch batch = new EntityResultsBatch();
+    batch.setCursorMark("next");
+    MetadataQuery query = new MetadataQuery("identity:*", 10, "*");
+    when(client.getEntityBatch(query)).thenReturn(batch);
+    ResultsBatch<Map<String, Object>> result =
+        asyncClient.getEntityBatch(query).get();
+    assertSame(batch, result);
+  }
+
+  @Test
+  public void testGetAllSources() throws Exception {
+    Source source = new Source("source1", SourceType.HDFS, "cluster1",
+        "foo/bar", "identityString", 100L);
+    Collection<Source> sources = Lists.newArrayList(source);
+    when(client.getAllSources()).thenReturn(sources);
+    assertSame(sources, asyncClient.getAllSources().get());
+  }
+
+  @Test
+  public void testCancelQueuedRequest() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    MetadataQuery first = new MetadataQuery("first", 10, "*");
+    MetadataQuery second = new MetadataQuery("second", 10, "*");
+    when(client.getEntityBatch(first)).thenAnswer(
+        new Answer<ResultsBatch<Map<String, Object>>>() {
+          @Override
+          public ResultsBatch<Map<String, Object>> answer(
+              InvocationOnMock invocation) throws Throwable {
+            started.countDown();
+            release.await();
+            return new EntityResultsBatch();
+          }
+        });
+
+    ListenableFuture<ResultsBatch<Map<String, Object>>> f1 =
+        asyncClient.getEntityBatch(first);
+    started.await();
+    // only one request may be in flight, the second one has to wait
+    ListenableFuture<ResultsBatch<Map<String, Object>>> f2 =
+        asyncClient.getEntityBatch(second);
+    assertEquals(1, asyncClient.getInFlightRequests());
+    assertEquals(1, asyncClient.getQueuedRequests());
+
+    assertTrue(f2.cancel(false));
+    release.countDown();
+    assertNotNull(f1.get());
+    assertTrue(f2.isCancelled());
+    verify(client, never()).getEntityBatch(second);
+  }
+}
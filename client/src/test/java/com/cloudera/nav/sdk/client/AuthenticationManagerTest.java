@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.client.fake.FakeNavigatorServer;
+import com.cloudera.nav.sdk.client.fake.SyntheticMetadataGenerator;
+
+import java.net.URL;
+import java.util.List;
+
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.junit.*;
+
+public class AuthenticationManagerTest {
+
+  /**
+   * Cookie store in which a session cookie, established by a concurrent
+   * request, arrives right after the transport looked for one
+   */
+  private static class RacingCookieStore extends BasicCookieStore {
+
+    private static final long serialVersionUID = 1L;
+
+    private Cookie arriving;
+
+    synchronized void arrive(Cookie cookie) {
+      arriving = cookie;
+    }
+
+    @Override
+    public synchronized List<Cookie> getCookies() {
+      List<Cookie> cookies = super.getCookies();
+      if (arriving != null) {
+        addCookie(arriving);
+        arriving = null;
+      }
+      return cookies;
+    }
+  }
+
+  private FakeNavigatorServer server;
+  private ClientConfig config;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeNavigatorServer(new SyntheticMetadataGenerator(1, 1, 3));
+    server.start();
+    URL url = this.getClass().getClassLoader().getResource("nav_plugin.conf");
+    config = (new ClientConfigFactory()).readConfigurations(url.getPath());
+    config.setNavigatorUrl(server.getUrl());
+    server.setCredentials(config.getUsername(), config.getPassword());
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void testSessionReused() {
+    HttpTransport transport = new HttpTransport(config);
+    try (NavApiCient client = new NavApiCient(config, transport)) {
+      for (int i = 0; i < 3; i++) {
+        assertEquals(1, client.getAllSources().size());
+      }
+      AuthenticationManager authManager =
+          transport.getAuthenticationManager();
+      assertTrue(authManager.isUsingSessions());
+      assertTrue(authManager.hasSession());
+      assertEquals(1, authManager.getAuthenticationCount());
+    }
+    assertEquals(1, server.getAuthenticationCount());
+  }
+
+  @Test
+  public void testReauthenticate() {
+    HttpTransport transport = new HttpTransport(config);
+    try (NavApiCient client = new NavApiCient(config, transport)) {
+      MetadataQuery query = new MetadataQuery("identity:*", 10, "*");
+      assertEquals(3, client.getEntityBatch(query).getResults().size());
+      server.expireSessions();
+      // the paging request is replayed with its body after the 401
+      assertEquals(3, client.getEntityBatch(query).getResults().size());
+      assertEquals(3, client.getEntityBatch(query).getResults().size());
+      AuthenticationManager authManager =
+          transport.getAuthenticationManager();
+      assertEquals(1, authManager.getExpiredSessionCount());
+      assertEquals(2, authManager.getAuthenticationCount());
+    }
+    assertEquals(2, server.getAuthenticationCount());
+  }
+
+  @Test
+  public void testFallbackToBasic() {
+    server.setSessionsEnabled(false);
+    HttpTransport transport = new HttpTransport(config);
+    try (NavApiCient client = new NavApiCient(config, transport)) {
+      for (int i = 0; i < 2; i++) {
+        assertEquals(1, client.getAllSources().size());
+        // a single response without a session is not conclusive
+        assertTrue(transport.getAuthenticationManager().isUsingSessions());
+      }
+      assertEquals(1, client.getAllSources().size());
+      assertFalse(transport.getAuthenticationManager().isUsingSessions());
+    }
+    assertEquals(3, server.getAuthenticationCount());
+  }
+
+  @Test
+  public void testSessionArrivesBeforeSend() {
+    Cookie session;
+    HttpTransport first = new HttpTransport(config);
+    try (NavApiCient client = new NavApiCient(config, first)) {
+      assertEquals(1, client.getAllSources().size());
+      session = first.getAuthenticationManager().getCookieStore()
+          .getCookies().get(0);
+    }
+
+    RacingCookieStore cookieStore = new RacingCookieStore();
+    HttpTransport transport = new HttpTransport(config, cookieStore);
+    try (NavApiCient client = new NavApiCient(config, transport)) {
+      for (int i = 0; i < 5; i++) {
+        // sent with the credentials and the session, which Navigator
+        // accepts without setting a new one
+        cookieStore.clear();
+        cookieStore.arrive(session);
+        assertEquals(1, client.getAllSources().size());
+      }
+      AuthenticationManager authManager =
+          transport.getAuthenticationManager();
+      assertTrue(authManager.isUsingSessions());
+      assertEquals(5, authManager.getAuthenticationCount());
+    }
+    assertEquals(1, server.getAuthenticationCount());
+  }
+
+  @Test
+  public void testNonSessionCookie() {
+    server.setSessionsEnabled(false);
+    server.setExtraCookie("BALANCER=node1");
+    HttpTransport transport = new HttpTransport(config);
+    try (NavApiCient client = new NavApiCient(config, transport)) {
+      for (int i = 0; i < 3; i++) {
+        assertEquals(1, client.getAllSources().size());
+      }
+      AuthenticationManager authManager =
+          transport.getAuthenticationManager();
+      assertFalse(authManager.isUsingSessions());
+      assertFalse(authManager.hasSession());
+      assertEquals(1, authManager.getCookieStore().getCookies().size());
+    }
+    assertEquals(3, server.getAuthenticationCount());
+  }
+
+  @Test
+  public void testSessionCookieName() {
+    server.setSessionCookieName("NAVSESSION");
+    server.setExtraCookie("BALANCER=node1");
+    config.setSessionCookieName("NAVSESSION");
+    HttpTransport transport = new HttpTransport(config);
+    try (NavApiCient client = new NavApiCient(config, transport)) {
+      MetadataQuery query = new MetadataQuery("identity:*", 10, "*");
+      assertEquals(3, client.getEntityBatch(query).getResults().size());
+      server.expireSessions();
+      assertEquals(3, client.getEntityBatch(query).getResults().size());
+      AuthenticationManager authManager =
+          transport.getAuthenticationManager();
+      assertTrue(authManager.isUsingSessions());
+      assertEquals(1, authManager.getExpiredSessionCount());
+      // the rejected session is replaced, the other cookie is kept
+      assertEquals(2, authManager.getCookieStore().getCookies().size());
+    }
+    assertEquals(2, server.getAuthenticationCount());
+  }
+
+  @Test
+  public void testSessionsDisabled() {
+    config.setSessionAuth(false);
+    try (NavApiCient client = new NavApiCient(config)) {
+      for (int i = 0; i < 3; i++) {
+        assertEquals(1, client.getAllSources().size());
+      }
+    }
+    assertEquals(3, server.getAuthenticationCount());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.client.CircuitBreaker.State;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+public class CircuitBreakerTest {
+
+  private long now;
+  private CircuitBreaker breaker;
+
+  @Before
+  public void setUp() {
+    breaker = new CircuitBreaker(2, 1000L) {
+      @Override
+      long nanoTime() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  public void testOpenAfterConsecutiveFailures() {
+    breaker.recordFailure();
+    breaker.recordSuccess();
+    breaker.recordFailure();
+    assertEquals(State.CLOSED, breaker.getState());
+    breaker.recordFailure();
+    assertEquals(State.OPEN, breaker.getState());
+    assertFalse(breaker.allowRequest());
+  }
+
+  @Test
+  public void testHalfOpenTrial() {
+    breaker.recordFailure();
+    breaker.recordFailure();
+    now += TimeUnit.SECONDS.toNanos(1);
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    assertTrue(breaker.allowRequest());
+    // only a single trial request
+    assertFalse(breaker.allowRequest());
+    breaker.recordFailure();
+    assertEquals(State.OPEN, breaker.getState());
+
+    now += TimeUnit.SECONDS.toNanos(1);
+    assertTrue(breaker.allowRequest());
+    breaker.recordSuccess();
+    assertEquals(State.CLOSED, breaker.getState());
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  public void testDisabled() {
+    breaker = new CircuitBreaker(0, 1000L);
+    for (int i = 0; i < 10; i++) {
+      breaker.recordFailure();
+    }
+    assertEquals(State.CLOSED, breaker.getState());
+    assertTrue(breaker.allowRequest());
+  }
+}
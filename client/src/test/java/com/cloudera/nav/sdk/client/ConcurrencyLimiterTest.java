@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.client.fake.FakeNavigatorServer;
+import com.cloudera.nav.sdk.client.fake.SyntheticMetadataGenerator;
+
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+
+public class ConcurrencyLimiterTest {
+
+  private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testFailureDecreasesLimit() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 20);
+    limiter.acquire();
+    limiter.release(MILLI, true);
+    assertEquals(9, limiter.getLimit());
+    for (int i = 0; i < 100; i++) {
+      limiter.acquire();
+      limiter.release(MILLI, true);
+    }
+    assertEquals(1, limiter.getLimit());
+  }
+
+  @Test
+  public void testSteadyLatencyIncreasesLimit() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 8);
+    for (int i = 0; i < 100; i++) {
+      saturate(limiter, 10 * MILLI);
+    }
+    assertEquals(8, limiter.getLimit());
+  }
+
+  @Test
+  public void testRisingLatencyDecreasesLimit() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 8);
+    for (int i = 0; i < 10; i++) {
+      saturate(limiter, 10 * MILLI);
+    }
+    assertEquals(8, limiter.getLimit());
+    for (int i = 0; i < 10; i++) {
+      saturate(limiter, 100 * MILLI);
+    }
+    assertTrue(limiter.getLimit() < 8);
+  }
+
+  @Test
+  public void testQueueing() throws Exception {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+    limiter.acquire();
+    final CountDownLatch admitted = new CountDownLatch(1);
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          limiter.acquire();
+          admitted.countDown();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    waiter.start();
+    while (limiter.getQueued() == 0) {
+      Thread.sleep(1L);
+    }
+    assertFalse(admitted.await(20L, TimeUnit.MILLISECONDS));
+    limiter.release(MILLI, false);
+    assertTrue(admitted.await(10L, TimeUnit.SECONDS));
+    assertEquals(1, limiter.getInFlight());
+    assertEquals(0, limiter.getQueued());
+    assertTrue(limiter.getLastQueueTimeMillis() >= 20L);
+    assertTrue(limiter.getAverageQueueTimeMillis() >= 10.0);
+  }
+
+  @Test
+  public void testLimitedTransport() throws Exception {
+    try (FakeNavigatorServer server = new FakeNavigatorServer(
+        new SyntheticMetadataGenerator(1, 1, 1))) {
+      server.start();
+      URL url = this.getClass().getClassLoader().getResource(
+          "nav_plugin.conf");
+      ClientConfig config = (new ClientConfigFactory())
+          .readConfigurations(url.getPath());
+      config.setNavigatorUrl(server.getUrl());
+      config.setRetryMaxAttempts(1);
+      ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 10);
+      NavTransport transport = new NavTransportFactory().newTransport(config,
+          limiter);
+      try (NavApiCient client = new NavApiCient(config, transport)) {
+        assertEquals(1, client.getAllSources().size());
+        server.failNextRequests(1, 503);
+        try {
+          client.getAllSources();
+          fail();
+        } catch (RuntimeException e) {
+          // expected
+        }
+      }
+      assertEquals(2, limiter.getAcquiredCount());
+      assertEquals(0, limiter.getInFlight());
+      assertEquals(9, limiter.getLimit());
+    }
+  }
+
+  private static void saturate(ConcurrencyLimiter limiter, long latency)
+      throws InterruptedException {
+    int limit = limiter.getLimit();
+    for (int i = 0; i < limit; i++) {
+      limiter.acquire();
+    }
+    for (int i = 0; i < limit; i++) {
+      limiter.release(latency, false);
+    }
+  }
+}
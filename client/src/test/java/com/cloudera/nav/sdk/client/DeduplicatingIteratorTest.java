@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.*;
+
+public class DeduplicatingIteratorTest {
+
+  @Test
+  public void testSkipDuplicates() {
+    List<Map<String, Object>> results = Lists.newArrayList();
+    results.add(result("a"));
+    results.add(result("b"));
+    results.add(result("a"));
+    results.add(ImmutableMap.<String, Object>of("name", "no identity"));
+    results.add(result("c"));
+    results.add(result("b"));
+
+    DeduplicatingIterator it = new DeduplicatingIterator(
+        results.iterator(), new IdentitySet(10));
+    List<Object> identities = Lists.newArrayList();
+    while (it.hasNext()) {
+      identities.add(it.next().get("identity"));
+    }
+    assertEquals(Lists.newArrayList("a", "b", null, "c"), identities);
+    assertEquals(2, it.getDuplicates());
+    assertEquals(3, it.getIdentities().size());
+  }
+
+  private static Map<String, Object> result(String identity) {
+    return ImmutableMap.<String, Object>of("identity", identity);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class FileCheckpointStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    File file = new File(folder.getRoot(), "checkpoint.json");
+    FileCheckpointStore store = new FileCheckpointStore(file);
+    assertNull(store.load());
+
+    ExtractionCheckpoint checkpoint = new ExtractionCheckpoint(3, "AoE/c1",
+        17, 2417L);
+    store.save(checkpoint);
+    store.save(checkpoint);
+    assertEquals(checkpoint, new FileCheckpointStore(file).load());
+    assertEquals(1, folder.getRoot().list().length);
+
+    store.clear();
+    assertFalse(file.exists());
+    assertNull(store.load());
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.Sets;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.*;
+
+public class IdentitySetTest {
+
+  @Test
+  public void testAdd() {
+    IdentitySet identities = new IdentitySet(10);
+    assertTrue(identities.add("0123456789abcdef0123456789abcdef"));
+    assertFalse(identities.add("0123456789abcdef0123456789abcdef"));
+    // not lower case hex, so hashed instead of packed
+    assertTrue(identities.add("0123456789ABCDEF0123456789ABCDEF"));
+    assertTrue(identities.add("12345"));
+    assertFalse(identities.add("12345"));
+    assertTrue(identities.add(0L, 0L));
+    assertFalse(identities.add(0L, 0L));
+    assertTrue(identities.add("00000000000000000000000000000001"));
+    assertFalse(identities.add(0L, 1L));
+    assertEquals(5, identities.size());
+  }
+
+  @Test
+  public void testGrow() {
+    testRandom(new IdentitySet(10));
+  }
+
+  private void testRandom(IdentitySet identities) {
+    Random random = new Random(1);
+    Set<String> expected = Sets.newHashSet();
+    for (int i = 0; i < 20000; i++) {
+      // small values so that about half of them repeat
+      String identity = String.format("%032x", random.nextInt(20000));
+      assertEquals(expected.add(identity), identities.add(identity));
+    }
+    assertEquals(expected.size(), identities.size());
+    assertTrue(identities.getAllocatedBytes() <
+        2 * 16L * expected.size() + 20000);
+  }
+}
@@ -42,7 +42,6 @@ import com.google.common.collect.Sets;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -51,18 +50,18 @@ import java.util.Map;
 import org.apache.commons.collections.CollectionUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.http.client.ClientHttpRequest;
 
 public class JsonMetadataWriterTest {
 
   private ByteArrayOutputStream stream;
   private ClientConfig config;
-  private HttpURLConnection mockConn;
+  private ClientHttpRequest mockRequest;
 
   @Before
   public void setUp() throws IOException {
     stream = new ByteArrayOutputStream();
-    mockConn = mock(HttpURLConnection.class);
-    doReturn(200).when(mockConn).getResponseCode();
+    mockRequest = mock(ClientHttpRequest.class);
     config = mock(ClientConfig.class);
     doReturn("test").when(config).getNamespace();
   }
@@ -82,7 +81,7 @@ public class JsonMetadataWriterTest {
     entity.setProperties(props);
 
     JsonMetadataWriter mWriter = new JsonMetadataWriter(config, stream,
-        mockConn);
+        mockRequest);
     mWriter.write(entity);
 
     String value = new String(stream.toByteArray());
@@ -132,7 +131,7 @@ public class JsonMetadataWriterTest {
     entity.addProperties(newP);
 
     JsonMetadataWriter mWriter = new JsonMetadataWriter(config, stream,
-        mockConn);
+        mockRequest);
     mWriter.write(entity);
 
     String value = new String(stream.toByteArray());
@@ -193,7 +192,7 @@ public class JsonMetadataWriterTest {
         .build();
 
     JsonMetadataWriter mWriter = new JsonMetadataWriter(config, stream,
-        mockConn);
+        mockRequest);
     mWriter.writeRelation(rel);
 
     String value = new String(stream.toByteArray());
@@ -223,7 +222,7 @@ public class JsonMetadataWriterTest {
         "http://appHost:port", 0L);
     CustomOperationExecution exec = prepExec(source);
     JsonMetadataWriter mWriter = new JsonMetadataWriter(config, stream,
-        mockConn);
+        mockRequest);
     mWriter.write(exec);
 
     ObjectMapper mapper = new ObjectMapper();
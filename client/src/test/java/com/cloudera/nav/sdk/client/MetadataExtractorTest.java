@@ -72,6 +72,38 @@ public class MetadataExtractorTest {
     assertEquals(res.getMarker(), marker1Rep);
   }
 
+  @Test
+  public void testSingleSourceLoad() {
+    MetadataResultSet res = extractor.extractMetadata(marker1Rep);
+    assertEquals(marker1Rep, res.getMarker());
+    verify(client, times(1)).getAllSources();
+  }
+
+  @Test
+  public void testReuseSnapshot() {
+    SourceRegistry.Snapshot sources = extractor.getSourceSnapshot();
+    extractor.extractMetadata(sources, marker1Rep, null, "sourceType:HDFS",
+        null);
+    extractor.extractMetadata(sources, marker1Rep, null, "sourceType:HIVE",
+        null);
+    assertEquals(marker1Rep, extractor.getMarker(sources));
+    verify(client, times(1)).getAllSources();
+  }
+
+  @Test
+  public void testSavedQueries() {
+    Source source = new Source("source1", SourceType.HDFS, "cluster1",
+        "foo/bar", "identityString", 2000L);
+    when(client.getAllSources()).thenReturn(Lists.newArrayList(source));
+    String marker = "{\"identityString\":1}";
+    ClientConfig config = new ClientConfig();
+    when(client.getConfig()).thenReturn(config);
+    assertEquals(0L, extractor.extractMetadata(marker).getSavedQueries());
+    config.setExtractorRunIdPatterns(true);
+    // 2000 iterations in a single term instead of 3 partitions
+    assertEquals(2L, extractor.extractMetadata(marker).getSavedQueries());
+  }
+
   @Test
   public void testCurrentMarker() {
     String res = extractor.getMarker();
@@ -20,17 +20,27 @@ import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.*;
 
 import com.cloudera.nav.sdk.model.MetadataType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.*;
 import org.junit.runner.*;
 import org.mockito.*;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.*;
+import org.mockito.stubbing.Answer;
+import org.springframework.web.client.ResourceAccessException;
 
 /**
  * Unit tests for IncrementalExtractIterator
@@ -105,5 +115,333 @@ public class MetadataResultIteratorTest {
     metadataResultIterator.getNextBatch();
     assertTrue(metadataResultIterator.hasNext());
   }
-}
 
+  @Test
+  public void testStreamingEntities() throws Exception {
+    ClientConfig config = new ClientConfig();
+    config.setStreamingResults(true);
+    when(client.getConfig()).thenReturn(config);
+    String page1 = "{\"cursorMark\":\"c1\",\"results\":" +
+        "[{\"identity\":\"1\"},{\"identity\":\"2\"}]}";
+    String page2 = "{\"results\":[{\"identity\":\"3\"}]," +
+        "\"cursorMark\":\"c2\"}";
+    when(client.streamEntityBatch(any(MetadataQuery.class)))
+        .thenReturn(newStream(page1), newStream(page2));
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 2,
+        Lists.<String>newArrayList());
+    List<Object> ids = Lists.newArrayList();
+    while (iterator.hasNext()) {
+      ids.add(iterator.next().get("identity"));
+    }
+    assertEquals(Lists.<Object>newArrayList("1", "2", "3"), ids);
+    ArgumentCaptor<MetadataQuery> captor =
+        ArgumentCaptor.forClass(MetadataQuery.class);
+    verify(client, times(2)).streamEntityBatch(captor.capture());
+    assertEquals("c1", captor.getAllValues().get(1).getCursorMark());
+    verify(client, never()).getEntityBatch(any(MetadataQuery.class));
+  }
+
+  @Test
+  public void testRetryBatch() {
+    ClientConfig config = new ClientConfig();
+    config.setRetryInitialBackoffMillis(1L);
+    when(client.getConfig()).thenReturn(config);
+    Map<String, Object> singleResult = Maps.newHashMap();
+    singleResult.put("identity", "1");
+    entityBatch.setResults(Lists.newArrayList(singleResult));
+    when(client.getEntityBatch(any(MetadataQuery.class)))
+        .thenThrow(new ResourceAccessException("reset",
+            new IOException("Connection reset")))
+        .thenReturn(entityBatch);
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 100,
+        Lists.<String>newArrayList());
+    assertEquals(singleResult, iterator.next());
+    assertFalse(iterator.hasNext());
+    verify(client, times(2)).getEntityBatch(any(MetadataQuery.class));
+  }
+
+  @Test
+  public void testRetryStreamedBatch() throws Exception {
+    ClientConfig config = new ClientConfig();
+    config.setStreamingResults(true);
+    config.setRetryInitialBackoffMillis(1L);
+    when(client.getConfig()).thenReturn(config);
+    String page = "{\"cursorMark\":\"c1\",\"results\":" +
+        "[{\"identity\":\"1\"},{\"identity\":\"2\"}]}";
+    String truncated = page.substring(0, page.indexOf("{\"identity\":\"2"));
+    when(client.streamEntityBatch(any(MetadataQuery.class)))
+        .thenReturn(newStream(truncated), newStream(page));
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 100,
+        Lists.<String>newArrayList());
+    List<Object> ids = Lists.newArrayList();
+    while (iterator.hasNext()) {
+      ids.add(iterator.next().get("identity"));
+    }
+    // the replayed batch skips the result that was already returned
+    assertEquals(Lists.<Object>newArrayList("1", "2"), ids);
+    ArgumentCaptor<MetadataQuery> captor =
+        ArgumentCaptor.forClass(MetadataQuery.class);
+    verify(client, times(2)).streamEntityBatch(captor.capture());
+    assertEquals("*", captor.getAllValues().get(1).getCursorMark());
+  }
+
+  @Test
+  public void testRetryStreamedBatchTwice() throws Exception {
+    ClientConfig config = new ClientConfig();
+    config.setStreamingResults(true);
+    config.setRetryMaxAttempts(3);
+    config.setRetryInitialBackoffMillis(1L);
+    when(client.getConfig()).thenReturn(config);
+    String page = "{\"cursorMark\":\"c1\",\"results\":" +
+        "[{\"identity\":\"1\"},{\"identity\":\"2\"}]}";
+    String truncated = page.substring(0, page.indexOf("{\"identity\":\"2"));
+    when(client.streamEntityBatch(any(MetadataQuery.class)))
+        .thenReturn(newStream(truncated), newStream(truncated),
+            newStream(page));
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 100,
+        Lists.<String>newArrayList());
+    assertEquals(Lists.<Object>newArrayList("1", "2"),
+        nextIds(iterator, 10));
+    verify(client, times(3)).streamEntityBatch(any(MetadataQuery.class));
+  }
+
+  @Test
+  public void testStreamedBatchShorterWhenRetried() throws Exception {
+    ClientConfig config = new ClientConfig();
+    config.setStreamingResults(true);
+    config.setRetryInitialBackoffMillis(1L);
+    when(client.getConfig()).thenReturn(config);
+    String page = "{\"cursorMark\":\"c1\",\"results\":" +
+        "[{\"identity\":\"1\"},{\"identity\":\"2\"}]}";
+    String truncated = page.substring(0, page.length() - 2);
+    String shorter = "{\"cursorMark\":\"c1\",\"results\":" +
+        "[{\"identity\":\"1\"}]}";
+    when(client.streamEntityBatch(any(MetadataQuery.class)))
+        .thenReturn(newStream(truncated), newStream(shorter));
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 100,
+        Lists.<String>newArrayList());
+    assertEquals("1", iterator.next().get("identity"));
+    try {
+      iterator.next();
+      fail("Expected the shorter batch to end the results");
+    } catch (NoSuchElementException e) {
+      assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    ClientConfig config = new ClientConfig();
+    config.setPrefetchBatches(2);
+    when(client.getConfig()).thenReturn(config);
+    final CountDownLatch secondBatch = new CountDownLatch(1);
+    when(client.getEntityBatch(any(MetadataQuery.class))).thenAnswer(
+        new Answer<ResultsBatch<Map<String, Object>>>() {
+          @Override
+          public ResultsBatch<Map<String, Object>> answer(
+              InvocationOnMock invocation) {
+            MetadataQuery query = (MetadataQuery) invocation.getArguments()[0];
+            if ("*".equals(query.getCursorMark())) {
+              return newBatch("c1", "1", "2");
+            }
+            secondBatch.countDown();
+            return newBatch("c2", "3");
+          }
+        });
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 2,
+        Lists.<String>newArrayList());
+    // requested while the first batch has not been consumed
+    assertTrue(secondBatch.await(5, TimeUnit.SECONDS));
+    List<Object> ids = Lists.newArrayList();
+    while (iterator.hasNext()) {
+      ids.add(iterator.next().get("identity"));
+    }
+    assertEquals(Lists.<Object>newArrayList("1", "2", "3"), ids);
+    verify(client, times(2)).getEntityBatch(any(MetadataQuery.class));
+  }
+
+  @Test
+  public void testPrefetchFailure() {
+    ClientConfig config = new ClientConfig();
+    config.setPrefetchBatches(1);
+    when(client.getConfig()).thenReturn(config);
+    when(client.getEntityBatch(any(MetadataQuery.class)))
+        .thenReturn(newBatch("c1", "1", "2"))
+        .thenThrow(new IllegalStateException("failed"));
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 2,
+        Lists.<String>newArrayList());
+    assertEquals("1", iterator.next().get("identity"));
+    try {
+      iterator.next();
+      fail();
+    } catch (IllegalStateException e) {
+      // thrown on the consumer thread
+      assertEquals("failed", e.getMessage());
+    }
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPrefetchStreamed() {
+    ClientConfig config = new ClientConfig();
+    config.setPrefetchBatches(1);
+    config.setStreamingResults(true);
+    when(client.getConfig()).thenReturn(config);
+    new MetadataResultIterator(client, MetadataType.ENTITIES, "identity:*", 2,
+        Lists.<String>newArrayList());
+  }
+
+  @Test
+  public void testResumeFromCheckpoint() {
+    stubPages();
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 2,
+        Lists.<String>newArrayList());
+    assertEquals(Lists.<Object>newArrayList("1", "2", "3"),
+        nextIds(iterator, 3));
+    ExtractionCheckpoint checkpoint = iterator.getCheckpoint();
+    assertEquals(new ExtractionCheckpoint(0, "c1", 1, 3L), checkpoint);
+
+    iterator = new MetadataResultIterator(client, MetadataType.ENTITIES,
+        "identity:*", 2, Lists.<String>newArrayList(), checkpoint);
+    assertEquals(Lists.<Object>newArrayList("4", "5"),
+        nextIds(iterator, 10));
+    assertEquals(5L, iterator.getCheckpoint().getDelivered());
+  }
+
+  @Test
+  public void testResumePrefetched() {
+    ClientConfig config = new ClientConfig();
+    config.setPrefetchBatches(2);
+    when(client.getConfig()).thenReturn(config);
+    stubPages();
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 2,
+        Lists.<String>newArrayList(),
+        new ExtractionCheckpoint(0, "c1", 1, 3L));
+    assertEquals(Lists.<Object>newArrayList("4", "5"),
+        nextIds(iterator, 10));
+  }
+
+  @Test
+  public void testCheckpointStore() {
+    ClientConfig config = new ClientConfig();
+    config.setCheckpointInterval(2);
+    when(client.getConfig()).thenReturn(config);
+    stubPages();
+    CheckpointStore store = mock(CheckpointStore.class);
+    MetadataResultIterator iterator = MetadataResultIterator.withCheckpointStore(
+        client, MetadataType.ENTITIES, "identity:*", 2,
+        Lists.<String>newArrayList(), null, store);
+    nextIds(iterator, 3);
+    // saved once the second result has been processed
+    ExtractionCheckpoint checkpoint = new ExtractionCheckpoint(0, "c1", 0, 2L);
+    verify(store).save(checkpoint);
+
+    when(store.load()).thenReturn(checkpoint);
+    iterator = MetadataResultIterator.withCheckpointStore(client,
+        MetadataType.ENTITIES, "identity:*", 2, Lists.<String>newArrayList(),
+        null, store);
+    assertEquals(Lists.<Object>newArrayList("3", "4", "5"),
+        nextIds(iterator, 10));
+    verify(store).clear();
+  }
+
+  @Test
+  public void testAdaptivePageSize() {
+    ClientConfig config = new ClientConfig();
+    config.setAdaptivePageSize(true);
+    config.setMinPageSize(1);
+    config.setMaxPageSize(6);
+    config.setTargetPageBytes(0L);
+    when(client.getConfig()).thenReturn(config);
+    final List<Integer> limits = Lists.newArrayList();
+    // results 1 to 20, the cursorMark is the number of results returned
+    when(client.getEntityBatch(any(MetadataQuery.class))).thenAnswer(
+        new Answer<ResultsBatch<Map<String, Object>>>() {
+          @Override
+          public ResultsBatch<Map<String, Object>> answer(
+              InvocationOnMock invocation) {
+            MetadataQuery query = (MetadataQuery) invocation.getArguments()[0];
+            limits.add(query.getLimit());
+            int offset = "*".equals(query.getCursorMark()) ? 0 :
+                Integer.parseInt(query.getCursorMark());
+            int end = Math.min(offset + query.getLimit(), 20);
+            List<String> ids = Lists.newArrayList();
+            for (int i = offset + 1; i <= end; i++) {
+              ids.add(String.valueOf(i));
+            }
+            return newBatch(String.valueOf(end),
+                ids.toArray(new String[ids.size()]));
+          }
+        });
+    MetadataResultIterator iterator = new MetadataResultIterator(client,
+        MetadataType.ENTITIES, "identity:*", 1,
+        Lists.<String>newArrayList());
+    List<Object> ids = nextIds(iterator, 100);
+    assertEquals(20, ids.size());
+    assertEquals("20", ids.get(19));
+    // fast responses double the page size up to the maximum
+    assertEquals(Lists.newArrayList(1, 2, 4, 6, 6, 6), limits);
+    assertEquals(6, iterator.getPageSizeTuner().getPageSize());
+    assertEquals(6L, iterator.getPageSizeTuner().getPages());
+  }
+
+  /**
+   * Three batches of the results 1 to 5
+   */
+  private void stubPages() {
+    when(client.getEntityBatch(any(MetadataQuery.class))).thenAnswer(
+        new Answer<ResultsBatch<Map<String, Object>>>() {
+          @Override
+          public ResultsBatch<Map<String, Object>> answer(
+              InvocationOnMock invocation) {
+            MetadataQuery query = (MetadataQuery) invocation.getArguments()[0];
+            switch (query.getCursorMark()) {
+              case "*":
+                return newBatch("c1", "1", "2");
+              case "c1":
+                return newBatch("c2", "3", "4");
+              default:
+                return newBatch("c3", "5");
+            }
+          }
+        });
+  }
+
+  private static List<Object> nextIds(MetadataResultIterator iterator,
+                                      int max) {
+    List<Object> ids = Lists.newArrayList();
+    while (ids.size() < max && iterator.hasNext()) {
+      ids.add(iterator.next().get("identity"));
+    }
+    return ids;
+  }
+
+  private static EntityResultsBatch newBatch(String cursorMark,
+                                             String... ids) {
+    List<Map<String, Object>> results = Lists.newArrayList();
+    for (String id : ids) {
+      Map<String, Object> result = Maps.newHashMap();
+      result.put("identity", id);
+      results.add(result);
+    }
+    EntityResultsBatch batch = new EntityResultsBatch();
+    batch.setResults(results);
+    batch.setCursorMark(cursorMark);
+    return batch;
+  }
+
+  private ResultsStream newStream(String json) throws Exception {
+    return new ResultsStream(new ByteArrayInputStream(
+        json.getBytes(Charsets.UTF_8)), mock(Closeable.class),
+        new ObjectMapper());
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result sets of extractions by a mocked client
+ */
+public class MetadataResultSets {
+
+  /**
+   * Result set whose entities and relations are each a single page
+   */
+  public static MetadataResultSet singlePage(
+      String marker, List<Map<String, Object>> entities,
+      List<Map<String, Object>> relations) {
+    NavApiCient client = mock(NavApiCient.class);
+    EntityResultsBatch entityBatch = new EntityResultsBatch();
+    entityBatch.setResults(Lists.newArrayList(entities));
+    RelationResultsBatch relationBatch = new RelationResultsBatch();
+    relationBatch.setResults(Lists.newArrayList(relations));
+    when(client.getEntityBatch(any(MetadataQuery.class)))
+        .thenReturn(entityBatch);
+    when(client.getRelationBatch(any(MetadataQuery.class)))
+        .thenReturn(relationBatch);
+    // a short page ends the results
+    int limit = Math.max(entities.size(), relations.size()) + 1;
+    return new MetadataResultSet(marker,
+        new MetadataIterable(client, MetadataType.ENTITIES, null, limit,
+            ImmutableList.of("*")),
+        new MetadataIterable(client, MetadataType.RELATIONS, null, limit,
+            ImmutableList.of("*")));
+  }
+}
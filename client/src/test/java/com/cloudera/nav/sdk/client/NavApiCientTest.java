@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.model.Source;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Iterables;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.*;
+
+public class NavApiCientTest {
+
+  private ClientConfig config;
+
+  @Before
+  public void setUp() {
+    URL url = this.getClass().getClassLoader().getResource("nav_plugin.conf");
+    config = (new ClientConfigFactory()).readConfigurations(url.getPath());
+  }
+
+  @Test
+  public void testConnectionPoolConfig() {
+    assertEquals(ClientConfig.DEFAULT_MAX_CONNECTIONS_TOTAL,
+        config.getMaxConnectionsTotal());
+    config.setMaxConnectionsTotal(7);
+    config.setMaxConnectionsPerRoute(3);
+    try (NavApiCient client = new NavApiCient(config)) {
+      PoolStats stats = client.getConnectionPoolStats();
+      assertEquals(7, stats.getMax());
+      assertEquals(0, stats.getLeased());
+      assertEquals(0, stats.getPending());
+      assertEquals(0, stats.getAvailable());
+    }
+  }
+
+  @Test
+  public void testDecoratedTransport() {
+    config.setAdaptiveConcurrency(true);
+    config.setRetryMaxAttempts(3);
+    try (NavApiCient client = new NavApiCient(config)) {
+      // reached through the retrying and limiting transports
+      assertTrue(client.getTransport() instanceof RetryingTransport);
+      assertNotNull(client.getConnectionPoolStats());
+      assertNotNull(client.getCompressionStats());
+      assertEquals(config.getConcurrencyLimitInitial(),
+          client.getConcurrencyLimiter().getLimit());
+    }
+    config.setAdaptiveConcurrency(false);
+    try (NavApiCient client = new NavApiCient(config)) {
+      assertNull(client.getConcurrencyLimiter());
+    }
+  }
+
+  @Test
+  public void testCompressedResponse() throws Exception {
+    final String sources = "[{\"identity\":\"id1\",\"originalName\":\"HDFS-1\"," +
+        "\"sourceType\":\"HDFS\",\"clusterName\":\"Cluster 1\"," +
+        "\"sourceUrl\":\"hdfs://localhost:8020\"}]";
+    final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        acceptEncoding.set(
+            exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = new GZIPOutputStream(
+            exchange.getResponseBody())) {
+          out.write(sources.getBytes(Charsets.UTF_8));
+        }
+      }
+    });
+    server.start();
+    try {
+      config.setNavigatorUrl("http://localhost:" +
+          server.getAddress().getPort());
+      config.setCompression(Compression.GZIP);
+      try (NavApiCient client = new NavApiCient(config)) {
+        Source source = Iterables.getOnlyElement(client.getAllSources());
+        assertEquals("gzip,deflate", acceptEncoding.get());
+        assertEquals("hdfs://localhost:8020", source.getSourceUrl());
+        CompressionStats stats = client.getCompressionStats();
+        assertEquals(sources.length(), stats.getUncompressedBytesRead());
+        assertTrue(stats.getCompressedBytesRead() > 0);
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.net.URL;
+
+import org.junit.*;
+
+public class NavTransportFactoryTest {
+
+  private static final NavTransport PROVIDED = mock(NavTransport.class);
+
+  public static class Provider implements NavTransportProvider {
+    @Override
+    public NavTransport newTransport(ClientConfig config) {
+      return PROVIDED;
+    }
+  }
+
+  public static class UnavailableProvider implements NavTransportProvider {
+    @Override
+    public NavTransport newTransport(ClientConfig config) {
+      return null;
+    }
+  }
+
+  private ClientConfig config;
+  private NavTransportFactory factory;
+
+  @Before
+  public void setUp() {
+    URL url = this.getClass().getClassLoader().getResource("nav_plugin.conf");
+    config = (new ClientConfigFactory()).readConfigurations(url.getPath());
+    factory = new NavTransportFactory();
+  }
+
+  @Test
+  public void testDefaultTransport() {
+    try (NavTransport transport = factory.newBaseTransport(config)) {
+      assertTrue(transport instanceof HttpTransport);
+    }
+  }
+
+  @Test
+  public void testProvidedTransport() {
+    config.setTransportProvider(Provider.class.getName());
+    assertSame(PROVIDED, factory.newBaseTransport(config));
+
+    config.setRetryMaxAttempts(3);
+    NavTransport transport = factory.newTransport(config);
+    assertTrue(transport instanceof RetryingTransport);
+    transport.close();
+    verify(PROVIDED).close();
+  }
+
+  @Test
+  public void testFallback() {
+    config.setTransportProvider(UnavailableProvider.class.getName());
+    try (NavTransport transport = factory.newBaseTransport(config)) {
+      assertTrue(transport instanceof HttpTransport);
+    }
+    config.setTransportProvider("com.example.MissingProvider");
+    try (NavTransport transport = factory.newBaseTransport(config)) {
+      assertTrue(transport instanceof HttpTransport);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PageSizeTunerTest {
+
+  @Test
+  public void testGrowth() {
+    PageSizeTuner tuner = new PageSizeTuner(100, 10, 1000, 1000L, 0L);
+    // ten times faster than the target, at most doubling per page
+    tuner.record(100, 100, 100L, -1L);
+    assertEquals(200, tuner.getPageSize());
+    tuner.record(200, 200, 800L, -1L);
+    assertEquals(250, tuner.getPageSize());
+    tuner.record(250, 250, 10L, -1L);
+    tuner.record(500, 500, 10L, -1L);
+    assertEquals(1000, tuner.getPageSize());
+    assertEquals(4L, tuner.getPages());
+    assertEquals(10L, tuner.getLastPageMillis());
+  }
+
+  @Test
+  public void testShrink() {
+    PageSizeTuner tuner = new PageSizeTuner(1000, 10, 1000, 1000L, 0L);
+    tuner.record(1000, 1000, 4000L, -1L);
+    assertEquals(250, tuner.getPageSize());
+    tuner.record(250, 250, 100000L, -1L);
+    assertEquals(10, tuner.getPageSize());
+  }
+
+  @Test
+  public void testTargetBytes() {
+    PageSizeTuner tuner = new PageSizeTuner(100, 10, 1000, 1000L, 5000L);
+    // fast, but twice the target size
+    tuner.record(100, 100, 10L, 10000L);
+    assertEquals(50, tuner.getPageSize());
+    assertEquals(10000L, tuner.getLastPageBytes());
+    // the size is ignored if it is unknown
+    tuner.record(50, 50, 500L, -1L);
+    assertEquals(100, tuner.getPageSize());
+  }
+
+  @Test
+  public void testPartialPage() {
+    PageSizeTuner tuner = new PageSizeTuner(100, 10, 1000, 1000L, 0L);
+    tuner.record(100, 3, 10L, -1L);
+    assertEquals(100, tuner.getPageSize());
+    tuner.record(100, 50, 2000L, -1L);
+    assertEquals(25, tuner.getPageSize());
+    tuner.record(25, 0, 5000L, -1L);
+    assertEquals(25, tuner.getPageSize());
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ParallelMetadataResultIteratorTest {
+
+  private static final int NUM_PARTITIONS = 3;
+  private static final int LIMIT = 2;
+  private static final Pattern RUN_ID = Pattern.compile("run##(\\d+)");
+
+  private NavApiCient client;
+  private List<String> extractorRunIds;
+  private volatile int failedPartition = -1;
+
+  @Before
+  public void setUp() {
+    client = mock(NavApiCient.class);
+    extractorRunIds = Lists.newArrayList();
+    int numRunIds = MetadataResultIterator.MAX_QUERY_PARTITION_SIZE *
+        (NUM_PARTITIONS - 1) + 1;
+    for (int i = 0; i < numRunIds; i++) {
+      extractorRunIds.add("run##" + i);
+    }
+    // every partition has a full batch followed by a single result
+    when(client.getEntityBatch(any(MetadataQuery.class))).thenAnswer(
+        new Answer<ResultsBatch<Map<String, Object>>>() {
+          @Override
+          public ResultsBatch<Map<String, Object>> answer(
+              InvocationOnMock invocation) {
+            MetadataQuery query = (MetadataQuery) invocation.getArguments()[0];
+            int partition = getPartition(query.getQuery());
+            if (partition == failedPartition) {
+              throw new IllegalStateException("partition " + partition);
+            }
+            boolean first = "*".equals(query.getCursorMark());
+            List<Map<String, Object>> results = Lists.newArrayList();
+            for (int i = 0; i < (first ? LIMIT : 1); i++) {
+              results.add(newResult(partition, first ? i : LIMIT));
+            }
+            EntityResultsBatch batch = new EntityResultsBatch();
+            batch.setResults(results);
+            batch.setCursorMark("next");
+            return batch;
+          }
+        });
+  }
+
+  @Test
+  public void testOrdered() {
+    List<Map<String, Object>> serial = Lists.newArrayList(
+        new MetadataResultIterator(client, MetadataType.ENTITIES,
+            "identity:*", LIMIT, extractorRunIds));
+    assertEquals(NUM_PARTITIONS * (LIMIT + 1), serial.size());
+    try (ParallelMetadataResultIterator iterator =
+             newIterator(2, 1, true)) {
+      assertEquals(serial, Lists.newArrayList(iterator));
+      assertEquals(0, iterator.getStartedPartitions());
+    }
+  }
+
+  @Test
+  public void testUnordered() {
+    try (ParallelMetadataResultIterator iterator =
+             newIterator(NUM_PARTITIONS, 2, false)) {
+      List<Map<String, Object>> results = Lists.newArrayList(iterator);
+      assertEquals(NUM_PARTITIONS * (LIMIT + 1), results.size());
+      assertEquals(results.size(), Sets.newHashSet(results).size());
+    }
+  }
+
+  @Test
+  public void testPartitionFailure() {
+    failedPartition = 1;
+    try (ParallelMetadataResultIterator iterator =
+             newIterator(2, 1, true)) {
+      int count = 0;
+      try {
+        while (iterator.hasNext()) {
+          iterator.next();
+          count++;
+        }
+        fail();
+      } catch (IllegalStateException e) {
+        assertEquals("partition 1", e.getMessage());
+      }
+      // the first partition is returned before the failure
+      assertEquals(LIMIT + 1, count);
+      assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test
+  public void testClose() {
+    ParallelMetadataResultIterator iterator = newIterator(2, 1, false);
+    assertTrue(iterator.hasNext());
+    iterator.next();
+    assertTrue(iterator.getStartedPartitions() <= 2);
+    iterator.close();
+    assertFalse(iterator.hasNext());
+  }
+
+  private ParallelMetadataResultIterator newIterator(int parallelism,
+                                                     int bufferSize,
+                                                     boolean ordered) {
+    return new ParallelMetadataResultIterator(client, MetadataType.ENTITIES,
+        "identity:*", LIMIT, extractorRunIds, parallelism, bufferSize,
+        ordered);
+  }
+
+  private static int getPartition(String query) {
+    Matcher matcher = RUN_ID.matcher(query);
+    assertTrue(matcher.find());
+    return Integer.parseInt(matcher.group(1)) /
+        MetadataResultIterator.MAX_QUERY_PARTITION_SIZE;
+  }
+
+  private static Map<String, Object> newResult(int partition, int index) {
+    return ImmutableMap.<String, Object>of("identity",
+        partition + "-" + index);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PrefetchingIteratorTest {
+
+  @Test
+  public void testPrefetch() throws Exception {
+    final CountDownLatch taken = new CountDownLatch(3);
+    Iterator<Integer> source = new AbstractIterator<Integer>() {
+      private int next;
+
+      @Override
+      protected Integer computeNext() {
+        if (next == 5) {
+          return endOfData();
+        }
+        taken.countDown();
+        return next++;
+      }
+    };
+    PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(
+        source, 2, "test-prefetch-%d");
+    // two elements queued and a third one waiting for space
+    assertTrue(taken.await(5, TimeUnit.SECONDS));
+    assertEquals(ImmutableList.of(0, 1, 2, 3, 4),
+        Lists.newArrayList(iterator));
+    assertFalse(iterator.hasNext());
+    try {
+      iterator.next();
+      fail();
+    } catch (NoSuchElementException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testFailure() {
+    Iterator<Integer> source = Iterators.concat(
+        ImmutableList.of(1).iterator(),
+        new AbstractIterator<Integer>() {
+          @Override
+          protected Integer computeNext() {
+            throw new IllegalStateException("failed");
+          }
+        });
+    PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(
+        source, 1, "test-prefetch-%d");
+    assertEquals(Integer.valueOf(1), iterator.next());
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (IllegalStateException e) {
+      // thrown on the consumer thread
+      assertEquals("failed", e.getMessage());
+    }
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.*;
 import com.google.common.collect.Lists;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.junit.*;
 
@@ -47,4 +48,32 @@ public class QueryUtilsTest {
         "AND identity:(foo OR bar OR baz)";
     assertEquals(ans, fullQuery);
   }
+
+  @Test
+  public void testNumericRangePattern() {
+    assertEquals("[5-9]|[1-9][0-9]|1[0-1][0-9]|12[0-3]",
+        QueryUtils.buildNumericRangePattern(5, 123));
+    assertEquals("42", QueryUtils.buildNumericRangePattern(42, 42));
+    for (int start = 0; start < 130; start += 7) {
+      for (int end = start; end < 1200; end += 37) {
+        Pattern pattern = Pattern.compile(
+            QueryUtils.buildNumericRangePattern(start, end));
+        for (int i = 0; i < 2000; i++) {
+          assertEquals(start + "-" + end + ": " + i,
+              i >= start && i <= end,
+              pattern.matcher(Integer.toString(i)).matches());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testExtractorRunIdPattern() {
+    String term = QueryUtils.buildExtractorRunIdPattern("a1-b", 8, 11);
+    assertEquals("/a1\\-b\\#\\#([8-9]|1[0-1])/", term);
+    Pattern pattern = Pattern.compile(term.substring(1, term.length() - 1));
+    assertTrue(pattern.matcher("a1-b##9").matches());
+    assertFalse(pattern.matcher("a1-b##12").matches());
+    assertFalse(pattern.matcher("a1-b##110").matches());
+  }
 }
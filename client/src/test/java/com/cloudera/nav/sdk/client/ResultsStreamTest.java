@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ResultsStreamTest {
+
+  @Test
+  public void testCursorMarkBeforeResults() throws IOException {
+    Closeable response = mock(Closeable.class);
+    ResultsStream stream = newStream("{\"cursorMark\":\"abc\"," +
+        "\"results\":[{\"identity\":\"1\"},{\"identity\":\"2\"}]}", response);
+    assertEquals("abc", stream.getCursorMark());
+    assertTrue(stream.hasNext());
+    assertEquals("1", stream.next().get("identity"));
+    verify(response, never()).close();
+    assertEquals("2", stream.next().get("identity"));
+    assertFalse(stream.hasNext());
+    assertEquals(2, stream.getCount());
+    verify(response).close();
+  }
+
+  @Test
+  public void testCursorMarkAfterResults() throws IOException {
+    ResultsStream stream = newStream("{\"results\":[{\"identity\":\"1\"," +
+        "\"properties\":{\"a\":[1,2]}}],\"other\":{\"x\":[]}," +
+        "\"cursorMark\":\"abc\"}", mock(Closeable.class));
+    assertNull(stream.getCursorMark());
+    Map<String, Object> result = stream.next();
+    assertEquals("1", result.get("identity"));
+    assertTrue(result.get("properties") instanceof Map);
+    assertFalse(stream.hasNext());
+    assertEquals("abc", stream.getCursorMark());
+  }
+
+  @Test
+  public void testEmptyResults() throws IOException {
+    Closeable response = mock(Closeable.class);
+    ResultsStream stream = newStream(
+        "{\"entities\":[],\"cursorMark\":\"abc\"}", response);
+    assertFalse(stream.hasNext());
+    assertEquals("abc", stream.getCursorMark());
+    assertEquals(0, stream.getCount());
+    verify(response).close();
+  }
+
+  @Test
+  public void testProjection() throws IOException {
+    String json = "{\"results\":[{\"identity\":\"1\"," +
+        "\"properties\":{\"a\":[1,{\"b\":2}]},\"name\":\"x\"}," +
+        "{\"name\":\"y\",\"identity\":\"2\",\"tags\":[\"t\"]}]," +
+        "\"cursorMark\":\"abc\"}";
+    ResultsStream stream = new ResultsStream(new ByteArrayInputStream(
+        json.getBytes(Charsets.UTF_8)), mock(Closeable.class),
+        new ObjectMapper(), ImmutableSet.of("identity", "name"));
+    assertEquals(ImmutableMap.of("identity", "1", "name", "x"),
+        stream.next());
+    assertEquals(ImmutableMap.of("identity", "2", "name", "y"),
+        stream.next());
+    assertFalse(stream.hasNext());
+    assertEquals("abc", stream.getCursorMark());
+  }
+
+  private ResultsStream newStream(String json, Closeable response)
+      throws IOException {
+    return new ResultsStream(new ByteArrayInputStream(
+        json.getBytes(Charsets.UTF_8)), response, new ObjectMapper());
+  }
+}
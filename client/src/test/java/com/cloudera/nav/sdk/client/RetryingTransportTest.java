@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.client.fake.FakeNavigatorServer;
+import com.cloudera.nav.sdk.client.fake.SyntheticMetadataGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URL;
+
+import org.junit.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+public class RetryingTransportTest {
+
+  private FakeNavigatorServer server;
+  private ClientConfig config;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeNavigatorServer(new SyntheticMetadataGenerator(1, 1, 1));
+    server.start();
+    URL url = this.getClass().getClassLoader().getResource("nav_plugin.conf");
+    config = (new ClientConfigFactory()).readConfigurations(url.getPath());
+    config.setNavigatorUrl(server.getUrl());
+    config.setRetryInitialBackoffMillis(1L);
+    config.setRetryMaxBackoffMillis(5L);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void testRetryUnavailable() {
+    server.failNextRequests(2, 503);
+    try (NavApiCient client = new NavApiCient(config)) {
+      assertTrue(client.getTransport() instanceof RetryingTransport);
+      assertEquals(1, client.getAllSources().size());
+    }
+    assertEquals(3, server.getRequestCount());
+  }
+
+  @Test
+  public void testRetriesExhausted() {
+    server.failNextRequests(5, 503);
+    try (NavApiCient client = new NavApiCient(config)) {
+      client.getAllSources();
+      fail("Expected the final 503 to be reported");
+    } catch (HttpServerErrorException e) {
+      assertEquals(503, e.getStatusCode().value());
+    }
+    assertEquals(ClientConfig.DEFAULT_RETRY_MAX_ATTEMPTS,
+        server.getRequestCount());
+  }
+
+  @Test
+  public void testStatusNotRetried() {
+    server.failNextRequests(1, 500);
+    try (NavApiCient client = new NavApiCient(config)) {
+      client.getAllSources();
+      fail("Expected the 500 to be reported");
+    } catch (HttpServerErrorException e) {
+      assertEquals(500, e.getStatusCode().value());
+    }
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testStatusClass() {
+    config.setRetryStatusCodes("5xx");
+    server.failNextRequests(1, 500);
+    try (NavApiCient client = new NavApiCient(config)) {
+      assertEquals(1, client.getAllSources().size());
+    }
+  }
+
+  @Test
+  public void testRuntimeExceptionReleasesTrial() throws Exception {
+    ClientHttpResponse response = mock(ClientHttpResponse.class);
+    when(response.getRawStatusCode()).thenReturn(200);
+    ClientHttpRequest request = mock(ClientHttpRequest.class);
+    when(request.getHeaders()).thenReturn(new HttpHeaders());
+    when(request.getBody()).thenReturn(new ByteArrayOutputStream());
+    when(request.execute()).thenReturn(response);
+    NavTransport delegate = mock(NavTransport.class);
+    when(delegate.createRequest(any(URI.class), any(HttpMethod.class)))
+        .thenThrow(new IllegalStateException("pool shut down"))
+        .thenThrow(new IllegalStateException("pool shut down"))
+        .thenReturn(request);
+    // opens after a failure and is HALF_OPEN right away
+    CircuitBreaker breaker = new CircuitBreaker(1, 0L);
+    RetryingTransport transport = new RetryingTransport(delegate,
+        new RetryPolicy(config), breaker);
+    URI uri = URI.create(server.getUrl());
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        transport.createRequest(uri, HttpMethod.GET).execute();
+        fail();
+      } catch (IllegalStateException e) {
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+      }
+    }
+    // the failed trial was released, so the next one is let through
+    assertSame(response,
+        transport.createRequest(uri, HttpMethod.GET).execute());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testCircuitBreakerOpens() {
+    config.setRetryMaxAttempts(1);
+    config.setCircuitBreakerFailureThreshold(2);
+    server.failNextRequests(10, 503);
+    try (NavApiCient client = new NavApiCient(config)) {
+      for (int i = 0; i < 2; i++) {
+        try {
+          client.getAllSources();
+          fail();
+        } catch (HttpServerErrorException e) {
+          // expected
+        }
+      }
+      try {
+        client.getAllSources();
+        fail("Expected the request to fail fast");
+      } catch (ResourceAccessException e) {
+        assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+      }
+    }
+    assertEquals(2, server.getRequestCount());
+  }
+}
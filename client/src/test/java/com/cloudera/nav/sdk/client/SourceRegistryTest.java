@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.model.Source;
+import com.cloudera.nav.sdk.model.SourceType;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+public class SourceRegistryTest {
+
+  private static final long TTL_MILLIS = 1000L;
+  private static final long REFRESH_AHEAD_MILLIS = 100L;
+  private static final long MIN_REFRESH_MILLIS = 10L;
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private volatile Collection<Source> sources;
+  private volatile long now;
+  private SourceRegistry registry;
+
+  @Before
+  public void setUp() {
+    sources = Lists.newArrayList(newSource("hdfs", SourceType.HDFS));
+    registry = newRegistry(new Callable<Collection<Source>>() {
+      @Override
+      public Collection<Source> call() {
+        loads.incrementAndGet();
+        return sources;
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    registry.close();
+  }
+
+  @Test
+  public void testSnapshotReused() {
+    SourceRegistry.Snapshot snapshot = registry.getSnapshot();
+    assertEquals(1, loads.get());
+    assertNotNull(snapshot.getSourceForUrl("hdfs"));
+    assertEquals(1, snapshot.getSourcesForType(SourceType.HDFS).size());
+    assertTrue(snapshot.getSourcesForType(SourceType.HIVE).isEmpty());
+
+    advance(TTL_MILLIS - REFRESH_AHEAD_MILLIS - 1);
+    assertSame(snapshot, registry.getSnapshot());
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testRefreshAhead() {
+    SourceRegistry.Snapshot snapshot = registry.getSnapshot();
+    sources = Lists.newArrayList(newSource("hdfs", SourceType.HDFS),
+        newSource("hive", SourceType.HIVE));
+
+    // the caller gets the current snapshot while the reload runs
+    advance(TTL_MILLIS - REFRESH_AHEAD_MILLIS);
+    assertSame(snapshot, registry.getSnapshot());
+    assertEquals(2, loads.get());
+    assertNotNull(registry.getSnapshot().getSourceForUrl("hive"));
+  }
+
+  @Test
+  public void testExpired() {
+    SourceRegistry.Snapshot snapshot = registry.getSnapshot();
+    advance(TTL_MILLIS);
+    assertNotSame(snapshot, registry.getSnapshot());
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testRefreshStale() {
+    SourceRegistry.Snapshot stale = registry.getSnapshot();
+    advance(MIN_REFRESH_MILLIS);
+    SourceRegistry.Snapshot fresh = registry.refresh(stale);
+    assertNotSame(stale, fresh);
+    // a second miss on the stale snapshot does not load again
+    assertSame(fresh, registry.refresh(stale));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testRefreshRateLimited() {
+    SourceRegistry.Snapshot snapshot = registry.getSnapshot();
+    // misses in a recent snapshot do not reload it
+    for (int i = 0; i < 3; i++) {
+      assertSame(snapshot, registry.refresh(snapshot));
+    }
+    assertEquals(1, loads.get());
+    advance(MIN_REFRESH_MILLIS);
+    assertNotSame(snapshot, registry.refresh(snapshot));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testInvalidate() {
+    registry.getSnapshot();
+    registry.invalidate();
+    registry.getSnapshot();
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testSingleFlight() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    registry.close();
+    registry = newRegistry(new Callable<Collection<Source>>() {
+      @Override
+      public Collection<Source> call() throws Exception {
+        loads.incrementAndGet();
+        started.countDown();
+        release.await();
+        return sources;
+      }
+    });
+
+    int numThreads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<SourceRegistry.Snapshot>> results = Lists.newArrayList();
+      for (int i = 0; i < numThreads; i++) {
+        results.add(executor.submit(new Callable<SourceRegistry.Snapshot>() {
+          @Override
+          public SourceRegistry.Snapshot call() {
+            return registry.getSnapshot();
+          }
+        }));
+      }
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      // give the other callers time to join the load in flight
+      Thread.sleep(100L);
+      release.countDown();
+      SourceRegistry.Snapshot snapshot = results.get(0).get();
+      for (Future<SourceRegistry.Snapshot> result : results) {
+        assertSame(snapshot, result.get());
+      }
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testLoadFailure() {
+    registry.close();
+    registry = newRegistry(new Callable<Collection<Source>>() {
+      @Override
+      public Collection<Source> call() {
+        if (loads.incrementAndGet() == 1) {
+          throw new IllegalStateException("unavailable");
+        }
+        return sources;
+      }
+    });
+    try {
+      registry.getSnapshot();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("unavailable", e.getMessage());
+    }
+    assertNotNull(registry.getSnapshot().getSourceForUrl("hdfs"));
+  }
+
+  private SourceRegistry newRegistry(Callable<Collection<Source>> loader) {
+    // background reloads run in the calling thread to keep the test ordered
+    return new SourceRegistry(loader, TTL_MILLIS, REFRESH_AHEAD_MILLIS,
+        MIN_REFRESH_MILLIS, MoreExecutors.sameThreadExecutor()) {
+      @Override
+      long nanoTime() {
+        return now;
+      }
+    };
+  }
+
+  private void advance(long millis) {
+    now += TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  private static Source newSource(String url, SourceType type) {
+    return new Source(url, type, "cluster1", url, url + "Identity", 1L);
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.cdc;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.client.MetadataExtractor;
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.cloudera.nav.sdk.client.MetadataResultSets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeFeedTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private MetadataExtractor extractor;
+  private File stateFile;
+
+  @Before
+  public void setUp() {
+    stateFile = new File(folder.getRoot(), "feed.state");
+    extractor = mock(MetadataExtractor.class);
+    MetadataResultSet full = MetadataResultSets.singlePage("m1",
+        ImmutableList.of(entity("e1", "a", 1), entity("e2", "b", 1)),
+        ImmutableList.of(entity("r1", "parent", 1)));
+    Map<String, Object> deletedRelation = entity("r1", "parent", 2);
+    deletedRelation.put("deleted", true);
+    Map<String, Object> deletedUnknown = entity("e9", "z", 2);
+    deletedUnknown.put("deleted", true);
+    MetadataResultSet incremental = MetadataResultSets.singlePage("m2",
+        ImmutableList.of(
+            // only extracted again
+            entity("e1", "a", 2),
+            entity("e2", "b2", 2),
+            entity("e3", "c", 2),
+            deletedUnknown),
+        ImmutableList.of(deletedRelation));
+    when(extractor.extractMetadata()).thenReturn(full);
+    when(extractor.extractMetadata("m1")).thenReturn(incremental);
+  }
+
+  @Test
+  public void testPoll() {
+    ChangeFeed feed = new ChangeFeed(extractor, stateFile);
+    assertNull(feed.getMarker());
+    RecordingListener listener = new RecordingListener();
+    assertEquals(3L, feed.poll(listener));
+    assertEquals(Lists.newArrayList("ADDED ENTITIES e1",
+        "ADDED ENTITIES e2", "ADDED RELATIONS r1"), listener.events);
+    assertEquals("m1", feed.getMarker());
+
+    listener = new RecordingListener();
+    assertEquals(3L, feed.poll(listener));
+    assertEquals(Lists.newArrayList("UPDATED ENTITIES e2",
+        "ADDED ENTITIES e3", "DELETED RELATIONS r1"), listener.events);
+    assertEquals("m2", feed.getMarker());
+    assertEquals(3, feed.size());
+
+    feed = new ChangeFeed(extractor, stateFile);
+    assertEquals("m2", feed.getMarker());
+    assertEquals(3, feed.size());
+  }
+
+  @Test
+  public void testRepeatFailedPoll() {
+    ChangeFeed feed = new ChangeFeed(extractor, stateFile);
+    feed.poll(new RecordingListener());
+    final RecordingListener listener = new RecordingListener();
+    try {
+      feed.poll(new ChangeListener() {
+        @Override
+        public void onChange(ChangeEvent event) {
+          listener.onChange(event);
+          if (event.getType() == ChangeEvent.Type.ADDED) {
+            throw new IllegalStateException("failed");
+          }
+        }
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertEquals(2, listener.events.size());
+    assertEquals("m1", feed.getMarker());
+
+    // the events of the failed poll are delivered again
+    listener.events.clear();
+    assertEquals(3L, feed.poll(listener));
+    assertEquals(Lists.newArrayList("UPDATED ENTITIES e2",
+        "ADDED ENTITIES e3", "DELETED RELATIONS r1"), listener.events);
+  }
+
+  @Test
+  public void testJournalAppended() {
+    ChangeFeed feed = new ChangeFeed(extractor, stateFile);
+    feed.poll(new RecordingListener());
+    long length = stateFile.length();
+    feed.poll(new RecordingListener());
+    // the second poll appends its three changes and the marker
+    long appended = stateFile.length() - length;
+    assertTrue(appended > 0 && appended < length);
+    feed = new ChangeFeed(extractor, stateFile);
+    assertEquals("m2", feed.getMarker());
+    assertEquals(3, feed.size());
+  }
+
+  @Test
+  public void testCutOffPoll() throws IOException {
+    ChangeFeed feed = new ChangeFeed(extractor, stateFile);
+    feed.poll(new RecordingListener());
+    try (FileOutputStream out = new FileOutputStream(stateFile, true)) {
+      // part of a change of a poll that did not complete
+      out.write(new byte[] { 1, 0, 0, 0 });
+    }
+    feed = new ChangeFeed(extractor, stateFile);
+    assertEquals("m1", feed.getMarker());
+    assertEquals(3, feed.size());
+    RecordingListener listener = new RecordingListener();
+    assertEquals(3L, feed.poll(listener));
+    assertEquals(Lists.newArrayList("UPDATED ENTITIES e2",
+        "ADDED ENTITIES e3", "DELETED RELATIONS r1"), listener.events);
+    feed = new ChangeFeed(extractor, stateFile);
+    assertEquals("m2", feed.getMarker());
+    assertEquals(3, feed.size());
+  }
+
+  @Test
+  public void testCorruptJournal() throws IOException {
+    ChangeFeed feed = new ChangeFeed(extractor, stateFile);
+    feed.poll(new RecordingListener());
+    try (FileOutputStream out = new FileOutputStream(stateFile, true)) {
+      out.write(new byte[] { 7, 0, 0, 0 });
+    }
+    try {
+      new ChangeFeed(extractor, stateFile);
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("Corrupt change feed state"));
+    }
+  }
+
+  private static class RecordingListener implements ChangeListener {
+
+    private final List<String> events = Lists.newArrayList();
+
+    @Override
+    public void onChange(ChangeEvent event) {
+      assertEquals(event.getIdentity(), event.getMetadata().get("identity"));
+      events.add(event.getType() + " " + event.getMetadataType() + " " +
+          event.getIdentity());
+    }
+  }
+
+  private static Map<String, Object> entity(String identity, String name,
+                                            int iteration) {
+    Map<String, Object> entity = Maps.newHashMap();
+    entity.put("identity", identity);
+    entity.put("name", name);
+    entity.put("properties", Maps.newHashMap());
+    entity.put("extractorRunId", "source##" + iteration);
+    return entity;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.cdc;
+
+import static org.junit.Assert.*;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.*;
+
+public class FingerprintTableTest {
+
+  @Test
+  public void testPutRemove() {
+    FingerprintTable table = new FingerprintTable(10);
+    table.put(0L, 0L, 7L);
+    table.put(1L, 2L, 8L);
+    table.put(1L, 2L, 9L);
+    assertEquals(2, table.size());
+    assertEquals(7L, table.getFingerprint(table.find(0L, 0L)));
+    assertEquals(9L, table.getFingerprint(table.find(1L, 2L)));
+    assertTrue(table.remove(0L, 0L));
+    assertFalse(table.remove(0L, 0L));
+    assertEquals(-1, table.find(0L, 0L));
+    assertEquals(1, table.size());
+  }
+
+  @Test
+  public void testRandom() {
+    FingerprintTable table = new FingerprintTable(0);
+    Map<Long, Long> expected = Maps.newHashMap();
+    Random random = new Random(1);
+    for (int i = 0; i < 50000; i++) {
+      // small values so that identities are updated and removed often
+      long low = random.nextInt(5000);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(low) != null, table.remove(0L, low));
+      } else {
+        long fingerprint = random.nextLong();
+        expected.put(low, fingerprint);
+        table.put(0L, low, fingerprint);
+      }
+    }
+    assertEquals(expected.size(), table.size());
+    int occupied = 0;
+    for (int i = 0; i < table.capacity(); i++) {
+      if (table.isOccupied(i)) {
+        occupied++;
+        assertEquals(0L, table.getHigh(i));
+        assertEquals(expected.get(table.getLow(i)).longValue(),
+            table.getFingerprint(i));
+        assertEquals(i, table.find(0L, table.getLow(i)));
+      }
+    }
+    assertEquals(expected.size(), occupied);
+  }
+}
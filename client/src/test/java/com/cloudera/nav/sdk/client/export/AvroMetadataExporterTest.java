@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.export;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class AvroMetadataExporterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testExport() throws Exception {
+    List<Map<String, Object>> entities = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, Object> entity = Maps.newHashMap();
+      entity.put("identity", "id" + i);
+      entity.put("size", i);
+      entity.put("deleted", false);
+      entity.put("tags", ImmutableList.of("tag" + i));
+      entity.put("properties", ImmutableMap.of("key", i));
+      entity.put("source.type", "HDFS");
+      entities.add(entity);
+    }
+    // after the sample: an unknown attribute and a conflicting type
+    entities.get(500).put("unknown", "value");
+    entities.get(501).put("size", "large");
+
+    AvroMetadataExporter exporter = new AvroMetadataExporter(
+        folder.getRoot(), CodecFactory.snappyCodec(), 1024, 10);
+    List<File> files = exporter.export(MetadataType.ENTITIES, entities,
+        "marker");
+    assertTrue(files.size() > 1);
+    assertEquals(new File(folder.getRoot(), "entities-00000.avro"),
+        files.get(0));
+    assertEquals(files.size(), folder.getRoot().list().length);
+
+    List<GenericRecord> records = Lists.newArrayList();
+    for (File file : files) {
+      try (DataFileReader<GenericRecord> reader = new DataFileReader<>(
+          file, new GenericDatumReader<GenericRecord>())) {
+        assertEquals("marker", reader.getMetaString(
+            AvroMetadataExporter.MARKER_KEY));
+        assertEquals("snappy", reader.getMetaString("avro.codec"));
+        Schema schema = reader.getSchema();
+        assertEquals("Entity", schema.getName());
+        assertNotNull(schema.getField("source_type"));
+        assertNull(schema.getField("unknown"));
+        for (GenericRecord record : reader) {
+          records.add(record);
+        }
+      }
+    }
+    assertEquals(1000, records.size());
+
+    GenericRecord first = records.get(0);
+    assertEquals("id0", first.get("identity").toString());
+    assertEquals(0L, first.get("size"));
+    assertEquals(false, first.get("deleted"));
+    assertEquals("tag0", ((List<?>) first.get("tags")).get(0).toString());
+    assertEquals("HDFS", first.get("source_type").toString());
+    assertEquals(1, ((Map<?, ?>) first.get("properties")).size());
+    assertTrue(((Map<?, ?>) first.get("otherAttributes")).isEmpty());
+
+    Map<String, String> others = toStrings(
+        (Map<?, ?>) records.get(500).get("otherAttributes"));
+    assertEquals(ImmutableMap.of("unknown", "\"value\""), others);
+    GenericRecord conflicting = records.get(501);
+    assertNull(conflicting.get("size"));
+    assertEquals(ImmutableMap.of("size", "\"large\""), toStrings(
+        (Map<?, ?>) conflicting.get("otherAttributes")));
+  }
+
+  @Test
+  public void testExportNothing() {
+    AvroMetadataExporter exporter = new AvroMetadataExporter(
+        folder.getRoot());
+    assertTrue(exporter.export(MetadataType.RELATIONS,
+        Collections.<Map<String, Object>>emptyList(), null).isEmpty());
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testFailedExport() {
+    final List<Map<String, Object>> entities = Lists.newArrayList();
+    for (int i = 0; i < 5000; i++) {
+      Map<String, Object> entity = Maps.newHashMap();
+      entity.put("identity", "id" + i);
+      entity.put("size", i);
+      entity.put("tags", ImmutableList.of("tag" + i));
+      entities.add(entity);
+    }
+    // fails after several files were rolled
+    Iterable<Map<String, Object>> failing =
+        new Iterable<Map<String, Object>>() {
+          @Override
+          public Iterator<Map<String, Object>> iterator() {
+            return Iterators.concat(entities.iterator(),
+                new AbstractIterator<Map<String, Object>>() {
+                  @Override
+                  protected Map<String, Object> computeNext() {
+                    throw new IllegalStateException("failed");
+                  }
+                });
+          }
+        };
+
+    AvroMetadataExporter exporter = new AvroMetadataExporter(
+        folder.getRoot(), CodecFactory.nullCodec(), 1024, 10);
+    try {
+      exporter.export(MetadataType.ENTITIES, failing, null);
+      fail("Expected the export to fail");
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  private static Map<String, String> toStrings(Map<?, ?> map) {
+    Map<String, String> strings = Maps.newHashMap();
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      strings.put(entry.getKey().toString(), entry.getValue().toString());
+    }
+    return strings;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.export;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.cloudera.nav.sdk.client.MetadataResultSets;
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSystemMetadataSinkTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private FileSystem fs;
+  private FileSystemMetadataSink sink;
+  private Path output;
+
+  @Before
+  public void setUp() throws Exception {
+    fs = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+    sink = new FileSystemMetadataSink(fs, 3, Long.MAX_VALUE, 100,
+        CodecFactory.deflateCodec(1), 10);
+    output = new Path(folder.getRoot().toURI().toString(), "partition");
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    MetadataResultSet rs = MetadataResultSets.singlePage("marker",
+        results("e", 1000), results("r", 10));
+
+    Path committed = sink.write(rs, output);
+    assertEquals(fs.makeQualified(output), committed);
+    assertArrayEquals(new String[] { "partition" },
+        folder.getRoot().list());
+
+    File dir = new File(folder.getRoot(), "partition");
+    assertTrue(new File(dir, FileSystemMetadataSink.SUCCESS_FILE).exists());
+    File[] entityFiles = new File(dir, "entities").listFiles();
+    // at most 100 records per file
+    assertTrue(entityFiles.length >= 10);
+    assertEquals(1000, readIdentities(entityFiles).size());
+    File[] relationFiles = new File(dir, "relations").listFiles();
+    assertEquals(10, readIdentities(relationFiles).size());
+  }
+
+  @Test
+  public void testFailedWrite() {
+    final Iterator<Map<String, Object>> results =
+        results("e", 1000).iterator();
+    Iterable<Map<String, Object>> failing =
+        new Iterable<Map<String, Object>>() {
+          @Override
+          public Iterator<Map<String, Object>> iterator() {
+            return new AbstractIterator<Map<String, Object>>() {
+              private int count;
+
+              @Override
+              protected Map<String, Object> computeNext() {
+                if (++count > 500) {
+                  throw new IllegalStateException("failed");
+                }
+                return results.next();
+              }
+            };
+          }
+        };
+    try {
+      sink.write(MetadataType.ENTITIES, failing, null, output);
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    // neither the output nor the temporary directory is left behind
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testExistingOutput() throws Exception {
+    fs.mkdirs(output);
+    sink.write(MetadataType.ENTITIES, results("e", 1), null, output);
+  }
+
+  private static List<Map<String, Object>> results(String prefix,
+                                                   int count) {
+    List<Map<String, Object>> results = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      Map<String, Object> result = Maps.newHashMap();
+      result.put("identity", prefix + i);
+      result.put("name", "name" + i);
+      results.add(result);
+    }
+    return results;
+  }
+
+  private static Set<String> readIdentities(File[] files) throws Exception {
+    Set<String> identities = Sets.newHashSet();
+    for (File file : files) {
+      try (DataFileReader<GenericRecord> reader = new DataFileReader<>(
+          file, new GenericDatumReader<GenericRecord>())) {
+        assertTrue(file.getName().startsWith("part-"));
+        for (GenericRecord record : reader) {
+          assertTrue(identities.add(record.get("identity").toString()));
+        }
+      }
+    }
+    return identities;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.fake;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.client.ClientConfig;
+import com.cloudera.nav.sdk.client.ClientConfigFactory;
+import com.cloudera.nav.sdk.client.Compression;
+import com.cloudera.nav.sdk.client.MetadataExtractor;
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.cloudera.nav.sdk.client.NavigatorPlugin;
+import com.cloudera.nav.sdk.client.writer.ResultSet;
+import com.cloudera.nav.sdk.model.Source;
+import com.cloudera.nav.sdk.model.entities.EntityType;
+import com.cloudera.nav.sdk.model.entities.HdfsEntity;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.*;
+
+public class FakeNavigatorServerTest {
+
+  private FakeNavigatorServer server;
+  private ClientConfig config;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeNavigatorServer(new SyntheticMetadataGenerator(2, 3, 5));
+    server.start();
+    URL url = this.getClass().getClassLoader().getResource("nav_plugin.conf");
+    config = (new ClientConfigFactory()).readConfigurations(url.getPath());
+    config.setNavigatorUrl(server.getUrl());
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void testExtractMetadata() {
+    try (NavigatorPlugin plugin = new NavigatorPlugin(config)) {
+      assertEquals(2, plugin.getClient().getAllSources().size());
+      MetadataExtractor extractor = new MetadataExtractor(
+          plugin.getClient(), 4);
+      MetadataResultSet results = extractor.extractMetadata();
+      assertEquals(30, countDistinct(results.getEntities()));
+      assertEquals(30, countDistinct(results.getRelations()));
+
+      // only the latest extraction of every source
+      String marker = "{" + markerEntry(0, 3) + "," +
+          markerEntry(1, 3) + "}";
+      results = extractor.extractMetadata(marker);
+      assertEquals(10, countDistinct(results.getEntities()));
+    }
+  }
+
+  @Test
+  public void testExtractorRunIdPatterns() {
+    String marker = "{" + markerEntry(0, 2) + "," + markerEntry(1, 1) + "}";
+    for (boolean patterns : new boolean[] { true, false }) {
+      config.setExtractorRunIdPatterns(patterns);
+      try (NavigatorPlugin plugin = new NavigatorPlugin(config)) {
+        MetadataExtractor extractor = new MetadataExtractor(
+            plugin.getClient(), 4);
+        // iterations 2 to 3 of the first and 1 to 3 of the second source
+        MetadataResultSet results = extractor.extractMetadata(marker);
+        assertEquals(25, countDistinct(results.getEntities()));
+      }
+    }
+  }
+
+  @Test
+  public void testFieldProjection() {
+    Set<String> fields = ImmutableSet.of("identity", "originalName");
+    for (boolean serverProjection : new boolean[] { true, false }) {
+      config.setServerFieldProjection(serverProjection);
+      for (boolean streaming : new boolean[] { true, false }) {
+        config.setStreamingResults(streaming);
+        try (NavigatorPlugin plugin = new NavigatorPlugin(config)) {
+          MetadataExtractor extractor = new MetadataExtractor(
+              plugin.getClient(), 4);
+          MetadataResultSet results = extractor.extractMetadata(null, null,
+              null, null, fields, null);
+          for (Map<String, Object> entity : results.getEntities()) {
+            assertEquals(fields, entity.keySet());
+          }
+          assertEquals(30, countDistinct(results.getEntities()));
+          Map<String, Object> relation = Iterables.getFirst(
+              results.getRelations(), null);
+          assertTrue(relation.size() > fields.size());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testWriteMetadata() {
+    config.setCompression(Compression.GZIP);
+    server.setLatencyMillis(10L);
+    try (NavigatorPlugin plugin = new NavigatorPlugin(config)) {
+      Source source = Iterables.getFirst(
+          plugin.getClient().getAllSources(), null);
+      HdfsEntity entity = new HdfsEntity();
+      entity.setSourceId(source.getIdentity());
+      entity.setFileSystemPath("/user/test");
+      entity.setEntityType(EntityType.DIRECTORY);
+      ResultSet result = plugin.write(entity);
+      assertEquals(1, result.getEntities().getCount());
+      assertEquals(1L, server.getEntitiesWritten());
+      assertTrue(plugin.getWriterFactory().getCompressionStats()
+          .getCompressedBytesWritten() > 0);
+    }
+  }
+
+  private String markerEntry(int source, int iteration) {
+    Map<String, Object> attrs = server.getGenerator().getSources().get(source);
+    return String.format("\"%s\":%d", attrs.get("identity"), iteration);
+  }
+
+  private static int countDistinct(Iterable<Map<String, Object>> results) {
+    Set<Object> ids = Sets.newHashSet();
+    for (Map<String, Object> result : results) {
+      ids.add(result.get("identity"));
+    }
+    return ids.size();
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.mirror;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.client.MetadataExtractor;
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+import com.cloudera.nav.sdk.client.MetadataResultSets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class MetadataMirrorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private MetadataExtractor extractor;
+
+  @Before
+  public void setUp() {
+    extractor = mock(MetadataExtractor.class);
+    MetadataResultSet full = MetadataResultSets.singlePage("m1",
+        ImmutableList.of(
+            entity("e1", "FILE", "HDFS", "a"),
+            entity("e2", "FILE", "HDFS", "b"),
+            entity("e3", "TABLE", "HIVE", "c")),
+        ImmutableList.of(relation("r1", "PARENT_CHILD")));
+    Map<String, Object> deleted = entity("e2", "FILE", "HDFS", "b");
+    deleted.put("deleted", true);
+    MetadataResultSet incremental = MetadataResultSets.singlePage("m2",
+        ImmutableList.of(entity("e1", "DIRECTORY", "HDFS", "a2"), deleted,
+            entity("e4", "FILE", "HDFS", "d")),
+        ImmutableList.<Map<String, Object>>of());
+    when(extractor.extractMetadata()).thenReturn(full);
+    when(extractor.extractMetadata("m1")).thenReturn(incremental);
+  }
+
+  @Test
+  public void testSync() throws Exception {
+    try (MetadataMirror mirror = new MetadataMirror(extractor,
+        folder.getRoot())) {
+      assertNull(mirror.getMarker());
+      assertEquals(Long.MAX_VALUE, mirror.getStalenessMillis());
+      mirror.sync();
+      assertEquals("m1", mirror.getMarker());
+      assertTrue(mirror.getStalenessMillis() >= 0L);
+      assertEquals(4, mirror.size());
+      assertEquals("a", mirror.get("e1").get("name"));
+      assertNull(mirror.get("missing"));
+      assertEquals(ImmutableSet.of("e1", "e2"),
+          identities(mirror.find("FILE", null)));
+      assertEquals(ImmutableSet.of("e3"),
+          identities(mirror.find(null, "HIVE")));
+      assertEquals(ImmutableSet.of("e1", "e2"),
+          identities(mirror.find("FILE", "HDFS")));
+      assertEquals(ImmutableSet.of("r1"),
+          identities(mirror.find("PARENT_CHILD", null)));
+      assertEquals(4, mirror.find(null, null).size());
+    }
+  }
+
+  @Test
+  public void testIncrementalSync() throws Exception {
+    File directory = folder.getRoot();
+    // small segments to span the log over several files
+    try (MetadataMirror mirror = new MetadataMirror(extractor, directory,
+        200)) {
+      mirror.sync();
+      mirror.sync();
+      verify(extractor).extractMetadata("m1");
+      assertIncremental(mirror);
+    }
+    assertTrue(directory.list().length > 2);
+    try (MetadataMirror mirror = new MetadataMirror(extractor, directory,
+        200)) {
+      assertIncremental(mirror);
+    }
+  }
+
+  @Test
+  public void testTornRecord() throws Exception {
+    File directory = folder.getRoot();
+    try (MetadataMirror mirror = new MetadataMirror(extractor, directory)) {
+      mirror.sync();
+    }
+    String[] names = directory.list();
+    Arrays.sort(names);
+    // a record whose length exceeds the rest of the segment
+    try (FileOutputStream out = new FileOutputStream(
+        new File(directory, names[names.length - 1]), true)) {
+      out.write(new byte[] { 0, 0, 1, 0, '{' });
+    }
+    try (MetadataMirror mirror = new MetadataMirror(extractor, directory)) {
+      assertEquals(4, mirror.size());
+      mirror.sync();
+      assertIncremental(mirror);
+    }
+  }
+
+  private static void assertIncremental(MetadataMirror mirror) {
+    assertEquals("m2", mirror.getMarker());
+    assertEquals(4, mirror.size());
+    assertEquals("a2", mirror.get("e1").get("name"));
+    assertNull(mirror.get("e2"));
+    assertEquals(ImmutableSet.of("e4"),
+        identities(mirror.find("FILE", "HDFS")));
+    assertEquals(ImmutableSet.of("e1"),
+        identities(mirror.find("DIRECTORY", null)));
+  }
+
+  private static Set<Object> identities(List<Map<String, Object>> results) {
+    Set<Object> identities = Sets.newHashSet();
+    for (Map<String, Object> result : results) {
+      identities.add(result.get("identity"));
+    }
+    return identities;
+  }
+
+  private static Map<String, Object> entity(String identity, String type,
+                                            String sourceType, String name) {
+    Map<String, Object> entity = Maps.newHashMap();
+    entity.put("identity", identity);
+    entity.put("type", type);
+    entity.put("sourceType", sourceType);
+    entity.put("name", name);
+    return entity;
+  }
+
+  private static Map<String, Object> relation(String identity, String type) {
+    Map<String, Object> relation = Maps.newHashMap();
+    relation.put("identity", identity);
+    relation.put("type", type);
+    return relation;
+  }
+}
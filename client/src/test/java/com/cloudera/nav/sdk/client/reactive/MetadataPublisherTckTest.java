@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.reactive;
+
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.client.EntityResultsBatch;
+import com.cloudera.nav.sdk.client.MetadataIterable;
+import com.cloudera.nav.sdk.client.MetadataQuery;
+import com.cloudera.nav.sdk.client.NavApiCient;
+import com.cloudera.nav.sdk.client.ResultsBatch;
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.tck.PublisherVerification;
+import org.reactivestreams.tck.TestEnvironment;
+
+/**
+ * Reactive Streams TCK verification of {@link MetadataPublisher}, run with
+ * TestNG
+ */
+public class MetadataPublisherTckTest
+    extends PublisherVerification<Map<String, Object>> {
+
+  private static final int PAGE_SIZE = 100;
+
+  public MetadataPublisherTckTest() {
+    super(new TestEnvironment());
+  }
+
+  @Override
+  public Publisher<Map<String, Object>> createPublisher(long elements) {
+    return new MetadataPublisher(new MetadataIterable(pagedClient(elements),
+        MetadataType.ENTITIES, "identity:*", PAGE_SIZE,
+        Lists.<String>newArrayList()));
+  }
+
+  @Override
+  public Publisher<Map<String, Object>> createFailedPublisher() {
+    // paging failures are only signalled once results are requested, an
+    // executor that rejects the subscription fails it right away
+    return new MetadataPublisher(new MetadataIterable(pagedClient(0),
+        MetadataType.ENTITIES, "identity:*", PAGE_SIZE,
+        Lists.<String>newArrayList()), new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            throw new RejectedExecutionException("shut down");
+          }
+        });
+  }
+
+  /**
+   * Client returning the given number of entities, the cursorMark is the
+   * next offset
+   */
+  private static NavApiCient pagedClient(final long elements) {
+    NavApiCient client = mock(NavApiCient.class);
+    when(client.getEntityBatch(any(MetadataQuery.class))).thenAnswer(
+        new Answer<ResultsBatch<Map<String, Object>>>() {
+          @Override
+          public ResultsBatch<Map<String, Object>> answer(
+              InvocationOnMock invocation) {
+            MetadataQuery query = (MetadataQuery) invocation.getArguments()[0];
+            long offset = "*".equals(query.getCursorMark()) ? 0 :
+                Long.parseLong(query.getCursorMark());
+            long end = Math.min(offset + query.getLimit(), elements);
+            List<Map<String, Object>> results = Lists.newArrayList();
+            for (long i = offset + 1; i <= end; i++) {
+              results.add(ImmutableMap.<String, Object>of("identity",
+                  String.valueOf(i)));
+            }
+            EntityResultsBatch batch = new EntityResultsBatch();
+            batch.setResults(results);
+            batch.setCursorMark(String.valueOf(end));
+            return batch;
+          }
+        });
+    return client;
+  }
+}
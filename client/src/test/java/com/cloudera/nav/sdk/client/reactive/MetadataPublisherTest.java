@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.reactive;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.client.EntityResultsBatch;
+import com.cloudera.nav.sdk.client.MetadataIterable;
+import com.cloudera.nav.sdk.client.MetadataQuery;
+import com.cloudera.nav.sdk.client.NavApiCient;
+import com.cloudera.nav.sdk.client.ResultsBatch;
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class MetadataPublisherTest {
+
+  private NavApiCient client;
+  private MetadataIterable iterable;
+
+  @Before
+  public void setUp() {
+    client = mock(NavApiCient.class);
+    // results 1 to 5 in pages of 2, the cursorMark is the next offset
+    when(client.getEntityBatch(any(MetadataQuery.class))).thenAnswer(
+        new Answer<ResultsBatch<Map<String, Object>>>() {
+          @Override
+          public ResultsBatch<Map<String, Object>> answer(
+              InvocationOnMock invocation) {
+            MetadataQuery query = (MetadataQuery) invocation.getArguments()[0];
+            int offset = "*".equals(query.getCursorMark()) ? 0 :
+                Integer.parseInt(query.getCursorMark());
+            int end = Math.min(offset + query.getLimit(), 5);
+            List<Map<String, Object>> results = Lists.newArrayList();
+            for (int i = offset + 1; i <= end; i++) {
+              results.add(ImmutableMap.<String, Object>of("identity",
+                  String.valueOf(i)));
+            }
+            EntityResultsBatch batch = new EntityResultsBatch();
+            batch.setResults(results);
+            batch.setCursorMark(String.valueOf(end));
+            return batch;
+          }
+        });
+    iterable = new MetadataIterable(client, MetadataType.ENTITIES,
+        "identity:*", 2, Lists.<String>newArrayList());
+  }
+
+  @Test
+  public void testDemand() {
+    RecordingSubscriber subscriber = subscribe(
+        MoreExecutors.sameThreadExecutor());
+    // nothing is paged before it is requested
+    verify(client, never()).getEntityBatch(any(MetadataQuery.class));
+    subscriber.subscription.request(1);
+    assertEquals(Lists.<Object>newArrayList("1"), subscriber.ids);
+    verify(client, times(1)).getEntityBatch(any(MetadataQuery.class));
+    subscriber.subscription.request(2);
+    assertEquals(Lists.<Object>newArrayList("1", "2", "3"), subscriber.ids);
+    verify(client, times(2)).getEntityBatch(any(MetadataQuery.class));
+    assertFalse(subscriber.completed);
+    subscriber.subscription.request(10);
+    assertEquals(5, subscriber.ids.size());
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  public void testCancel() {
+    RecordingSubscriber subscriber = subscribe(
+        MoreExecutors.sameThreadExecutor());
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(5);
+    assertEquals(1, subscriber.ids.size());
+    verify(client, times(1)).getEntityBatch(any(MetadataQuery.class));
+    assertFalse(subscriber.completed);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  public void testInvalidRequest() {
+    RecordingSubscriber subscriber = subscribe(
+        MoreExecutors.sameThreadExecutor());
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    subscriber.subscription.request(1);
+    assertTrue(subscriber.ids.isEmpty());
+  }
+
+  @Test
+  public void testPagingFailure() {
+    reset(client);
+    when(client.getEntityBatch(any(MetadataQuery.class)))
+        .thenThrow(new IllegalStateException("failed"));
+    RecordingSubscriber subscriber = subscribe(
+        MoreExecutors.sameThreadExecutor());
+    subscriber.subscription.request(1);
+    assertTrue(subscriber.error instanceof IllegalStateException);
+    assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void testFailingSubscriber() {
+    RecordingSubscriber subscriber = subscribe(
+        MoreExecutors.sameThreadExecutor());
+    subscriber.failOnNext = true;
+    subscriber.subscription.request(5);
+    // the subscription is cancelled, not failed
+    assertEquals(Lists.<Object>newArrayList("1"), subscriber.ids);
+    assertNull(subscriber.error);
+    assertFalse(subscriber.completed);
+    subscriber.subscription.request(5);
+    assertEquals(1, subscriber.ids.size());
+    verify(client, times(1)).getEntityBatch(any(MetadataQuery.class));
+  }
+
+  @Test
+  public void testPublishOnExecutor() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      RecordingSubscriber subscriber = subscribe(executor);
+      subscriber.subscription.request(Long.MAX_VALUE);
+      subscriber.subscription.request(Long.MAX_VALUE);
+      assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+      assertEquals(5, subscriber.ids.size());
+      assertNotSame(Thread.currentThread(), subscriber.thread);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private RecordingSubscriber subscribe(Executor executor) {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new MetadataPublisher(iterable, executor).subscribe(subscriber);
+    // onSubscribe is signalled on the executor as well
+    try {
+      assertTrue(subscriber.subscribed.await(10, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+    assertNotNull(subscriber.subscription);
+    return subscriber;
+  }
+
+  private static class RecordingSubscriber
+      implements Subscriber<Map<String, Object>> {
+
+    private final List<Object> ids = Lists.newArrayList();
+    private final CountDownLatch subscribed = new CountDownLatch(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Subscription subscription;
+    private volatile Thread thread;
+    private volatile boolean completed;
+    private volatile Throwable error;
+    private volatile boolean failOnNext;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+      subscribed.countDown();
+    }
+
+    @Override
+    public void onNext(Map<String, Object> element) {
+      thread = Thread.currentThread();
+      ids.add(element.get("identity"));
+      if (failOnNext) {
+        throw new IllegalStateException("failed");
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      error = t;
+      done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      done.countDown();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.writer;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.client.Compression;
+import com.cloudera.nav.sdk.client.CompressionStats;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+
+public class CompressedRequestStreamTest {
+
+  private static final String BODY = Strings.repeat("{\"entities\":[]}", 100);
+
+  @Test
+  public void testGzip() throws Exception {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    CompressionStats stats = new CompressionStats();
+    write(body, Compression.GZIP, stats);
+    assertEquals(BODY, read(new GZIPInputStream(
+        new ByteArrayInputStream(body.toByteArray()))));
+    assertEquals(BODY.length(), stats.getUncompressedBytesWritten());
+    assertEquals(body.size(), stats.getCompressedBytesWritten());
+    assertTrue(stats.getCompressedBytesWritten() < BODY.length());
+  }
+
+  @Test
+  public void testDeflate() throws Exception {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    CompressionStats stats = new CompressionStats();
+    write(body, Compression.DEFLATE, stats);
+    assertEquals(BODY, read(new InflaterInputStream(
+        new ByteArrayInputStream(body.toByteArray()))));
+    assertEquals(body.size(), stats.getCompressedBytesWritten());
+  }
+
+  private void write(ByteArrayOutputStream body, Compression compression,
+                     CompressionStats stats) throws Exception {
+    CompressedRequestStream stream = new CompressedRequestStream(body,
+        compression, stats);
+    stream.write(BODY.getBytes(Charsets.UTF_8));
+    stream.flush();
+    stream.finish();
+  }
+
+  private String read(InputStream in) throws Exception {
+    return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+  }
+}
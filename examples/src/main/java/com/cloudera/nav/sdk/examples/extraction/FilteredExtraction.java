@@ -20,9 +20,11 @@ import com.cloudera.nav.sdk.client.MetadataResultSet;
 import com.cloudera.nav.sdk.client.NavApiCient;
 import com.cloudera.nav.sdk.client.NavigatorPlugin;
 import com.cloudera.nav.sdk.client.QueryUtils;
+import com.cloudera.nav.sdk.client.SourceRegistry;
 import com.cloudera.nav.sdk.model.Source;
 import com.cloudera.nav.sdk.model.SourceType;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 import java.io.IOException;
@@ -43,7 +45,8 @@ import java.util.Map;
  *
  * The marker is a string cursor return by the server when extraction occurs.
  * By giving a start/end marker, only metadata between the start/end markers
- * are retrieved
+ * are retrieved. The Sources are loaded once, so every extraction covers the
+ * same marker window.
  */
 public class FilteredExtraction {
 
@@ -59,12 +62,13 @@ public class FilteredExtraction {
         .getClient();
 
     MetadataExtractor extractor = new MetadataExtractor(client, null);
+    SourceRegistry.Snapshot sources = extractor.getSourceSnapshot();
 
     // Run filtered examples
-    getHDFSEntities(client, extractor, marker);
-    getHive(extractor, marker, "city_id");
-    getHiveOperations(extractor, marker);
-    String nextMarker = getMRandYarn(extractor, marker);
+    getHDFSEntities(extractor, sources, marker);
+    getHive(extractor, sources, marker, "city_id");
+    getHiveOperations(extractor, sources, marker);
+    String nextMarker = getMRandYarn(extractor, sources, marker);
 
     // Save the last marker
     try (PrintWriter writer = new PrintWriter(markerPath, "UTF-8")) {
@@ -72,42 +76,48 @@ public class FilteredExtraction {
     }
   }
 
-  public static void getHDFSEntities(NavApiCient client,
-                                     MetadataExtractor extractor,
+  public static void getHDFSEntities(MetadataExtractor extractor,
+                                     SourceRegistry.Snapshot sources,
                                      String marker) {
     Iterable<Map<String, Object>> HdfsAll =
-        extractor.extractMetadata(marker, null, "sourceType:HDFS", null)
-            .getEntities();
+        extractor.extractMetadata(sources, marker, null, "sourceType:HDFS",
+            null).getEntities();
     getFirstResult(HdfsAll);
 
-    Source hdfsSource = client.getOnlySource(SourceType.HDFS);
+    Source hdfsSource = Iterables.getOnlyElement(
+        sources.getSourcesForType(SourceType.HDFS));
     Iterable<Map<String, Object>> HdfsSingleSource =
-        extractor.extractMetadata(marker, null,  "sourceType:HDFS AND " +
-            "sourceId:" + hdfsSource.getIdentity(), null).getEntities();
+        extractor.extractMetadata(sources, marker, null,
+            "sourceType:HDFS AND sourceId:" + hdfsSource.getIdentity(),
+            null).getEntities();
     getFirstResult(HdfsSingleSource);
   }
 
   public static void getHive(MetadataExtractor extractor,
+                             SourceRegistry.Snapshot sources,
                              String marker, String colName) {
-    Iterable<Map<String, Object>> hiveDb = extractor.extractMetadata(marker,
-        null, "sourceType:HIVE AND type:DATABASE", null).getEntities();
+    Iterable<Map<String, Object>> hiveDb = extractor.extractMetadata(
+        sources, marker, null, "sourceType:HIVE AND type:DATABASE", null)
+        .getEntities();
     getFirstResult(hiveDb);
 
-    Iterable<Map<String, Object>> hiveTable = extractor.extractMetadata(marker,
-        null, "sourceType:HIVE AND type:TABLE", null).getEntities();
+    Iterable<Map<String, Object>> hiveTable = extractor.extractMetadata(
+        sources, marker, null, "sourceType:HIVE AND type:TABLE", null)
+        .getEntities();
     getFirstResult(hiveTable);
 
-    Iterable<Map<String, Object>> hiveView = extractor.extractMetadata(marker,
-        null, "sourceType:HIVE AND type:VIEW", null).getEntities();
+    Iterable<Map<String, Object>> hiveView = extractor.extractMetadata(
+        sources, marker, null, "sourceType:HIVE AND type:VIEW", null)
+        .getEntities();
     getFirstResult(hiveView);
 
-    Iterable<Map<String, Object>> hiveColumn = extractor.extractMetadata(marker,
-        null, "sourceType:HIVE AND type:FIELD " +
+    Iterable<Map<String, Object>> hiveColumn = extractor.extractMetadata(
+        sources, marker, null, "sourceType:HIVE AND type:FIELD " +
         "AND originalName:" + colName, null).getEntities();
     getFirstResult(hiveColumn);
 
     Iterable<Map<String, Object>> hiveRelation = extractor.extractMetadata(
-        marker, null,
+        sources, marker, null,
         "sourceType:HIVE AND type:(DIRECTORY OR FILE)",
         "endpoint1SourceType:HIVE AND endpoint2SourceType: HIVE " +
         "AND type:PARENT_CHILD AND endpoint1Type: DIRECTORY " +
@@ -117,14 +127,15 @@ public class FilteredExtraction {
   }
 
   public static void getHiveOperations(MetadataExtractor extractor,
+                                       SourceRegistry.Snapshot sources,
                                        String marker) {
     Iterable<Map<String, Object>> hiveOpEntities = extractor.extractMetadata(
-        marker, null, "sourceType:HIVE AND type:OPERATION_EXECUTION", null)
-        .getEntities();
+        sources, marker, null, "sourceType:HIVE AND type:OPERATION_EXECUTION",
+        null).getEntities();
     getFirstResult(hiveOpEntities);
 
     Iterable<Map<String, Object>> hiveOpRelations = extractor.extractMetadata(
-            marker, null,
+            sources, marker, null,
             "sourceType:HIVE AND type:OPERATION_EXECUTION",
             "type:LOGICAL_PHYSICAL AND endpoint1SourceType:HIVE " +
             "AND endpoint1Type:OPERATION_EXECUTION").getRelations();
@@ -133,9 +144,11 @@ public class FilteredExtraction {
   }
 
   public static String getMRandYarn(MetadataExtractor extractor,
+                                    SourceRegistry.Snapshot sources,
                                     String marker) {
     Iterable<Map<String, Object>> yarnOpEntities = extractor.extractMetadata(
-        marker, null, "sourceType:(MAPREDUCE OR YARN) AND type:OPERATION_EXECUTION",
+        sources, marker, null,
+        "sourceType:(MAPREDUCE OR YARN) AND type:OPERATION_EXECUTION",
         null).getEntities();
     getFirstResult(yarnOpEntities);
 
@@ -144,11 +157,11 @@ public class FilteredExtraction {
     List<String> types = Lists.newArrayList("OPERATION EXECUTION");
     String entityQuery = QueryUtils.buildQuery(sourceTypes, types);
     Iterable<Map<String, Object>> yarnOpEntities2 = extractor.extractMetadata(
-        marker, null, entityQuery, "").getEntities();
+        sources, marker, null, entityQuery, "").getEntities();
     getFirstResult(yarnOpEntities2);
 
     MetadataResultSet yarnOp = extractor.extractMetadata(
-        marker, null,
+        sources, marker, null,
         "sourceType:(MAPREDUCE OR YARN) AND type:OPERATION_EXECUTION",
         "type:DATA_FLOW AND endpoint1SourceType:HDFS OR endpoint2SourceType:HDFS");
     Iterable<Map<String, Object>> yarnOpRelations = yarnOp.getRelations();
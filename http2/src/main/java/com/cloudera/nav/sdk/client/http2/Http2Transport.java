@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.http2;
+
+import com.cloudera.nav.sdk.client.AuthenticationManager;
+import com.cloudera.nav.sdk.client.ClientConfig;
+import com.cloudera.nav.sdk.client.Compression;
+import com.cloudera.nav.sdk.client.NavTransport;
+import com.google.common.net.HttpHeaders;
+
+import java.net.URI;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+
+/**
+ * {@link NavTransport} that multiplexes all requests over a single HTTP/2
+ * connection, created by the {@link Http2TransportProvider}. Every request
+ * carries the Basic credentials, which HTTP/2 header compression sends as a
+ * short index after the first request, so no session cookie is kept.
+ */
+public class Http2Transport implements NavTransport {
+
+  private final ClientConfig config;
+  private final OkHttpClient client;
+  private final Protocol protocol;
+  private final AuthenticationManager authManager;
+
+  Http2Transport(ClientConfig config, OkHttpClient client,
+                 Protocol protocol) {
+    this.config = config;
+    this.client = client;
+    this.protocol = protocol;
+    this.authManager = new AuthenticationManager(config,
+        new BasicCookieStore());
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+    ClientHttpRequest request = new OkHttpClientRequest(client, uri,
+        httpMethod);
+    authManager.addCredentials(request.getHeaders());
+    if (config.getCompression() == null ||
+        config.getCompression() == Compression.NONE) {
+      // OkHttp asks for and decodes gzip responses unless told otherwise
+      request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "identity");
+    }
+    return request;
+  }
+
+  @Override
+  public String getApiUrl() {
+    String url = config.getNavigatorUrl();
+    return url + (url.endsWith("/") ? "" : "/") + "api/v" +
+        String.valueOf(config.getApiVersion());
+  }
+
+  /**
+   * @return protocol negotiated with Navigator, {@link Protocol#HTTP_2} over
+   *         TLS or {@link Protocol#H2_PRIOR_KNOWLEDGE} for plain http
+   */
+  public Protocol getProtocol() {
+    return protocol;
+  }
+
+  public AuthenticationManager getAuthenticationManager() {
+    return authManager;
+  }
+
+  public ClientConfig getConfig() {
+    return config;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> type) {
+    return type.isInstance(this) ? type.cast(this) : null;
+  }
+
+  /**
+   * Close the connection and stop the threads of the OkHttp client
+   */
+  @Override
+  public void close() {
+    client.dispatcher().executorService().shutdown();
+    client.connectionPool().evictAll();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.http2;
+
+import com.cloudera.nav.sdk.client.ClientConfig;
+import com.cloudera.nav.sdk.client.NavTransport;
+import com.cloudera.nav.sdk.client.NavTransportProvider;
+import com.cloudera.nav.sdk.client.SSLUtils;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link NavTransportProvider} of {@link Http2Transport}s. It is enabled by
+ * setting the transport_provider option to the name of this class.
+ *
+ * Before creating a transport, a HEAD request is sent to Navigator to find
+ * out whether it speaks HTTP/2. Over https the protocol is negotiated with
+ * ALPN, which needs Java 8u252 or later. Plain http connections start with
+ * the HTTP/2 preface right away (prior knowledge), as there is no upgrade
+ * from HTTP/1.1. If Navigator answers with HTTP/1.1 or does not understand
+ * the preface, no transport is created and the client falls back to the
+ * default HTTP/1.1 transport.
+ */
+public class Http2TransportProvider implements NavTransportProvider {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(Http2TransportProvider.class);
+
+  @Override
+  public NavTransport newTransport(ClientConfig config) {
+    OkHttpClient client = newClient(config);
+    Protocol protocol = probe(client, config.getNavigatorUrl());
+    if (protocol != Protocol.HTTP_2 &&
+        protocol != Protocol.H2_PRIOR_KNOWLEDGE) {
+      client.dispatcher().executorService().shutdown();
+      client.connectionPool().evictAll();
+      return null;
+    }
+    return new Http2Transport(config, client, protocol);
+  }
+
+  private OkHttpClient newClient(ClientConfig config) {
+    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(
+            config.getMaxConnectionsPerRoute(),
+            config.getConnectionIdleTimeoutSecs(), TimeUnit.SECONDS));
+    if (SSLUtils.isSSL(config.getNavigatorUrl())) {
+      TrustManager trustManager = SSLUtils.getTrustManager(config);
+      Preconditions.checkArgument(trustManager instanceof X509TrustManager,
+          "HTTP/2 transport needs an X509TrustManager");
+      builder.protocols(ImmutableList.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+          .sslSocketFactory(SSLUtils.getSSLContext(config).getSocketFactory(),
+              (X509TrustManager) trustManager)
+          .hostnameVerifier(SSLUtils.getHostnameVerifier(config));
+    } else {
+      builder.protocols(ImmutableList.of(Protocol.H2_PRIOR_KNOWLEDGE));
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return protocol Navigator answered with, null if it could not be
+   *         reached with HTTP/2
+   */
+  private Protocol probe(OkHttpClient client, String navigatorUrl) {
+    Request request = new Request.Builder().url(navigatorUrl).head().build();
+    OkHttpClient probeClient = client.newBuilder()
+        .retryOnConnectionFailure(false)
+        .build();
+    try (Response response = probeClient.newCall(request).execute()) {
+      LOG.debug("Navigator at {} answered with {}", navigatorUrl,
+          response.protocol());
+      return response.protocol();
+    } catch (IOException | NoSuchElementException e) {
+      // OkHttp looks for another route when the connection it opened with
+      // the preface turns out unhealthy, and fails if there is none left
+      LOG.debug("Navigator at {} did not answer with HTTP/2", navigatorUrl, e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Request sent with an OkHttp client. The body is buffered, so the length
+ * of every request is known when it is sent.
+ */
+class OkHttpClientRequest extends AbstractClientHttpRequest {
+
+  private final OkHttpClient client;
+  private final URI uri;
+  private final HttpMethod method;
+  private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+  OkHttpClientRequest(OkHttpClient client, URI uri, HttpMethod method) {
+    this.client = client;
+    this.uri = uri;
+    this.method = method;
+  }
+
+  @Override
+  public HttpMethod getMethod() {
+    return method;
+  }
+
+  @Override
+  public URI getURI() {
+    return uri;
+  }
+
+  @Override
+  protected OutputStream getBodyInternal(HttpHeaders headers) {
+    return body;
+  }
+
+  @Override
+  protected ClientHttpResponse executeInternal(HttpHeaders headers)
+      throws IOException {
+    Request.Builder builder = new Request.Builder().url(uri.toURL());
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      for (String value : header.getValue()) {
+        builder.addHeader(header.getKey(), value);
+      }
+    }
+    builder.method(method.name(), newRequestBody(headers));
+    return new OkHttpClientResponse(
+        client.newCall(builder.build()).execute());
+  }
+
+  private RequestBody newRequestBody(HttpHeaders headers) {
+    byte[] bytes = body.toByteArray();
+    // OkHttp rejects a body for GET and HEAD, but requires one for POST, PUT
+    // and PATCH even if it is empty
+    if (bytes.length == 0 && method != HttpMethod.POST &&
+        method != HttpMethod.PUT && method != HttpMethod.PATCH) {
+      return null;
+    }
+    MediaType contentType = headers.getContentType() == null ? null :
+        MediaType.parse(headers.getContentType().toString());
+    return RequestBody.create(contentType, bytes);
+  }
+}
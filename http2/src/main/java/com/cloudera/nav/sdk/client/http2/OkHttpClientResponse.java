@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.http2;
+
+import java.io.InputStream;
+
+import okhttp3.Response;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.AbstractClientHttpResponse;
+
+/**
+ * Response to an {@link OkHttpClientRequest}
+ */
+class OkHttpClientResponse extends AbstractClientHttpResponse {
+
+  private final Response response;
+  private HttpHeaders headers;
+
+  OkHttpClientResponse(Response response) {
+    this.response = response;
+  }
+
+  @Override
+  public int getRawStatusCode() {
+    return response.code();
+  }
+
+  @Override
+  public String getStatusText() {
+    return response.message();
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    if (headers == null) {
+      HttpHeaders responseHeaders = new HttpHeaders();
+      for (String name : response.headers().names()) {
+        for (String value : response.headers(name)) {
+          responseHeaders.add(name, value);
+        }
+      }
+      headers = responseHeaders;
+    }
+    return headers;
+  }
+
+  @Override
+  public InputStream getBody() {
+    return response.body().byteStream();
+  }
+
+  @Override
+  public void close() {
+    response.close();
+  }
+}
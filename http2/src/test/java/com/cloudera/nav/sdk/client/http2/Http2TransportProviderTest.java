@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.http2;
+
+import static org.junit.Assert.*;
+
+import com.cloudera.nav.sdk.client.ClientConfig;
+import com.cloudera.nav.sdk.client.HttpTransport;
+import com.cloudera.nav.sdk.client.NavApiCient;
+import com.cloudera.nav.sdk.client.NavTransport;
+import com.cloudera.nav.sdk.client.NavTransportFactory;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+import java.net.URI;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.*;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+public class Http2TransportProviderTest {
+
+  private MockWebServer server;
+  private ClientConfig config;
+
+  @Before
+  public void setUp() {
+    server = new MockWebServer();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse()
+            .setHeader("Content-Type", "application/json")
+            .setBody("[]");
+      }
+    });
+    config = new ClientConfig();
+    config.setApiVersion(9);
+    config.setUsername("user");
+    config.setPassword("pass");
+    // no retrying transport around the provided one
+    config.setRetryMaxAttempts(1);
+    config.setCircuitBreakerFailureThreshold(0);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test
+  public void testHttp2() throws Exception {
+    server.setProtocols(ImmutableList.of(Protocol.H2_PRIOR_KNOWLEDGE));
+    server.start();
+    config.setNavigatorUrl(server.url("/").toString());
+
+    NavTransport transport = new Http2TransportProvider()
+        .newTransport(config);
+    assertTrue(transport instanceof Http2Transport);
+    assertEquals(Protocol.H2_PRIOR_KNOWLEDGE,
+        ((Http2Transport) transport).getProtocol());
+    assertEquals("HEAD", server.takeRequest().getMethod());
+
+    ClientHttpRequest request = transport.createRequest(
+        URI.create(transport.getApiUrl() + "/entities"), HttpMethod.POST);
+    request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    request.getBody().write("{}".getBytes(Charsets.UTF_8));
+    try (ClientHttpResponse response = request.execute()) {
+      assertEquals(200, response.getRawStatusCode());
+      assertEquals("[]", new String(ByteStreams.toByteArray(
+          response.getBody()), Charsets.UTF_8));
+    }
+    RecordedRequest recorded = server.takeRequest();
+    assertEquals("/api/v9/entities", recorded.getPath());
+    assertEquals("{}", recorded.getBody().readUtf8());
+    assertEquals("Basic dXNlcjpwYXNz", recorded.getHeader("Authorization"));
+    assertEquals("identity", recorded.getHeader("Accept-Encoding"));
+    // sent on the connection opened by the probe
+    assertEquals(1, recorded.getSequenceNumber());
+    transport.close();
+  }
+
+  @Test
+  public void testClientOverHttp2() throws Exception {
+    server.setProtocols(ImmutableList.of(Protocol.H2_PRIOR_KNOWLEDGE));
+    server.start();
+    config.setNavigatorUrl(server.url("/").toString());
+    config.setTransportProvider(Http2TransportProvider.class.getName());
+
+    try (NavTransport transport = new NavTransportFactory()
+        .newTransport(config)) {
+      assertTrue(transport instanceof Http2Transport);
+      NavApiCient client = new NavApiCient(config, transport);
+      assertTrue(client.getAllSources().isEmpty());
+    }
+    server.takeRequest();
+    assertEquals("/api/v9/entities", server.takeRequest().getRequestUrl()
+        .encodedPath());
+  }
+
+  @Test
+  public void testFallbackToHttp11() throws Exception {
+    server.setProtocols(ImmutableList.of(Protocol.HTTP_1_1));
+    server.start();
+    config.setNavigatorUrl(server.url("/").toString());
+
+    assertNull(new Http2TransportProvider().newTransport(config));
+
+    config.setTransportProvider(Http2TransportProvider.class.getName());
+    try (NavTransport transport = new NavTransportFactory()
+        .newTransport(config)) {
+      assertTrue(transport instanceof HttpTransport);
+      NavApiCient client = new NavApiCient(config, transport);
+      assertTrue(client.getAllSources().isEmpty());
+    }
+  }
+}
@@ -22,12 +22,24 @@ public class DatasetIdGenerator {
 
   public static String datasetId(String parentId, String namespace,
                                  String datasetName, String idAttrsMap) {
-    return MD5IdGenerator.generateIdentity(parentId, "%NAMESPACE%", namespace,
-        "%DATASET%", datasetName, idAttrsMap);
+    return datasetIdValue(parentId, namespace, datasetName, idAttrsMap)
+        .toString();
   }
 
   public static String fieldId(String parentId, String fieldName) {
-    return MD5IdGenerator.generateIdentity(parentId, "%FIELD%", fieldName);
+    return fieldIdValue(parentId, fieldName).toString();
+  }
+
+  public static Identity datasetIdValue(String parentId, String namespace,
+                                        String datasetName,
+                                        String idAttrsMap) {
+    return MD5IdGenerator.generateIdentityValue(parentId, "%NAMESPACE%",
+        namespace, "%DATASET%", datasetName, idAttrsMap);
+  }
+
+  public static Identity fieldIdValue(String parentId, String fieldName) {
+    return MD5IdGenerator.generateIdentityValue(parentId, "%FIELD%",
+        fieldName);
   }
 
   public static String fieldIdFromPath(String parentId, String fieldPath) {
@@ -24,25 +24,40 @@ public class HiveIdGenerator {
 
   public static String generateTableId(String sourceId, String databaseName,
                                        String tableName) {
+    return generateTableIdValue(sourceId, databaseName, tableName)
+        .toString();
+  }
+
+  public static Identity generateTableIdValue(String sourceId,
+                                              String databaseName,
+                                              String tableName) {
     Preconditions.checkArgument(!StringUtils.isEmpty(sourceId) &&
             !StringUtils.isEmpty(databaseName) &&
             !StringUtils.isEmpty(tableName),
         "SourceId, database name, and table name must be supplied to " +
             "generate Hive table identity");
-    return MD5IdGenerator.generateIdentity(sourceId,
+    return MD5IdGenerator.generateIdentityValue(sourceId,
         databaseName.toUpperCase(),
         tableName.toUpperCase());
   }
 
   public static String generateColumnId(String sourceId, String databaseName,
                                         String tableName, String columnName) {
+    return generateColumnIdValue(sourceId, databaseName, tableName,
+        columnName).toString();
+  }
+
+  public static Identity generateColumnIdValue(String sourceId,
+                                               String databaseName,
+                                               String tableName,
+                                               String columnName) {
     Preconditions.checkArgument(!StringUtils.isEmpty(sourceId) &&
             !StringUtils.isEmpty(databaseName) &&
             !StringUtils.isEmpty(tableName) &&
             !StringUtils.isEmpty(columnName),
         "SourceId, database name, table name, and column name must be " +
             "supplied to generate Hive column identity");
-    return MD5IdGenerator.generateIdentity(sourceId,
+    return MD5IdGenerator.generateIdentityValue(sourceId,
         databaseName.toUpperCase(),
         tableName.toUpperCase(),
         columnName.toUpperCase());
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedLongs;
+
+import java.io.Serializable;
+
+/**
+ * 128-bit identity, as generated by {@link MD5IdGenerator}, held as two
+ * longs instead of a 32 character hex String. It takes a fraction of the
+ * heap of the String and is hashed and compared without looking at any
+ * characters.
+ *
+ * The String form is the lower case hex of the 16 bytes in order, the same
+ * as the identities returned by Navigator. Identities are ordered like
+ * their String forms.
+ */
+public final class Identity implements Comparable<Identity>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final long high;
+  private final long low;
+
+  public Identity(long high, long low) {
+    this.high = high;
+    this.low = low;
+  }
+
+  /**
+   * @param bytes the 16 bytes of the identity, e.g. an MD5 hash
+   */
+  public static Identity fromBytes(byte[] bytes) {
+    Preconditions.checkArgument(bytes.length == 16,
+        "An identity has 16 bytes, not %s", bytes.length);
+    return new Identity(
+        Longs.fromBytes(bytes[0], bytes[1], bytes[2], bytes[3],
+            bytes[4], bytes[5], bytes[6], bytes[7]),
+        Longs.fromBytes(bytes[8], bytes[9], bytes[10], bytes[11],
+            bytes[12], bytes[13], bytes[14], bytes[15]));
+  }
+
+  /**
+   * Parse the hex String form of an identity, in upper or lower case
+   *
+   * @throws IllegalArgumentException if it is not 32 hex characters
+   */
+  @JsonCreator
+  public static Identity parse(CharSequence hex) {
+    Preconditions.checkArgument(hex.length() == 32,
+        "Not a 128-bit hex identity: %s", hex);
+    return new Identity(parseHex(hex, 0), parseHex(hex, 16));
+  }
+
+  /**
+   * Unlike {@link #parse(CharSequence)}, upper case is rejected, since such
+   * a String differs from the String form of the identity it parses to.
+   *
+   * @return whether the String is an identity in its String form, i.e. 32
+   *         lower case hex characters
+   */
+  public static boolean isValid(CharSequence hex) {
+    if (hex == null || hex.length() != 32) {
+      return false;
+    }
+    for (int i = 0; i < 32; i++) {
+      char c = hex.charAt(i);
+      if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long parseHex(CharSequence hex, int start) {
+    long value = 0;
+    for (int i = start; i < start + 16; i++) {
+      int digit = Character.digit(hex.charAt(i), 16);
+      Preconditions.checkArgument(digit >= 0,
+          "Not a 128-bit hex identity: %s", hex);
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  public long getHigh() {
+    return high;
+  }
+
+  public long getLow() {
+    return low;
+  }
+
+  @JsonValue
+  @Override
+  public String toString() {
+    char[] chars = new char[32];
+    formatHex(high, chars, 0);
+    formatHex(low, chars, 16);
+    return new String(chars);
+  }
+
+  private static void formatHex(long value, char[] chars, int start) {
+    for (int i = start + 15; i >= start; i--) {
+      chars[i] = HEX_DIGITS[(int) value & 0xf];
+      value >>>= 4;
+    }
+  }
+
+  @Override
+  public int compareTo(Identity other) {
+    int cmp = UnsignedLongs.compare(high, other.high);
+    return cmp != 0 ? cmp : UnsignedLongs.compare(low, other.low);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Identity)) return false;
+    Identity other = (Identity) o;
+    return high == other.high && low == other.low;
+  }
+
+  @Override
+  public int hashCode() {
+    // the bits of an MD5 identity are uniformly distributed already
+    return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32));
+  }
+}
@@ -43,6 +43,16 @@ public class MD5IdGenerator {
     return h.getIdentity();
   }
 
+  /**
+   * Same as {@link #generateIdentity(String...)}, without creating the hex
+   * String of the identity
+   */
+  public static Identity generateIdentityValue(String... args) {
+    MD5IdGenerator h = new MD5IdGenerator();
+    h.update(args);
+    return h.getIdentityValue();
+  }
+
   public static boolean isValidId(String id) {
     return !StringUtils.isEmpty(id) && MD5_PATTERN.matcher(id).matches();
   }
@@ -79,4 +89,8 @@ public class MD5IdGenerator {
     return hasher.hash().toString();
   }
 
+  public Identity getIdentityValue() {
+    return Identity.fromBytes(hasher.hash().asBytes());
+  }
+
 }
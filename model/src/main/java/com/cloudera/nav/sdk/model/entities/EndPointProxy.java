@@ -16,6 +16,7 @@
 
 package com.cloudera.nav.sdk.model.entities;
 
+import com.cloudera.nav.sdk.model.Identity;
 import com.cloudera.nav.sdk.model.SourceType;
 import com.cloudera.nav.sdk.model.annotations.MClass;
 import com.google.common.base.Strings;
@@ -50,6 +51,11 @@ public class EndPointProxy extends Entity {
     setEntityType(entityType);
   }
 
+  public EndPointProxy(Identity id, SourceType sourceType,
+                       EntityType entityType) {
+    this(id.toString(), sourceType, entityType);
+  }
+
   public Map<String, String> getIdAttrsMap() {
     return endPointAttributes;
   }
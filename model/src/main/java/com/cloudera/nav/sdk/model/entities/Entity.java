@@ -15,6 +15,7 @@
  */
 package com.cloudera.nav.sdk.model.entities;
 
+import com.cloudera.nav.sdk.model.Identity;
 import com.cloudera.nav.sdk.model.SourceType;
 import com.cloudera.nav.sdk.model.annotations.MProperty;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -94,6 +95,14 @@ public abstract class Entity {
     this.identity = identity;
   }
 
+  /**
+   * Set the identity for the custom entity from its 128-bit value
+   * @param identity
+   */
+  public void setIdentity(Identity identity) {
+    setIdentity(identity.toString());
+  }
+
   /**
    * @return id for the designated source
    */
@@ -16,6 +16,7 @@
 package com.cloudera.nav.sdk.model.relations;
 
 
+import com.cloudera.nav.sdk.model.Identity;
 import com.cloudera.nav.sdk.model.SourceType;
 import com.cloudera.nav.sdk.model.annotations.MProperty;
 import com.cloudera.nav.sdk.model.entities.Entity;
@@ -83,6 +84,10 @@ public abstract class Relation {
       return self();
     }
 
+    public T identity(Identity identity) {
+      return identity(identity.toString());
+    }
+
     public T idGenerator(RelationIdGenerator idGenerator) {
       this.idGenerator = idGenerator;
       return self();
@@ -93,6 +98,10 @@ public abstract class Relation {
       return self();
     }
 
+    public T ep1Identities(Collection<Identity> ep1Identities) {
+      return ep1Ids(toIds(ep1Identities));
+    }
+
     public T ep1Type(EntityType ep1Type) {
       this.ep1Type = ep1Type;
       return self();
@@ -103,6 +112,10 @@ public abstract class Relation {
       return self();
     }
 
+    public T ep2Identities(Collection<Identity> ep2Identities) {
+      return ep2Ids(toIds(ep2Identities));
+    }
+
     public T ep2Type(EntityType ep2Type) {
       this.ep2Type = ep2Type;
       return self();
@@ -184,6 +197,16 @@ public abstract class Relation {
       return ids;
     }
 
+    private static Collection<String> toIds(
+        Collection<Identity> identities) {
+      Collection<String> ids = Lists.newArrayListWithCapacity(
+          identities.size());
+      for (Identity identity : identities) {
+        ids.add(identity.toString());
+      }
+      return ids;
+    }
+
     public abstract Relation build();
   }
 
@@ -15,6 +15,7 @@
  */
 package com.cloudera.nav.sdk.model.relations;
 
+import com.cloudera.nav.sdk.model.Identity;
 import com.cloudera.nav.sdk.model.MD5IdGenerator;
 import com.cloudera.nav.sdk.model.SourceType;
 import com.google.common.base.Joiner;
@@ -34,11 +35,19 @@ public class RelationIdGenerator {
       Collection<String> ep1Ids, SourceType ep1SourceType,
       Collection<String> ep2Ids, SourceType ep2SourceType,
       RelationType relType, String namespace) {
+    return generateRelationIdValue(ep1Ids, ep1SourceType, ep2Ids,
+        ep2SourceType, relType, namespace).toString();
+  }
+
+  public Identity generateRelationIdValue(
+      Collection<String> ep1Ids, SourceType ep1SourceType,
+      Collection<String> ep2Ids, SourceType ep2SourceType,
+      RelationType relType, String namespace) {
     List<String> sortedEp1Ids = Lists.newArrayList(ep1Ids);
     Collections.sort(sortedEp1Ids);
     List<String> sortedEp2Ids = Lists.newArrayList(ep2Ids);
     Collections.sort(sortedEp2Ids);
-    return MD5IdGenerator.generateIdentity(namespace, relType.name(),
+    return MD5IdGenerator.generateIdentityValue(namespace, relType.name(),
         Joiner.on(",").join(sortedEp1Ids), ep1SourceType.name(),
         Joiner.on(",").join(sortedEp2Ids), ep2SourceType.name());
   }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.model;
+
+import static org.junit.Assert.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IdentityTest {
+
+  @Test
+  public void testParseAndFormat() {
+    String hex = MD5IdGenerator.generateIdentity("foo");
+    Identity identity = Identity.parse(hex);
+    assertEquals(hex, identity.toString());
+    assertEquals(identity, Identity.parse(hex.toUpperCase()));
+    assertEquals(identity.hashCode(), Identity.parse(hex).hashCode());
+    assertEquals("0000000000000001ffffffffffffffff",
+        new Identity(1L, -1L).toString());
+    assertTrue(Identity.isValid(hex));
+    assertFalse(Identity.isValid(hex.toUpperCase()));
+    assertFalse(Identity.isValid("12345"));
+    assertFalse(Identity.isValid(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseInvalid() {
+    Identity.parse("0123456789abcdef0123456789abcdeg");
+  }
+
+  @Test
+  public void testOrderedLikeStrings() {
+    List<String> hexes = Lists.newArrayList();
+    List<Identity> identities = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      String hex = MD5IdGenerator.generateIdentity(String.valueOf(i));
+      hexes.add(hex);
+      identities.add(Identity.parse(hex));
+    }
+    Collections.sort(hexes);
+    Collections.sort(identities);
+    for (int i = 0; i < hexes.size(); i++) {
+      assertEquals(hexes.get(i), identities.get(i).toString());
+    }
+  }
+
+  @Test
+  public void testJson() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    Identity identity = MD5IdGenerator.generateIdentityValue("foo");
+    String json = mapper.writeValueAsString(identity);
+    assertEquals("\"" + identity + "\"", json);
+    assertEquals(identity, mapper.readValue(json, Identity.class));
+  }
+}
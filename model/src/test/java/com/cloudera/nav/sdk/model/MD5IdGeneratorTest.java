@@ -31,6 +31,15 @@ public class MD5IdGeneratorTest {
     assertEquals(hash.length(), 32);
   }
 
+  @Test
+  public void testIdentityValue() {
+    assertEquals(MD5IdGenerator.generateIdentity("foo", "bar"),
+        MD5IdGenerator.generateIdentityValue("foo", "bar").toString());
+    assertEquals(HiveIdGenerator.generateColumnId("s", "db", "t", "c"),
+        HiveIdGenerator.generateColumnIdValue("s", "db", "t", "c")
+            .toString());
+  }
+
   @Test
   public void testPig() {
     String hash = MD5IdGenerator.generateIdentity(
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.stream;
+
+import com.cloudera.nav.sdk.client.MetadataIterable;
+import com.cloudera.nav.sdk.client.MetadataResultIterator;
+import com.cloudera.nav.sdk.client.QueryUtils;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the results of a {@link MetadataIterable}. Every split
+ * pages its share of the results with its own
+ * {@link MetadataResultIterator}, so the splits of a parallel stream
+ * request their pages from Navigator concurrently.
+ *
+ * The extractorRunIds are split along the partitions of a
+ * MetadataResultIterator. Once a split only covers a single partition, as
+ * in a full extraction, it is split into ranges of identities instead,
+ * bounded by identity prefixes. Identities are hex hashes, but the ranges
+ * cover every string, so each result belongs to exactly one split.
+ *
+ * The iterators of abandoned splits hold on to their connections if the
+ * results are streamed. Closing the spliterator, or the stream of
+ * {@link MetadataStreams}, closes the iterators of all its splits.
+ */
+public class MetadataSpliterator implements Spliterator<Map<String, Object>>,
+    Closeable {
+
+  /**
+   * Number of hex digits of the identity prefixes bounding a range
+   */
+  @VisibleForTesting
+  static final int PREFIX_LENGTH = 4;
+  private static final int PREFIX_RANGE = 1 << (4 * PREFIX_LENGTH);
+  private static final int MAX_IDENTITY_SPLITS = 64;
+  private static final int MIN_RANGE_WIDTH =
+      PREFIX_RANGE / MAX_IDENTITY_SPLITS;
+
+  private final MetadataIterable iterable;
+  private final Queue<MetadataResultIterator> opened;
+  private List<String> extractorRunIds;
+  private int rangeStart;
+  private int rangeEnd;
+  private MetadataResultIterator iterator;
+
+  public MetadataSpliterator(MetadataIterable iterable) {
+    this(iterable, ImmutableList.copyOf(iterable.getExtractorRunIds()), 0,
+        PREFIX_RANGE, new ConcurrentLinkedQueue<>());
+  }
+
+  private MetadataSpliterator(MetadataIterable iterable,
+                              List<String> extractorRunIds, int rangeStart,
+                              int rangeEnd,
+                              Queue<MetadataResultIterator> opened) {
+    this.iterable = iterable;
+    this.extractorRunIds = extractorRunIds;
+    this.rangeStart = rangeStart;
+    this.rangeEnd = rangeEnd;
+    this.opened = opened;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Map<String, Object>> action) {
+    MetadataResultIterator results = getIterator();
+    if (!results.hasNext()) {
+      return false;
+    }
+    action.accept(results.next());
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super Map<String, Object>> action) {
+    MetadataResultIterator results = getIterator();
+    while (results.hasNext()) {
+      action.accept(results.next());
+    }
+  }
+
+  /**
+   * Split off the first half of the remaining partitions, or of the
+   * identity range if a single partition remains. Splits that started
+   * paging are not split any further.
+   */
+  @Override
+  public Spliterator<Map<String, Object>> trySplit() {
+    if (iterator != null) {
+      return null;
+    }
+    int partitionSize = MetadataResultIterator.MAX_QUERY_PARTITION_SIZE;
+    int partitions = (extractorRunIds.size() + partitionSize - 1) /
+        partitionSize;
+    if (partitions > 1) {
+      int mid = partitions / 2 * partitionSize;
+      MetadataSpliterator prefix = new MetadataSpliterator(iterable,
+          extractorRunIds.subList(0, mid), rangeStart, rangeEnd, opened);
+      extractorRunIds = extractorRunIds.subList(mid, extractorRunIds.size());
+      return prefix;
+    }
+    if (rangeEnd - rangeStart > MIN_RANGE_WIDTH) {
+      int mid = (rangeStart + rangeEnd) >>> 1;
+      MetadataSpliterator prefix = new MetadataSpliterator(iterable,
+          extractorRunIds, rangeStart, mid, opened);
+      rangeStart = mid;
+      return prefix;
+    }
+    return null;
+  }
+
+  /**
+   * The number of results is not known before they are paged
+   */
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return NONNULL;
+  }
+
+  /**
+   * @return query of the split, the user query restricted to its identity
+   *         range
+   */
+  @VisibleForTesting
+  String getQuery() {
+    if (rangeStart == 0 && rangeEnd == PREFIX_RANGE) {
+      return iterable.getQuery();
+    }
+    String range = rangeEnd == PREFIX_RANGE ?
+        String.format("identity:[%s TO *]", prefix(rangeStart)) :
+        String.format("identity:[%s TO %s}", prefix(rangeStart),
+            prefix(rangeEnd));
+    return QueryUtils.conjoinSolrQueries(iterable.getQuery(), range);
+  }
+
+  @VisibleForTesting
+  List<String> getExtractorRunIds() {
+    return extractorRunIds;
+  }
+
+  private static String prefix(int bound) {
+    return bound == 0 ? "*" :
+        String.format("%0" + PREFIX_LENGTH + "x", bound);
+  }
+
+  private MetadataResultIterator getIterator() {
+    if (iterator == null) {
+      iterator = new MetadataResultIterator(iterable.getClient(),
+          iterable.getType(), getQuery(), iterable.getLimit(),
+          extractorRunIds, iterable.getFields(), null);
+      opened.add(iterator);
+    }
+    return iterator;
+  }
+
+  /**
+   * Close the iterators of this spliterator and of all splits of it
+   */
+  @Override
+  public void close() {
+    MetadataResultIterator results;
+    while ((results = opened.poll()) != null) {
+      results.close();
+    }
+  }
+}
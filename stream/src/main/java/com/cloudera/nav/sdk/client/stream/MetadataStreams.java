@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.stream;
+
+import com.cloudera.nav.sdk.client.MetadataIterable;
+import com.cloudera.nav.sdk.client.MetadataResultSet;
+
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * java.util.stream views of extracted metadata. A parallel stream pages
+ * the results of its splits from Navigator concurrently, see
+ * {@link MetadataSpliterator}. Streams should be closed if they are not
+ * consumed entirely.
+ */
+public final class MetadataStreams {
+
+  private MetadataStreams() {
+  }
+
+  public static Stream<Map<String, Object>> stream(
+      MetadataIterable iterable) {
+    return stream(iterable, false);
+  }
+
+  public static Stream<Map<String, Object>> parallelStream(
+      MetadataIterable iterable) {
+    return stream(iterable, true);
+  }
+
+  /**
+   * @return stream over the entities of an extraction
+   */
+  public static Stream<Map<String, Object>> entities(
+      MetadataResultSet resultSet, boolean parallel) {
+    return stream(resultSet.getEntities(), parallel);
+  }
+
+  /**
+   * @return stream over the relations of an extraction
+   */
+  public static Stream<Map<String, Object>> relations(
+      MetadataResultSet resultSet, boolean parallel) {
+    return stream(resultSet.getRelations(), parallel);
+  }
+
+  private static Stream<Map<String, Object>> stream(
+      MetadataIterable iterable, boolean parallel) {
+    MetadataSpliterator spliterator = new MetadataSpliterator(iterable);
+    return StreamSupport.stream(spliterator, parallel)
+        .onClose(spliterator::close);
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2015 Cloudera, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cloudera.nav.sdk.client.stream;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.cloudera.nav.sdk.client.EntityResultsBatch;
+import com.cloudera.nav.sdk.client.MetadataIterable;
+import com.cloudera.nav.sdk.client.MetadataQuery;
+import com.cloudera.nav.sdk.client.NavApiCient;
+import com.cloudera.nav.sdk.model.MetadataType;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.*;
+
+public class MetadataSpliteratorTest {
+
+  private static final int NUM_ENTITIES = 500;
+  private static final int NUM_RUNS = 2000;
+  private static final Pattern RUN_IDS = Pattern.compile(
+      "extractorRunId:\\(([^)]*)\\)");
+  private static final Pattern RANGE = Pattern.compile(
+      "identity:\\[(\\S+) TO (\\S+?)[}\\]]");
+
+  private NavApiCient client;
+  private List<Map<String, Object>> entities;
+  private Set<String> queries;
+
+  @Before
+  public void setUp() {
+    entities = Lists.newArrayList();
+    for (int i = 0; i < NUM_ENTITIES; i++) {
+      entities.add(ImmutableMap.<String, Object>of(
+          "identity", Hashing.md5().hashInt(i).toString(),
+          "extractorRunId", "s##" + (i % NUM_RUNS)));
+    }
+    queries = ConcurrentHashMap.newKeySet();
+    client = mock(NavApiCient.class);
+    when(client.getEntityBatch(any(MetadataQuery.class))).thenAnswer(
+        invocation -> page((MetadataQuery) invocation.getArguments()[0]));
+  }
+
+  @Test
+  public void testSplitPartitions() {
+    MetadataSpliterator rest = new MetadataSpliterator(iterable(runIds()));
+    MetadataSpliterator first = (MetadataSpliterator) rest.trySplit();
+    assertEquals(800, first.getExtractorRunIds().size());
+    assertEquals("s##0", first.getExtractorRunIds().get(0));
+    MetadataSpliterator second = (MetadataSpliterator) rest.trySplit();
+    assertEquals(800, second.getExtractorRunIds().size());
+    assertEquals("s##800", second.getExtractorRunIds().get(0));
+    assertEquals(400, rest.getExtractorRunIds().size());
+
+    // a single partition is split by identity
+    assertEquals("type:FILE", rest.getQuery());
+    MetadataSpliterator lower = (MetadataSpliterator) rest.trySplit();
+    assertEquals(400, lower.getExtractorRunIds().size());
+    assertEquals("type:FILE AND identity:[* TO 8000}", lower.getQuery());
+    assertEquals("type:FILE AND identity:[8000 TO *]", rest.getQuery());
+    MetadataSpliterator middle = (MetadataSpliterator) rest.trySplit();
+    assertEquals("type:FILE AND identity:[8000 TO c000}",
+        middle.getQuery());
+  }
+
+  @Test
+  public void testSplitLimit() {
+    MetadataSpliterator spliterator = new MetadataSpliterator(
+        iterable(Lists.newArrayList("*")));
+    int splits = 0;
+    while (spliterator.trySplit() != null) {
+      splits++;
+    }
+    // halving until the identity range can not be split any further
+    assertEquals(6, splits);
+    assertEquals("type:FILE AND identity:[fc00 TO *]",
+        spliterator.getQuery());
+    assertTrue(spliterator.tryAdvance(result -> { }));
+    // started splits are not split
+    assertNull(spliterator.trySplit());
+  }
+
+  @Test
+  public void testParallelStream() {
+    for (List<String> runIds : ImmutableList.of(runIds(),
+        ImmutableList.of("*"))) {
+      List<Object> ids;
+      try (Stream<Map<String, Object>> stream =
+               MetadataStreams.parallelStream(iterable(runIds))) {
+        ids = stream.map(result -> result.get("identity"))
+            .collect(Collectors.toList());
+      }
+      assertEquals(NUM_ENTITIES, ids.size());
+      assertEquals(NUM_ENTITIES, Sets.newHashSet(ids).size());
+    }
+    // paged in several splits
+    assertTrue(queries.size() > 2);
+  }
+
+  @Test
+  public void testSequentialStream() {
+    MetadataIterable iterable = iterable(runIds());
+    assertEquals(NUM_ENTITIES, MetadataStreams.stream(iterable).count());
+    // a sequential stream is never split
+    assertEquals(3, queries.size());
+    assertEquals(0, new MetadataSpliterator(iterable).characteristics() &
+        Spliterator.SIZED);
+  }
+
+  private MetadataIterable iterable(List<String> runIds) {
+    return new MetadataIterable(client, MetadataType.ENTITIES, "type:FILE",
+        50, runIds);
+  }
+
+  private static List<String> runIds() {
+    List<String> runIds = Lists.newArrayList();
+    for (int i = 0; i < NUM_RUNS; i++) {
+      runIds.add("s##" + i);
+    }
+    return runIds;
+  }
+
+  /**
+   * Page of the entities matching the extractorRunIds and identity range
+   * of the query, the cursorMark is the offset of the next page
+   */
+  private EntityResultsBatch page(MetadataQuery query) {
+    queries.add(query.getQuery());
+    Matcher runIdMatcher = RUN_IDS.matcher(query.getQuery());
+    assertTrue(runIdMatcher.find());
+    Collection<String> runIds = Sets.newHashSet(
+        Splitter.on(" OR ").split(runIdMatcher.group(1)));
+    Matcher rangeMatcher = RANGE.matcher(query.getQuery());
+    String lower = rangeMatcher.find() ? rangeMatcher.group(1) : "*";
+    String upper = rangeMatcher.find(0) ? rangeMatcher.group(2) : "*";
+    List<Map<String, Object>> matches = Lists.newArrayList();
+    for (Map<String, Object> entity : entities) {
+      String id = (String) entity.get("identity");
+      if ((runIds.contains("*") ||
+          runIds.contains(entity.get("extractorRunId"))) &&
+          ("*".equals(lower) || id.compareTo(lower) >= 0) &&
+          ("*".equals(upper) || id.compareTo(upper) < 0)) {
+        matches.add(entity);
+      }
+    }
+    int offset = "*".equals(query.getCursorMark()) ? 0 :
+        Integer.parseInt(query.getCursorMark());
+    int end = Math.min(offset + query.getLimit(), matches.size());
+    EntityResultsBatch batch = new EntityResultsBatch();
+    batch.setResults(Lists.newArrayList(matches.subList(offset, end)));
+    batch.setCursorMark(String.valueOf(end));
+    return batch;
+  }
+}